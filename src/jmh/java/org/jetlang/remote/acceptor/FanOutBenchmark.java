@@ -0,0 +1,113 @@
+package org.jetlang.remote.acceptor;
+
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.remote.core.ByteArraySerializer;
+import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.NioWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One publish from the send fiber while varying the number of connected sessions and the number subscribed to the
+ * topic. The other sessions are subscribed to other topics, so the cost should follow the subscribers and stay flat
+ * as sessions are added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FanOutBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int sessions;
+
+    @Param({"1", "4", "16"})
+    public int subscribers;
+
+    private final byte[] payload = new byte[32];
+    private final List<SocketChannel> sockets = new ArrayList<>();
+    private final List<Thread> drains = new ArrayList<>();
+    private ServerSocketChannel server;
+    private SocketChannel idleChannel;
+    private NioFiberImpl nioFiber;
+    private NioJetlangSendFiber<byte[]> sendFiber;
+
+    @Setup
+    public void setup() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        //idle sessions are never written to, so they can share one unconnected channel
+        idleChannel = SocketChannel.open();
+        nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        FiberStub fiber = new FiberStub();
+        sendFiber = new NioJetlangSendFiber<>(fiber, new ByteArraySerializer().getWriter(), StandardCharsets.US_ASCII);
+        IoBufferPool.Default pool = new IoBufferPool.Default();
+        for (int i = 0; i < sessions; i++) {
+            SocketChannel channel = idleChannel;
+            String topic = "idle." + (i % 1000);
+            if (i < subscribers) {
+                channel = SocketChannel.open(server.getLocalAddress());
+                SocketChannel accepted = server.accept();
+                sockets.add(channel);
+                sockets.add(accepted);
+                drains.add(drain(accepted));
+                topic = "hot";
+            }
+            NioWriter writer = new NioWriter(new Object(), channel, nioFiber, pool.createFor(channel, nioFiber));
+            NioJetlangSendFiber.ChannelState state = new NioJetlangSendFiber.ChannelState(writer, new NioJetlangRemotingClientFactory.Id(channel), nioFiber);
+            sendFiber.onNewSession(state);
+            sendFiber.onSubscriptionRequest(topic, state);
+        }
+        fiber.executeAllPending();
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        for (SocketChannel socket : sockets) {
+            socket.close();
+        }
+        for (Thread drain : drains) {
+            drain.join();
+        }
+        idleChannel.close();
+        server.close();
+        nioFiber.dispose();
+    }
+
+    @Benchmark
+    public int publish() {
+        return sendFiber.writeToAllSubscribedClients("hot", payload);
+    }
+
+    private static Thread drain(SocketChannel accepted) {
+        Thread t = new Thread(() -> {
+            byte[] bytes = new byte[64 * 1024];
+            try (InputStream in = accepted.socket().getInputStream()) {
+                while (in.read(bytes) >= 0) {
+                }
+            } catch (IOException closed) {
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
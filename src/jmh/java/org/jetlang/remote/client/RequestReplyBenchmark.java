@@ -0,0 +1,87 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.acceptor.Acceptor;
+import org.jetlang.remote.acceptor.JetlangClientHandler;
+import org.jetlang.remote.acceptor.JetlangSessionConfig;
+import org.jetlang.remote.acceptor.NewSessionHandler;
+import org.jetlang.remote.acceptor.SessionRequest;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.JavaSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/reply round trips over loopback to an echoing acceptor, with a timeout on each request. Sample time mode
+ * reports the latency percentiles; run with -t to keep more requests in flight on the one client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestReplyBenchmark {
+
+    private ExecutorService service;
+    private Acceptor acceptor;
+    private JetlangTcpClient<Object, Object> client;
+
+    @State(Scope.Thread)
+    public static class Replies {
+        final SynchronousQueue<Object> received = new SynchronousQueue<>();
+        final SynchronousDisposingExecutor onReplyThread = new SynchronousDisposingExecutor();
+        final Callback<Object> onReply = reply -> {
+            try {
+                received.put(reply);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        final Callback<TimeoutControls> onTimeout = controls -> {
+            throw new IllegalStateException("request timed out");
+        };
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        service = Executors.newCachedThreadPool();
+        NewSessionHandler echo = (pub, session) -> {
+            Callback<SessionRequest> onRequest = req -> req.reply(req.getRequest());
+            session.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(), onRequest);
+        };
+        JetlangClientHandler handler = new JetlangClientHandler(new JavaSerializer.Factory(), echo,
+                service, new JetlangSessionConfig(), new JetlangClientHandler.FiberFactory.ThreadFiberFactory(),
+                new ErrorHandler.SysOut());
+        ServerSocket serverSocket = new ServerSocket(0);
+        acceptor = new Acceptor(serverSocket, new Acceptor.ErrorHandler.SysOut(), handler);
+        service.execute(acceptor);
+        client = new JetlangTcpClient<>(new SocketConnector("localhost", serverSocket.getLocalPort()),
+                new ThreadFiber(), new JetlangClientConfig(), new JavaSerializer(), new ErrorHandler.SysOut());
+        client.start();
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        client.close(true).await(1, TimeUnit.SECONDS);
+        acceptor.stop();
+        service.shutdownNow();
+    }
+
+    @Benchmark
+    public Object request(Replies replies) throws InterruptedException {
+        client.request("req", "payload", replies.onReplyThread, replies.onReply, replies.onTimeout, 5, TimeUnit.SECONDS);
+        return replies.received.take();
+    }
+}
@@ -0,0 +1,56 @@
+package org.jetlang.remote.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding one data message, as the send fiber does for every publish.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JetlangBufferBenchmark {
+
+    @Param({"16", "1024"})
+    public int payloadBytes;
+
+    @Param({"false", "true"})
+    public boolean varInts;
+
+    private final Charset ascii = StandardCharsets.US_ASCII;
+    private final ObjectByteWriter<byte[]> writer = new ByteArraySerializer().getWriter();
+    private final JetlangBuffer buffer = new JetlangBuffer(4096);
+    private final TopicAliases aliases = new TopicAliases(ascii);
+    private final TopicAliases.Bindings bindings = new TopicAliases.Bindings();
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = new byte[payloadBytes];
+        buffer.setVarInts(varInts);
+    }
+
+    @Benchmark
+    public int appendMsg() {
+        buffer.clear();
+        buffer.appendMsg("prices.NYSE.IBM", payload, writer, ascii);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int appendAliasedMsg() {
+        buffer.clear();
+        buffer.appendMsg("prices.NYSE.IBM", payload, writer, ascii, aliases, bindings);
+        return buffer.position();
+    }
+}
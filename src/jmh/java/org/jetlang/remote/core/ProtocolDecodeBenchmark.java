@@ -0,0 +1,129 @@
+package org.jetlang.remote.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The read loop of {@link org.jetlang.remote.acceptor.NioJetlangProtocolReader}, decoding a socket read holding
+ * many data messages. The object reader doesn't copy the payload, so only the protocol is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtocolDecodeBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    @Param({"16", "1024"})
+    public int payloadBytes;
+
+    @Param({"false", "true"})
+    public boolean varInts;
+
+    @Param({"default", "bounded"})
+    public String topicReader;
+
+    private final Counting handler = new Counting();
+    private ByteBuffer encoded;
+    private JetlangRemotingProtocol<ByteBuffer> protocol;
+    private JetlangRemotingProtocol.State state;
+
+    @Setup
+    public void setup() {
+        Charset ascii = StandardCharsets.US_ASCII;
+        JetlangBuffer buffer = new JetlangBuffer(1024);
+        buffer.setVarInts(varInts);
+        ObjectByteWriter<byte[]> writer = new ByteArraySerializer().getWriter();
+        byte[] payload = new byte[payloadBytes];
+        for (int i = 0; i < MESSAGES; i++) {
+            buffer.appendMsg("prices.NYSE." + (i % 50), payload, writer, ascii);
+        }
+        ByteBuffer bytes = buffer.getBuffer();
+        bytes.flip();
+        encoded = ByteBuffer.allocateDirect(bytes.remaining());
+        encoded.put(bytes).flip();
+        TopicReader topics = topicReader.equals("bounded") ? new TopicReader.Bounded(ascii) : new TopicReader.Default(ascii);
+        protocol = new JetlangRemotingProtocol<>(handler, (topic, bb, length) -> bb, topics);
+        protocol.resizeBuffer(encoded.capacity());
+        state = protocol.root;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int decode() {
+        encoded.rewind();
+        ByteBuffer buffer = protocol.buffer;
+        buffer.put(encoded);
+        buffer.flip();
+        while (buffer.remaining() >= state.getRequiredBytes()) {
+            state = state.run();
+        }
+        buffer.compact();
+        return handler.messages;
+    }
+
+    private static class Counting implements JetlangRemotingProtocol.Handler<ByteBuffer> {
+        int messages;
+
+        @Override
+        public void onMessage(String dataTopicVal, ByteBuffer readObject) {
+            messages++;
+        }
+
+        @Override
+        public void onSubscriptionRequest(String val) {
+        }
+
+        @Override
+        public void onRequest(int reqId, String dataTopicVal, ByteBuffer readObject) {
+        }
+
+        @Override
+        public void onUnsubscribeRequest(String val) {
+        }
+
+        @Override
+        public void onHb() {
+        }
+
+        @Override
+        public void onLogout() {
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+            throw new IllegalStateException("Unknown " + read);
+        }
+
+        @Override
+        public void onRequestReply(int reqId, String dataTopicVal, ByteBuffer readObject) {
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            throw new IllegalStateException(failed);
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+            throw new IllegalStateException(failed);
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.jetlang.remote.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StringDecoder#createNoCopy(Charset)} against copying into a new array then decoding, for topic and websocket
+ * frame sized strings in direct and heap buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringDecoderBenchmark {
+
+    @Param({"US-ASCII", "UTF-8"})
+    public String charset;
+
+    @Param({"16", "512"})
+    public int length;
+
+    @Param({"true", "false"})
+    public boolean direct;
+
+    private Charset cs;
+    private StringDecoder decoder;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        cs = Charset.forName(charset);
+        decoder = StringDecoder.createNoCopy(cs);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append("{\"px\":101.25,\"qty\":300}");
+        }
+        byte[] bytes = text.substring(0, length).getBytes(cs);
+        buffer = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        buffer.put(bytes).flip();
+    }
+
+    @Benchmark
+    public String decode() {
+        buffer.rewind();
+        return decoder.decode(buffer, buffer.remaining());
+    }
+
+    @Benchmark
+    public String copyThenDecode() {
+        buffer.rewind();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, cs);
+    }
+}
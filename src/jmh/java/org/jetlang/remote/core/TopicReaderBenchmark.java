@@ -0,0 +1,64 @@
+package org.jetlang.remote.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading topics from a direct read buffer, cycling through a set of distinct topics. Sets larger than the
+ * bounded cache's capacity measure its eviction path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TopicReaderBenchmark {
+
+    @Param({"Default", "Cached", "Bounded"})
+    public String reader;
+
+    @Param({"16", "10000"})
+    public int distinctTopics;
+
+    private TopicReader topicReader;
+    private ByteBuffer[] topics;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Charset ascii = StandardCharsets.US_ASCII;
+        switch (reader) {
+            case "Cached":
+                topicReader = new TopicReader.Cached(ascii);
+                break;
+            case "Bounded":
+                topicReader = new TopicReader.Bounded(ascii);
+                break;
+            default:
+                topicReader = new TopicReader.Default(ascii);
+        }
+        topics = new ByteBuffer[distinctTopics];
+        for (int i = 0; i < distinctTopics; i++) {
+            byte[] bytes = ("prices.NYSE.SYM" + i).getBytes(ascii);
+            topics[i] = ByteBuffer.allocateDirect(bytes.length);
+            topics[i].put(bytes).flip();
+        }
+    }
+
+    @Benchmark
+    public String read() {
+        ByteBuffer topic = topics[next];
+        next = next + 1 == topics.length ? 0 : next + 1;
+        topic.rewind();
+        return topicReader.read(topic, topic.remaining());
+    }
+}
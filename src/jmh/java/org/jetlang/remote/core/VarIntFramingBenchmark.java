@@ -0,0 +1,130 @@
+package org.jetlang.remote.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed 4 byte framing against var-int framing for a mix of small messages and requests, encoded and then decoded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VarIntFramingBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    @Param({"8", "32", "100", "1000"})
+    public int payloadBytes;
+
+    @Param({"false", "true"})
+    public boolean varInts;
+
+    private final Charset ascii = StandardCharsets.US_ASCII;
+    private final ObjectByteWriter<byte[]> writer = new ByteArraySerializer().getWriter();
+    private final byte[] topic = "prices.NYSE.IBM".getBytes(ascii);
+    private final JetlangBuffer buffer = new JetlangBuffer(64 * 1024);
+    private final Counting handler = new Counting();
+    private JetlangRemotingProtocol<byte[]> protocol;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = new byte[payloadBytes];
+        buffer.setVarInts(varInts);
+        protocol = new JetlangRemotingProtocol<>(handler, new ByteArraySerializer().getReader(), new TopicReader.Cached(ascii));
+        protocol.resizeBuffer(MESSAGES * (payloadBytes + 64));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int encodeAndDecode() {
+        buffer.clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            if ((i & 1) == 0) {
+                buffer.appendMsg("prices.NYSE.IBM", topic, payload, writer);
+            } else {
+                buffer.appendRequest(i, topic, ByteBuffer.wrap(payload));
+            }
+        }
+        ByteBuffer encoded = buffer.getBuffer();
+        encoded.flip();
+        ByteBuffer dest = protocol.buffer;
+        dest.clear();
+        dest.put(encoded);
+        dest.flip();
+        JetlangRemotingProtocol.State state = protocol.root;
+        while (dest.remaining() >= state.getRequiredBytes()) {
+            state = state.run();
+        }
+        if (state != protocol.root || dest.hasRemaining()) {
+            throw new IllegalStateException("partial message");
+        }
+        return handler.count;
+    }
+
+    private static class Counting implements JetlangRemotingProtocol.Handler<byte[]> {
+        int count;
+
+        @Override
+        public void onMessage(String dataTopicVal, byte[] readObject) {
+            count++;
+        }
+
+        @Override
+        public void onRequest(int reqId, String dataTopicVal, byte[] readObject) {
+            count++;
+        }
+
+        @Override
+        public void onSubscriptionRequest(String val) {
+        }
+
+        @Override
+        public void onUnsubscribeRequest(String val) {
+        }
+
+        @Override
+        public void onHb() {
+        }
+
+        @Override
+        public void onLogout() {
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+            throw new IllegalStateException("Unknown " + read);
+        }
+
+        @Override
+        public void onRequestReply(int reqId, String dataTopicVal, byte[] readObject) {
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            throw new IllegalStateException(failed);
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+            throw new IllegalStateException(failed);
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.jetlang.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HeaderReader} parsing pipelined keep alive requests from one read, as {@link NioReader} drives it.
+ * Requests are dispatched to a handler that does nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpParseBenchmark {
+
+    private static final int REQUESTS = 100;
+    private static final String REQUEST = "GET /prices?sym=IBM&depth=5 HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64)\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Encoding: gzip, deflate\r\n"
+            + "Connection: keep-alive\r\n"
+            + "\r\n";
+
+    private SocketChannel channel;
+    private ByteBuffer requests;
+    private NioReader.State current;
+    private int dispatched;
+
+    @Setup
+    public void setup() throws IOException {
+        channel = SocketChannel.open();
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < REQUESTS; i++) {
+            all.append(REQUEST);
+        }
+        requests = ByteBuffer.wrap(all.toString().getBytes(StandardCharsets.US_ASCII));
+        HttpRequestHandler<Void> handler = new HttpRequestHandler<Void>() {
+            @Override
+            public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<Void> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<Void> reader, NioWriter writer, Void sessionState) {
+                dispatched++;
+                return reader.start();
+            }
+
+            @Override
+            public void onException(Throwable processingException, SocketChannel channel) {
+                throw new IllegalStateException(processingException);
+            }
+        };
+        HeaderReader<Void> reader = new HeaderReader<>(channel, null, null, handler, SessionFactory.none(),
+                new SessionDispatcherFactory.OnReadThreadDispatcher<>(), new IoBufferPool.Default().createFor(channel, null), WriteWatermarks.NONE);
+        current = reader.start();
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int parse() {
+        requests.rewind();
+        NioReader.State result = current;
+        while (result != null) {
+            result = current.process(requests);
+            if (result != null) {
+                current = result;
+            }
+        }
+        return dispatched;
+    }
+}
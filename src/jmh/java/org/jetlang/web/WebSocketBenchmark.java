@@ -0,0 +1,148 @@
+package org.jetlang.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Websocket frames: {@link WebSocketReader} decoding masked client frames, and the framing and masking done by
+ * {@link NioWriter#sendWsMsg} before the write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WebSocketBenchmark {
+
+    private static final int FRAMES = 100;
+
+    @Param({"16", "1024"})
+    public int payloadBytes;
+
+    private final byte[] mask = {0x12, 0x34, 0x56, 0x78};
+    private SocketChannel channel;
+    private byte[] payload;
+    private ByteBuffer textFrames;
+    private ByteBuffer binaryFrames;
+    private ByteBuffer encoded;
+    private NioReader.State current;
+    private int received;
+
+    @Setup
+    public void setup() throws IOException {
+        channel = SocketChannel.open();
+        StringBuilder text = new StringBuilder();
+        while (text.length() < payloadBytes) {
+            text.append("{\"px\":101.25,\"qty\":300}");
+        }
+        payload = text.substring(0, payloadBytes).getBytes(StandardCharsets.US_ASCII);
+        textFrames = frames(WebSocketConnectionImpl.OPCODE_TEXT);
+        binaryFrames = frames(WebSocketConnectionImpl.OPCODE_BINARY);
+        encoded = ByteBuffer.allocate(NioWriter.wsFrameSize(payload.length, mask));
+
+        NioWriter writer = new NioWriter(new Object(), channel, null, new IoBufferPool.Default().createFor(channel, null));
+        HttpRequest request = new HttpRequest(null);
+        WebSocketHandler<Void, Void> handler = new WebSocketHandler<Void, Void>() {
+            @Override
+            public Void onOpen(WebSocketConnection connection, HttpRequest headers, Void sessionState) {
+                return null;
+            }
+
+            @Override
+            public void onMessage(WebSocketConnection connection, Void state, String msg) {
+                received += msg.length();
+            }
+
+            @Override
+            public void onClose(WebSocketConnection connection, Void state) {
+            }
+
+            @Override
+            public void onError(WebSocketConnection connection, Void state, String msg) {
+                throw new IllegalStateException(msg);
+            }
+
+            @Override
+            public void onException(WebSocketConnection connection, Void state, Exception failed) {
+                throw new IllegalStateException(failed);
+            }
+
+            @Override
+            public void onBinaryMessage(WebSocketConnection connection, Void state, byte[] result, int size) {
+                received += size;
+            }
+
+            @Override
+            public void onUnknownException(Throwable processingException, SocketChannel channel) {
+                throw new IllegalStateException(processingException);
+            }
+        };
+        WebSocketConnectionImpl connection = new WebSocketConnectionImpl(writer, new byte[0], null, request);
+        current = new WebSocketReader<>(connection, request, StandardCharsets.UTF_8, handler, () -> {
+        }, null).start();
+    }
+
+    private ByteBuffer frames(byte opCode) {
+        ByteBuffer frames = ByteBuffer.allocate(FRAMES * NioWriter.wsFrameSize(payload.length, mask));
+        for (int i = 0; i < FRAMES; i++) {
+            NioWriter.putWsFrame(frames, opCode, payload, 0, payload.length, mask);
+        }
+        frames.flip();
+        return frames;
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int decodeText() {
+        return decode(textFrames);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int decodeBinary() {
+        return decode(binaryFrames);
+    }
+
+    private int decode(ByteBuffer frames) {
+        frames.rewind();
+        NioReader.State result = current;
+        while (result != null) {
+            result = current.process(frames);
+            if (result != null) {
+                current = result;
+            }
+        }
+        return received;
+    }
+
+    @Benchmark
+    public int encodeMasked() {
+        encoded.clear();
+        NioWriter.putWsFrame(encoded, WebSocketConnectionImpl.OPCODE_TEXT, payload, 0, payload.length, mask);
+        return encoded.position();
+    }
+
+    @Benchmark
+    public int encodeUnmasked() {
+        encoded.clear();
+        NioWriter.putWsFrame(encoded, WebSocketConnectionImpl.OPCODE_TEXT, payload, 0, payload.length, WebSocketConnectionImpl.empty);
+        return encoded.position();
+    }
+}
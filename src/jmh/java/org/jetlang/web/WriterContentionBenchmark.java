@@ -0,0 +1,143 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads sending to one socket, comparing the locking {@link NioWriter} with {@link MpscNioWriter}. Vary the
+ * senders with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class WriterContentionBenchmark {
+
+    @Param({"locking", "mpsc"})
+    public String writer;
+
+    @Param({"64"})
+    public int messageBytes;
+
+    private NioFiberImpl nioFiber;
+    private ServerSocketChannel server;
+    private SocketChannel channel;
+    private SocketChannel accepted;
+    private Thread drain;
+    private SocketWriter socketWriter;
+
+    @State(Scope.Thread)
+    public static class Message {
+        ByteBuffer bytes;
+
+        @Setup
+        public void setup(WriterContentionBenchmark benchmark) {
+            bytes = ByteBuffer.allocate(benchmark.messageBytes);
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        channel = SocketChannel.open(server.getLocalAddress());
+        accepted = server.accept();
+        channel.configureBlocking(false);
+        CountDownLatch registered = new CountDownLatch(1);
+        nioFiber.execute((controls) -> {
+            controls.addHandler(new Idle(channel));
+            registered.countDown();
+        });
+        registered.await();
+        IoBufferPool.Default pool = new IoBufferPool.Default();
+        socketWriter = writer.equals("mpsc")
+                ? new MpscNioWriter(channel, nioFiber, pool.createFor(channel, nioFiber))
+                : new NioWriter(new Object(), channel, nioFiber, pool.createFor(channel, nioFiber));
+        drain = drain(accepted);
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        channel.close();
+        accepted.close();
+        drain.join();
+        server.close();
+        nioFiber.dispose();
+    }
+
+    @Benchmark
+    public SendResult send(Message msg) {
+        msg.bytes.clear();
+        return socketWriter.send(msg.bytes);
+    }
+
+    private static Thread drain(SocketChannel accepted) {
+        Thread t = new Thread(() -> {
+            byte[] bytes = new byte[64 * 1024];
+            try (InputStream in = accepted.socket().getInputStream()) {
+                while (in.read(bytes) >= 0) {
+                }
+            } catch (IOException closed) {
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static class Idle implements NioChannelHandler {
+        private final SocketChannel channel;
+
+        Idle(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            return Result.Continue;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return 0;
+        }
+
+        @Override
+        public void onEnd() {
+        }
+
+        @Override
+        public void onSelectorEnd() {
+        }
+    }
+}
@@ -4,11 +4,14 @@ import org.jetlang.core.Callback;
 import org.jetlang.core.SynchronousDisposingExecutor;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.metrics.DispatchLatencyFiber;
+import org.jetlang.remote.metrics.Histogram;
 
 public class FiberPerSession<R, W> implements NewSessionHandler<R, W> {
 
     private final NewFiberSessionHandler<R, W> fact;
     private final FiberPerSession.FiberFactory fiberFactory;
+    private Histogram dispatchLatency;
 
     public interface FiberFactory<R, W> {
 
@@ -28,8 +31,16 @@ public class FiberPerSession<R, W> implements NewSessionHandler<R, W> {
         this.fiberFactory = fiberFactory;
     }
 
+    /**
+     * Records the time from each session event being read until it runs on the session's fiber.
+     */
+    public void setDispatchLatency(Histogram dispatchLatency) {
+        this.dispatchLatency = dispatchLatency;
+    }
+
     public void onNewSession(ClientPublisher<W> publisher, JetlangSession<R, W> jetlangSession) {
-        final Fiber fiber = fiberFactory.createForSession(jetlangSession);
+        final Fiber created = fiberFactory.createForSession(jetlangSession);
+        final Fiber fiber = dispatchLatency != null ? new DispatchLatencyFiber(created, dispatchLatency) : created;
 
         fact.onNewSession(publisher, new JetlangFiberSession<R, W>(jetlangSession, fiber));
 
@@ -6,6 +6,10 @@ import org.jetlang.remote.core.CloseableChannel;
 import org.jetlang.remote.core.HeartbeatEvent;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
 public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>, JetlangMessagePublisher<W> {
 
     private final CloseableChannel.Group allChannels = new CloseableChannel.Group();
@@ -16,6 +20,8 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
 
     protected final CloseableChannel<SessionTopic<W>> SubscriptionRequest = newChannel();
     protected final CloseableChannel<String> UnsubscribeRequest = newChannel();
+    protected final CloseableChannel<String> PatternSubscriptionRequest = newChannel();
+    protected final CloseableChannel<String> PatternUnsubscribeRequest = newChannel();
     protected final CloseableChannel<LogoutEvent> Logout = newChannel();
     protected final CloseableChannel<HeartbeatEvent> Heartbeat = newChannel();
     protected final CloseableChannel<SessionMessage<R>> Messages = newChannel();
@@ -24,6 +30,10 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
     protected final CloseableChannel<SessionRequest<R, W>> SessionRequest = newChannel();
 
     protected final Object id;
+    private final Map<Integer, ReplyStream<W>> replyStreams = new HashMap<>();
+    //guarded by replyStreams
+    private int lastRequestId;
+    private boolean awaitingInitialCredit;
 
     public JetlangBaseSession(Object id) {
         this.id = id;
@@ -39,6 +49,10 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
 
     public abstract void onUnsubscribeRequest(String topic);
 
+    public abstract void onPatternSubscriptionRequest(String pattern);
+
+    public abstract void onPatternUnsubscribeRequest(String pattern);
+
     public void onHb() {
         Heartbeat.publish(new HeartbeatEvent());
     }
@@ -49,6 +63,71 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
 
     public abstract void publishIfSubscribed(String topic, final byte[] data);
 
+    public abstract void replyPart(int reqId, String replyTopic, W replyMsg);
+
+    public abstract void replyEnd(int reqId);
+
+    @Override
+    public ReplyStream<W> openReplyStream(int reqId, String replyTopic) {
+        synchronized (replyStreams) {
+            ReplyStream<W> stream = replyStreams.computeIfAbsent(reqId, id -> new ReplyStream<>(id, this));
+            stream.open(replyTopic);
+            //cancelled before it was opened, so it will never be ended
+            if (stream.isClosed()) {
+                replyStreams.remove(reqId);
+            }
+            return stream;
+        }
+    }
+
+    void removeReplyStream(int reqId) {
+        synchronized (replyStreams) {
+            replyStreams.remove(reqId);
+            if (reqId == lastRequestId) {
+                awaitingInitialCredit = false;
+            }
+        }
+    }
+
+    /**
+     * The initial credit is sent right behind its request and can arrive before the stream is opened, so it
+     * creates the stream. Any other credit is only applied to an open stream. Credit for unknown or ended requests
+     * is ignored. A stream cancelled before it is opened is kept, closed, until the open removes it.
+     */
+    public void onReplyCredit(int reqId, int credits) {
+        if (credits > 0) {
+            final ReplyStream<W> stream;
+            synchronized (replyStreams) {
+                if (awaitingInitialCredit && reqId == lastRequestId) {
+                    awaitingInitialCredit = false;
+                    stream = replyStreams.computeIfAbsent(reqId, id -> new ReplyStream<>(id, this));
+                } else {
+                    stream = replyStreams.get(reqId);
+                }
+            }
+            if (stream != null) {
+                stream.grant(credits);
+            }
+        } else {
+            Runnable onCancel = null;
+            synchronized (replyStreams) {
+                final ReplyStream<W> cancelled = replyStreams.get(reqId);
+                if (cancelled != null) {
+                    if (cancelled.isOpened()) {
+                        replyStreams.remove(reqId);
+                    }
+                    onCancel = cancelled.close();
+                }
+                if (reqId == lastRequestId) {
+                    awaitingInitialCredit = false;
+                }
+            }
+            if (onCancel != null) {
+                onCancel.run();
+            }
+        }
+    }
+
     public Subscriber<SessionTopic<W>> getSubscriptionRequestChannel() {
         return SubscriptionRequest;
     }
@@ -81,15 +160,35 @@ public abstract class JetlangBaseSession<R, W> implements JetlangSession<R, W>,
         return UnsubscribeRequest;
     }
 
+    public Subscriber<String> getPatternSubscriptionRequestChannel() {
+        return PatternSubscriptionRequest;
+    }
+
+    public Subscriber<String> getPatternUnsubscribeChannel() {
+        return PatternUnsubscribeRequest;
+    }
+
     public Subscriber<SessionRequest<R, W>> getSessionRequestChannel() {
         return SessionRequest;
     }
 
     public void onRequest(int reqId, String reqmsgTopic, R reqmsg) {
+        synchronized (replyStreams) {
+            lastRequestId = reqId;
+            awaitingInitialCredit = true;
+        }
         SessionRequest.publish(new SessionRequest<R,W>(reqId, reqmsgTopic, reqmsg, this));
     }
 
     public void onClose(SessionCloseEvent sessionCloseEvent) {
+        final ArrayList<ReplyStream<W>> open;
+        synchronized (replyStreams) {
+            open = new ArrayList<>(replyStreams.values());
+            replyStreams.clear();
+        }
+        for (ReplyStream<W> stream : open) {
+            stream.cancel();
+        }
         try {
             SessionClose.publish(sessionCloseEvent);
         } finally {
@@ -174,17 +174,21 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
         final TcpSocket socket = clientTcpSocket.getSocket();
         final Fiber sendFiber = fiberFactory.createSendFiber(socket.getSocket());
         final Serializer<R, W> serializer = ser.createForSocket(socket);
-        final JetlangStreamSession<R, W> session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), new SocketMessageStreamWriter<W>(socket, ser.getCharset(), serializer.getWriter()), sendFiber, errorHandler);
+        final JetlangStreamSession<R, W> session = new JetlangStreamSession<R, W>(socket.getRemoteSocketAddress(), new SocketMessageStreamWriter<W>(socket, ser.getCharset(), serializer.getWriter()), sendFiber, errorHandler, config.getFeatures());
         return new Runnable() {
             @Override
             public void run() {
+                JetlangRemotingProtocol<R> protocol = null;
                 try {
                     ReadTimeoutHandler onReadTimeout = new ReadTimeoutHandler(session);
                     clientTcpSocket.setSession(session);
                     channels.onNewSession(JetlangClientHandler.this, session);
                     session.startHeartbeat(config.getHeartbeatIntervalInMs(), TimeUnit.MILLISECONDS);
                     sendFiber.start();
-                    JetlangRemotingProtocol<R> protocol = new JetlangRemotingProtocol<R>(session, serializer.getReader(), ser.createTopicReader());
+                    protocol = new JetlangRemotingProtocol<R>(session, serializer.getReader(), ser.createTopicReader(), config.getReadBufferPolicy());
+                    if (config.getChunkedMessageHandlers() != null) {
+                        protocol.setChunkedMessages(config.getChunkThresholdBytes(), config.getChunkedMessageHandlers().apply(session));
+                    }
                     JetlangRemotingInputStream state = new JetlangRemotingInputStream(socket.getInputStream(), protocol, onReadTimeout);
                     while (state.readFromStream()) {
 
@@ -194,6 +198,9 @@ public class JetlangClientHandler<R, W> implements Acceptor.ClientHandler, Clien
                 } catch (Exception clientFailure) {
                     errorHandler.onException(clientFailure);
                 } finally {
+                    if (protocol != null) {
+                        protocol.releaseBuffer();
+                    }
                     sendFiber.dispose();
                     stopAndRemove(clientTcpSocket);
                     session.onClose(new SessionCloseEvent());
@@ -59,6 +59,14 @@ public class JetlangFiberSession<R, W> implements JetlangSession<R, W> {
         return session.getUnsubscribeChannel();
     }
 
+    public Subscriber<String> getPatternSubscriptionRequestChannel() {
+        return session.getPatternSubscriptionRequestChannel();
+    }
+
+    public Subscriber<String> getPatternUnsubscribeChannel() {
+        return session.getPatternUnsubscribeChannel();
+    }
+
     public Subscriber<LogoutEvent> getLogoutChannel() {
         return session.getLogoutChannel();
     }
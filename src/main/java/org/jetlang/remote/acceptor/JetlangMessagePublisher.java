@@ -4,4 +4,6 @@ public interface JetlangMessagePublisher<T> {
     void publish(String topic, T msg);
 
     void reply(int reqId, String reqmsgTopic, T replyMsg);
+
+    ReplyStream<T> openReplyStream(int reqId, String replyTopic);
 }
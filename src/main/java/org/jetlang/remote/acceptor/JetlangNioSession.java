@@ -1,10 +1,15 @@
 package org.jetlang.remote.acceptor;
 
+import org.jetlang.channels.Subscriber;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.remote.client.SendBuffer;
+import org.jetlang.remote.core.CloseableChannel;
 import org.jetlang.remote.core.MsgTypes;
-import org.jetlang.web.NioWriter;
+import org.jetlang.remote.core.ProtocolFeatures;
+import org.jetlang.remote.core.TopicTrie;
 import org.jetlang.web.SendResult;
+import org.jetlang.web.SocketWriter;
+import org.jetlang.web.WritabilityEvent;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -14,6 +19,9 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
     private final NioJetlangSendFiber.ChannelState channel;
     private final NioJetlangSendFiber<W> sendFiber;
     private final ErrorHandler<R> errorHandler;
+    private final int features;
+    private volatile int agreedFeatures;
+    private final CloseableChannel<WritabilityEvent> Writability = newChannel();
 
     public interface ErrorHandler<T> {
 
@@ -29,20 +37,47 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
     }
 
     public JetlangNioSession(NioFiber fiber, NioJetlangSendFiber<W> sendFiber, NioJetlangRemotingClientFactory.Id id, ErrorHandler<R> errorHandler,
-                             NioWriter writer) {
+                             SocketWriter writer) {
+        this(fiber, sendFiber, id, errorHandler, writer, ProtocolFeatures.All);
+    }
+
+    public JetlangNioSession(NioFiber fiber, NioJetlangSendFiber<W> sendFiber, NioJetlangRemotingClientFactory.Id id, ErrorHandler<R> errorHandler,
+                             SocketWriter writer, int features) {
         super(id);
         this.errorHandler = errorHandler;
+        this.features = features;
         this.channel = new NioJetlangSendFiber.ChannelState(writer, id, fiber);
+        writer.setWritabilityListener(event -> {
+            Writability.publish(event);
+            if (event.isWritable()) {
+                sendFiber.onWritable(channel);
+            }
+        });
         this.sendFiber = sendFiber;
         this.sendFiber.onNewSession(this.channel);
     }
 
-    NioWriter getWriter(){
+    SocketWriter getWriter(){
         return channel.channel;
     }
 
     public SendResult send(SendBuffer buffer){
-        return getWriter().send(buffer.getBuffer());
+        return buffer.sendTo(getWriter());
+    }
+
+    /**
+     * @return false while the socket is above its high watermark. Published messages are not sent to the session
+     * until it is writable again.
+     */
+    public boolean isWritable() {
+        return channel.channel.isWritable();
+    }
+
+    /**
+     * Events are published with the writer's lock held, on the sending thread or the read fiber.
+     */
+    public Subscriber<WritabilityEvent> getWritabilityChannel() {
+        return Writability;
     }
 
     @Override
@@ -60,6 +95,26 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
         errorHandler.onClientDisconnect(ioException);
     }
 
+    /**
+     * Sends published messages with topic aliases. Only enable if the client supports aliases.
+     */
+    public void enableTopicAliases() {
+        sendFiber.enableTopicAliases(channel);
+    }
+
+    @Override
+    public void onHandshake(int version, int requested) {
+        agreedFeatures = requested & features;
+        sendFiber.handshake(channel, agreedFeatures);
+    }
+
+    /**
+     * @return true if the client agreed to the {@link ProtocolFeatures} feature in its handshake
+     */
+    public boolean isFeatureEnabled(int feature) {
+        return ProtocolFeatures.isEnabled(agreedFeatures, feature);
+    }
+
     public void sendHb() {
         sendFiber.sendIntAsByte(channel, MsgTypes.Heartbeat);
     }
@@ -82,6 +137,19 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
         sendFiber.onUnsubscribeRequest(topic, channel);
     }
 
+    @Override
+    public void onPatternSubscriptionRequest(String pattern) {
+        TopicTrie.validate(pattern);
+        sendFiber.onPatternSubscriptionRequest(pattern, channel);
+        PatternSubscriptionRequest.publish(pattern);
+    }
+
+    @Override
+    public void onPatternUnsubscribeRequest(String pattern) {
+        PatternUnsubscribeRequest.publish(pattern);
+        sendFiber.onPatternUnsubscribeRequest(pattern, channel);
+    }
+
     @Override
     public void publish(String topic, W msg) {
         sendFiber.publish(channel, topic, msg);
@@ -102,6 +170,16 @@ public class JetlangNioSession<R, W> extends JetlangBaseSession<R, W> implements
         sendFiber.reply(channel, reqId, replyTopic, replyMsg);
     }
 
+    @Override
+    public void replyPart(int reqId, String replyTopic, W replyMsg) {
+        sendFiber.replyPart(channel, reqId, replyTopic, replyMsg);
+    }
+
+    @Override
+    public void replyEnd(int reqId) {
+        sendFiber.replyEnd(channel, reqId);
+    }
+
     @Override
     public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
         errorHandler.onUnhandledReplyMsg(reqId, dataTopicVal, readObject);
@@ -17,6 +17,13 @@ public interface JetlangSession<R, W> {
 
     Subscriber<String> getUnsubscribeChannel();
 
+    /**
+     * Patterns the client subscribed to. See {@link org.jetlang.remote.core.TopicTrie} for the syntax.
+     */
+    Subscriber<String> getPatternSubscriptionRequestChannel();
+
+    Subscriber<String> getPatternUnsubscribeChannel();
+
     Subscriber<LogoutEvent> getLogoutChannel();
 
     Subscriber<HeartbeatEvent> getHeartbeatChannel();
@@ -1,5 +1,13 @@
 package org.jetlang.remote.acceptor;
 
+import org.jetlang.remote.core.ChunkedMessageHandler;
+import org.jetlang.remote.core.ProtocolFeatures;
+import org.jetlang.remote.core.ReadBufferPolicy;
+import org.jetlang.remote.metrics.MetricsRegistry;
+import org.jetlang.web.WriteWatermarks;
+
+import java.util.function.Function;
+
 public class JetlangSessionConfig {
 
     private int hbIntervalInMs = 2000;
@@ -7,6 +15,14 @@ public class JetlangSessionConfig {
     private int receiveBufferSize = 1024 * 512;
     private int sendBufferSize = 1024 * 512;
     private int readTimeoutInMs = 3000;
+    private boolean topicAliases = false;
+    private int features = ProtocolFeatures.All;
+    private WriteWatermarks writeWatermarks = WriteWatermarks.NONE;
+    private boolean lockFreeWriter = false;
+    private ReadBufferPolicy readBufferPolicy = ReadBufferPolicy.DEFAULT;
+    private int chunkThresholdBytes;
+    private Function<JetlangSession<?, ?>, ChunkedMessageHandler> chunkedMessageHandlers;
+    private MetricsRegistry metrics;
 
     public void setHeartbeatIntervalInMs(int ms) {
         this.hbIntervalInMs = ms;
@@ -47,4 +63,90 @@ public class JetlangSessionConfig {
     public void setReadTimeoutInMs(int readTimeoutInMs) {
         this.readTimeoutInMs = readTimeoutInMs;
     }
+
+    public boolean getTopicAliases() {
+        return topicAliases;
+    }
+
+    /**
+     * When enabled, messages published to nio sessions are sent with topic aliases rather than the full topic.
+     * Clients must support {@link org.jetlang.remote.core.MsgTypes#TopicAlias}.
+     */
+    public void setTopicAliases(boolean topicAliases) {
+        this.topicAliases = topicAliases;
+    }
+
+    public int getFeatures() {
+        return features;
+    }
+
+    /**
+     * {@link ProtocolFeatures} bits the acceptor agrees to when a client requests them in a handshake.
+     */
+    public void setFeatures(int features) {
+        this.features = features;
+    }
+
+    public WriteWatermarks getWriteWatermarks() {
+        return writeWatermarks;
+    }
+
+    /**
+     * Limits the bytes buffered for each nio session whose socket isn't draining. Unlimited by default.
+     */
+    public void setWriteWatermarks(WriteWatermarks writeWatermarks) {
+        this.writeWatermarks = writeWatermarks;
+    }
+
+    public boolean getLockFreeWriter() {
+        return lockFreeWriter;
+    }
+
+    /**
+     * When enabled, nio sessions write with a {@link org.jetlang.web.MpscNioWriter}, which suits sessions sent to
+     * from many threads at once.
+     */
+    public void setLockFreeWriter(boolean lockFreeWriter) {
+        this.lockFreeWriter = lockFreeWriter;
+    }
+
+    public ReadBufferPolicy getReadBufferPolicy() {
+        return readBufferPolicy;
+    }
+
+    /**
+     * Sizes the buffer each session reads into. Share one policy with a pool to reuse read buffers across sessions.
+     */
+    public void setReadBufferPolicy(ReadBufferPolicy readBufferPolicy) {
+        this.readBufferPolicy = readBufferPolicy;
+    }
+
+    public int getChunkThresholdBytes() {
+        return chunkThresholdBytes;
+    }
+
+    public Function<JetlangSession<?, ?>, ChunkedMessageHandler> getChunkedMessageHandlers() {
+        return chunkedMessageHandlers;
+    }
+
+    /**
+     * Data messages larger than the threshold are passed in chunks, as they are read, to a handler created for each
+     * session instead of being buffered whole and deserialized.
+     */
+    public void setChunkedMessages(int thresholdBytes, Function<JetlangSession<?, ?>, ChunkedMessageHandler> handlers) {
+        this.chunkThresholdBytes = thresholdBytes;
+        this.chunkedMessageHandlers = handlers;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Nio sessions report bytes and messages read and written, and their send fibers report queue depth, to the
+     * registry. Null, the default, to disable.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
 }
@@ -5,6 +5,8 @@ import org.jetlang.fibers.Fiber;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.MsgTypes;
+import org.jetlang.remote.core.ProtocolFeatures;
+import org.jetlang.remote.core.TopicTrie;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -19,7 +21,9 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
     private final MessageStreamWriter<W> socket;
     private final Fiber sendFiber;
     private final ErrorHandler errorHandler;
+    private final int features;
     private final Set<String> subscriptions = Collections.synchronizedSet(new HashSet<String>());
+    private final TopicTrie<String> patterns = new TopicTrie<>();
     private volatile boolean loggedOut;
 
     private volatile Runnable hbStopper = new Runnable() {
@@ -29,7 +33,12 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
     };
 
     public JetlangStreamSession(Object id, MessageStreamWriter<W> socket, Fiber sendFiber, ErrorHandler errorHandler) {
+        this(id, socket, sendFiber, errorHandler, ProtocolFeatures.All);
+    }
+
+    public JetlangStreamSession(Object id, MessageStreamWriter<W> socket, Fiber sendFiber, ErrorHandler errorHandler, int features) {
         super(id);
+        this.features = features;
         this.socket = socket;
         this.sendFiber = sendFiber;
         this.errorHandler = errorHandler;
@@ -74,6 +83,32 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         UnsubscribeRequest.publish(top);
     }
 
+    @Override
+    public void onPatternSubscriptionRequest(String pattern) {
+        TopicTrie.validate(pattern);
+        synchronized (patterns) {
+            patterns.add(pattern, pattern);
+        }
+        PatternSubscriptionRequest.publish(pattern);
+    }
+
+    @Override
+    public void onPatternUnsubscribeRequest(String pattern) {
+        synchronized (patterns) {
+            patterns.remove(pattern, pattern);
+        }
+        PatternUnsubscribeRequest.publish(pattern);
+    }
+
+    private boolean isSubscribed(String topic) {
+        if (subscriptions.contains(topic)) {
+            return true;
+        }
+        synchronized (patterns) {
+            return patterns.anyMatch(topic);
+        }
+    }
+
     private void write(final int byteToWrite) {
         Runnable r = new Runnable() {
             @Override
@@ -108,6 +143,24 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         hbStopper.run();
     }
 
+    @Override
+    public void onHandshake(int version, int requested) {
+        final int agreed = requested & features;
+        sendFiber.execute(() -> {
+            try {
+                if (ProtocolFeatures.isEnabled(agreed, ProtocolFeatures.TopicAliases)) {
+                    socket.enableTopicAliases();
+                }
+                if (ProtocolFeatures.isEnabled(agreed, ProtocolFeatures.VarInts)) {
+                    socket.enableVarInts();
+                }
+                socket.writeHandshake(ProtocolFeatures.VERSION, agreed);
+            } catch (IOException e) {
+                handleDisconnect(e);
+            }
+        });
+    }
+
     @Override
     public void onUnknownMessage(int read) {
         errorHandler.onException(new RuntimeException("Unknown message type " + read + " from " + getSessionId()));
@@ -133,7 +186,7 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         Runnable r = new Runnable() {
             @Override
             public void run() {
-                if (subscriptions.contains(topic)) {
+                if (isSubscribed(topic)) {
                     try {
                         socket.write(topic, msg);
                     } catch (IOException e) {
@@ -183,6 +236,28 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
         sendFiber.execute(replyRunner);
     }
 
+    @Override
+    public void replyPart(final int reqId, final String replyTopic, final W replyMsg) {
+        sendFiber.execute(() -> {
+            try {
+                socket.writeReplyPart(reqId, replyTopic, replyMsg);
+            } catch (IOException e) {
+                handleDisconnect(e);
+            }
+        });
+    }
+
+    @Override
+    public void replyEnd(final int reqId) {
+        sendFiber.execute(() -> {
+            try {
+                socket.writeReplyEnd(reqId);
+            } catch (IOException e) {
+                handleDisconnect(e);
+            }
+        });
+    }
+
     @Override
     public void onRequestReply(int reqId, String dataTopicVal, Object readObject) {
         errorHandler.onException(new RuntimeException("Reply is not supported: " + dataTopicVal + " msg: " + readObject));
@@ -190,7 +265,7 @@ public class JetlangStreamSession<R, W> extends JetlangBaseSession<R, W> impleme
 
     @Override
     public void publishIfSubscribed(String topic, final byte[] data) {
-        if (subscriptions.contains(topic)) {
+        if (isSubscribed(topic)) {
             Runnable r = new Runnable() {
                 @Override
                 public void run() {
@@ -1,9 +1,12 @@
 package org.jetlang.remote.acceptor;
 
 import org.jetlang.remote.core.JetlangBuffer;
+import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.remote.core.TopicAliases;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -29,17 +32,69 @@ public interface MessageStreamWriter<T> {
 
     void writeSubscription(int msgType, String subject, Charset charset) throws IOException;
 
+    void writeReplyPart(int reqId, String reqTopic, T replyMsg) throws IOException;
+
+    void writeReplyEnd(int reqId) throws IOException;
+
+    /**
+     * Writes sizes and request ids as varints from now on. Writers that don't support varints may ignore this.
+     */
+    default void enableVarInts() {
+    }
+
+    /**
+     * Sends published topics as aliases from now on. Writers that don't support aliases may ignore this.
+     */
+    default void enableTopicAliases() {
+    }
+
+    default void writeHandshake(int version, int features) throws IOException {
+        byte[] bytes = new byte[9];
+        ByteBuffer.wrap(bytes).put((byte) MsgTypes.Handshake).putInt(version).putInt(features);
+        writeBytes(bytes);
+    }
+
     class NioChannel<T> implements MessageStreamWriter<T>{
         private final SocketChannel channel;
         private final Charset charset;
         private final ObjectByteWriter<T> writer;
         private final JetlangBuffer buffer = new JetlangBuffer(128);
         private final AtomicBoolean closed = new AtomicBoolean(false);
+        private TopicAliases aliases;
+        private TopicAliases.Bindings bindings;
 
         public NioChannel(SocketChannel socket, Charset charset, ObjectByteWriter<T> writer) {
+            this(socket, charset, writer, false);
+        }
+
+        public NioChannel(SocketChannel socket, Charset charset, ObjectByteWriter<T> writer, boolean topicAliases) {
             this.channel = socket;
             this.charset = charset;
             this.writer = writer;
+            this.aliases = topicAliases ? new TopicAliases(charset) : null;
+            this.bindings = topicAliases ? new TopicAliases.Bindings() : null;
+        }
+
+        /**
+         * Must be called from the thread that writes to the channel.
+         */
+        @Override
+        public void enableTopicAliases() {
+            if (aliases == null) {
+                aliases = new TopicAliases(charset);
+                bindings = new TopicAliases.Bindings();
+            }
+        }
+
+        @Override
+        public void enableVarInts() {
+            buffer.setVarInts(true);
+        }
+
+        @Override
+        public void writeHandshake(int version, int features) throws IOException {
+            buffer.appendHandshake(version, features);
+            flush();
         }
 
         @Override
@@ -56,7 +111,11 @@ public interface MessageStreamWriter<T> {
 
         @Override
         public void write(String topic, T msg) throws IOException {
-            buffer.appendMsg(topic, msg, writer, charset);
+            if (aliases != null) {
+                buffer.appendMsg(topic, msg, writer, charset, aliases, bindings);
+            } else {
+                buffer.appendMsg(topic, msg, writer, charset);
+            }
             flush();
         }
 
@@ -96,6 +155,18 @@ public interface MessageStreamWriter<T> {
             buffer.appendSubscription(subject, msgType, charset);
             flush();
         }
+
+        @Override
+        public void writeReplyPart(int reqId, String reqTopic, T replyMsg) throws IOException {
+            buffer.appendReplyPart(reqId, reqTopic, replyMsg, writer, charset);
+            flush();
+        }
+
+        @Override
+        public void writeReplyEnd(int reqId) throws IOException {
+            buffer.appendReplyEnd(reqId);
+            flush();
+        }
     }
 
 }
@@ -3,10 +3,13 @@ package org.jetlang.remote.acceptor;
 import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.core.ChunkedMessageHandler;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.ObjectByteReader;
+import org.jetlang.remote.core.ReadBufferPolicy;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.metrics.ReadMetrics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -22,10 +25,14 @@ public class NioJetlangChannelHandler<T> implements NioChannelHandler {
     private final Runnable onEnd;
 
     public NioJetlangChannelHandler(SocketChannel accept, JetlangMessageHandler<T> session, ObjectByteReader<T> reader, Runnable onEnd, TopicReader charset) {
+        this(accept, session, reader, onEnd, charset, ReadBufferPolicy.DEFAULT);
+    }
+
+    public NioJetlangChannelHandler(SocketChannel accept, JetlangMessageHandler<T> session, ObjectByteReader<T> reader, Runnable onEnd, TopicReader charset, ReadBufferPolicy bufferPolicy) {
         this.onEnd = onEnd;
         this.protocol = new NioJetlangProtocolReader<T>(accept, session, reader, charset, ()->{
             session.onReadTimeout(new ReadTimeoutEvent());
-        });
+        }, bufferPolicy);
         this.accept = accept;
     }
 
@@ -55,6 +62,7 @@ public class NioJetlangChannelHandler<T> implements NioChannelHandler {
         try {
             onEnd.run();
             this.accept.close();
+            protocol.onClosed();
         } catch (IOException var2) {
             throw new RuntimeException(var2);
         }
@@ -65,6 +73,14 @@ public class NioJetlangChannelHandler<T> implements NioChannelHandler {
         onEnd();
     }
 
+    public void setMetrics(ReadMetrics metrics) {
+        protocol.setMetrics(metrics);
+    }
+
+    public void setChunkedMessages(int thresholdBytes, ChunkedMessageHandler handler) {
+        protocol.setChunkedMessages(thresholdBytes, handler);
+    }
+
     public void checkForReadTimeout(int readTimeoutInMs) {
         protocol.checkForReadTimeout(readTimeoutInMs);
     }
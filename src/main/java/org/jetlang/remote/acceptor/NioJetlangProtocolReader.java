@@ -3,10 +3,13 @@ package org.jetlang.remote.acceptor;
 import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.core.ChunkedMessageHandler;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.ObjectByteReader;
+import org.jetlang.remote.core.ReadBufferPolicy;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.metrics.ReadMetrics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -22,10 +25,16 @@ public class NioJetlangProtocolReader<T> {
     private final JetlangRemotingProtocol.Handler<T> session;
     private JetlangRemotingProtocol.State nextCommand;
     private long lastReadMs = System.currentTimeMillis();
+    private ReadMetrics metrics;
+    private long bytesRead;
 
     public NioJetlangProtocolReader(SocketChannel accept, JetlangRemotingProtocol.Handler<T> session, ObjectByteReader<T> reader, TopicReader charset, Runnable onActivityTimeout) {
+        this(accept, session, reader, charset, onActivityTimeout, ReadBufferPolicy.DEFAULT);
+    }
+
+    public NioJetlangProtocolReader(SocketChannel accept, JetlangRemotingProtocol.Handler<T> session, ObjectByteReader<T> reader, TopicReader charset, Runnable onActivityTimeout, ReadBufferPolicy bufferPolicy) {
         this.onActivityTimeout = onActivityTimeout;
-        this.protocol = new JetlangRemotingProtocol<T>(session, reader, charset);
+        this.protocol = new JetlangRemotingProtocol<T>(session, reader, charset, bufferPolicy);
         this.accept = accept;
         this.nextCommand = protocol.root;
         this.session = session;
@@ -43,14 +52,16 @@ public class NioJetlangProtocolReader<T> {
                     case 0:
                         return true;
                     default:
+                        bytesRead += read;
+                        if (metrics != null) {
+                            metrics.bytes.add(read);
+                        }
                         buffer.flip();
                         while (buffer.remaining() >= nextCommand.getRequiredBytes()) {
                             nextCommand = nextCommand.run();
                         }
                         buffer.compact();
-                        if (nextCommand.getRequiredBytes() > buffer.capacity()) {
-                            protocol.resizeBuffer(nextCommand.getRequiredBytes());
-                        }
+                        protocol.afterRead(nextCommand.getRequiredBytes());
                         lastReadMs = System.currentTimeMillis();
                 }
             }
@@ -59,6 +70,30 @@ public class NioJetlangProtocolReader<T> {
             return false;
         }
     }
+
+    public void setMetrics(ReadMetrics metrics) {
+        this.metrics = metrics;
+        protocol.setMetrics(metrics);
+    }
+
+    /**
+     * @return bytes read from this connection
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setChunkedMessages(int thresholdBytes, ChunkedMessageHandler handler) {
+        protocol.setChunkedMessages(thresholdBytes, handler);
+    }
+
+    /**
+     * Returns the read buffer once the channel is closed.
+     */
+    public void onClosed() {
+        protocol.releaseBuffer();
+    }
+
     public void checkForReadTimeout(int readTimeoutInMs) {
         if (System.currentTimeMillis() - lastReadMs > readTimeoutInMs) {
             lastReadMs = System.currentTimeMillis();
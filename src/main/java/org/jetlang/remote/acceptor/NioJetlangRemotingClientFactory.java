@@ -5,8 +5,12 @@ import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.metrics.ReadMetrics;
+import org.jetlang.remote.metrics.WriteMetrics;
 import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.MpscNioWriter;
 import org.jetlang.web.NioWriter;
+import org.jetlang.web.SocketWriter;
 
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -14,6 +18,7 @@ import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler.ClientFactory {
@@ -21,9 +26,11 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
     private final Serializer<R, W> serializer;
     private final JetlangSessionConfig config;
     private final Handler<R, W> handler;
-    private final NioJetlangSendFiber<W> sendFiber;
+    private final ShardedNioJetlangSendFiber<W> sendFibers;
     private final TopicReader charset;
     private final IoBufferPool.Default ioBufferPool;
+    private final ReadMetrics readMetrics;
+    private final WriteMetrics writeMetrics;
 
     public interface Handler<R, W> {
         void onNewSession(JetlangNioSession<R, W> session);
@@ -46,12 +53,27 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
     }
 
     public NioJetlangRemotingClientFactory(Serializer<R, W> serializer, JetlangSessionConfig config, Handler<R, W> handler, NioJetlangSendFiber<W> sendFiber, TopicReader charset) {
+        this(serializer, config, handler, new ShardedNioJetlangSendFiber<>(Collections.singletonList(sendFiber)), charset);
+    }
+
+    /**
+     * Each accepted session is sent to from one of the shards.
+     */
+    public NioJetlangRemotingClientFactory(Serializer<R, W> serializer, JetlangSessionConfig config, Handler<R, W> handler, ShardedNioJetlangSendFiber<W> sendFibers, TopicReader charset) {
         this.serializer = serializer;
         this.config = config;
         this.handler = handler;
-        this.sendFiber = sendFiber;
+        this.sendFibers = sendFibers;
         this.charset = charset;
         this.ioBufferPool = new IoBufferPool.Default();
+        if (config.getMetrics() != null) {
+            this.readMetrics = new ReadMetrics(config.getMetrics(), "jetlang_acceptor");
+            this.writeMetrics = new WriteMetrics(config.getMetrics(), "jetlang_acceptor");
+            sendFibers.setMetrics(config.getMetrics());
+        } else {
+            this.readMetrics = null;
+            this.writeMetrics = null;
+        }
     }
 
     @Override
@@ -67,8 +89,12 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
             throw new RuntimeException(e);
         }
         Hb hb = new Hb();
-        NioWriter writer = new NioWriter(new Object(), channel, fiber, ioBufferPool.createFor(channel, fiber));
-        final JetlangNioSession<R, W> session = new JetlangNioSession<R, W>(fiber, sendFiber, new Id(channel), new JetlangNioSession.ErrorHandler<R>() {
+        SocketWriter writer = config.getLockFreeWriter()
+                ? new MpscNioWriter(channel, fiber, ioBufferPool.createFor(channel, fiber))
+                : new NioWriter(new Object(), channel, fiber, ioBufferPool.createFor(channel, fiber));
+        writer.setWatermarks(config.getWriteWatermarks());
+        writer.setMetrics(writeMetrics);
+        final JetlangNioSession<R, W> session = new JetlangNioSession<R, W>(fiber, sendFibers.nextShard(), new Id(channel), new JetlangNioSession.ErrorHandler<R>() {
             @Override
             public void onUnhandledReplyMsg(int reqId, String dataTopicVal, R readObject) {
                 handler.onUnhandledReplyMsg(key, channel, dataTopicVal, readObject);
@@ -93,12 +119,19 @@ public class NioJetlangRemotingClientFactory<R, W> implements NioAcceptorHandler
             public void onClientDisconnect(IOException ioException) {
                 handler.onClientDisconnect(ioException);
             }
-        }, writer);
+        }, writer, config.getFeatures());
+        if (config.getTopicAliases()) {
+            session.enableTopicAliases();
+        }
         Runnable onClose = () -> {
             hb.onClose();
             session.onClose(new SessionCloseEvent());
         };
-        final NioJetlangChannelHandler<R> handler = new NioJetlangChannelHandler<R>(channel, session, serializer.getReader(), onClose, charset);
+        final NioJetlangChannelHandler<R> handler = new NioJetlangChannelHandler<R>(channel, session, serializer.getReader(), onClose, charset, config.getReadBufferPolicy());
+        handler.setMetrics(readMetrics);
+        if (config.getChunkedMessageHandlers() != null) {
+            handler.setChunkedMessages(config.getChunkThresholdBytes(), config.getChunkedMessageHandlers().apply(session));
+        }
         this.handler.onNewSession(session);
         hb.startHb(fiber, session, handler, config);
         controls.addHandler(handler);
@@ -4,52 +4,257 @@ import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.remote.core.BufferChunkPool;
 import org.jetlang.remote.core.JetlangBuffer;
 import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ObjectByteWriter;
-import org.jetlang.web.NioWriter;
+import org.jetlang.remote.core.ProtocolFeatures;
+import org.jetlang.remote.core.TopicAliases;
+import org.jetlang.remote.core.TopicTrie;
+import org.jetlang.remote.core.WriteCoalescer;
+import org.jetlang.remote.metrics.Counter;
+import org.jetlang.remote.metrics.Histogram;
+import org.jetlang.remote.metrics.MetricsRegistry;
+import org.jetlang.web.SendResult;
+import org.jetlang.web.SocketWriter;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class NioJetlangSendFiber<T> {
 
     private final Fiber sendFiber;
     private final Buffer<T> buffer;
-    private final List<ChannelState> sessions = new ArrayList<>();
+    private final Set<ChannelState> sessions = new HashSet<>();
+    //exact topic subscriptions of all sessions, so a publish only visits the sessions subscribed to the topic
+    private final Map<String, Set<ChannelState>> subscribers = new HashMap<>();
+    //start and end of each encoding of the message being published. indexed by ChannelState.encoding
+    private final int[] encodedStart = new int[4];
+    private final int[] encodedEnd = new int[4];
+    private Predicate<String> conflatedTopics = topic -> false;
+    //pattern subscriptions of all sessions
+    private final TopicTrie<ChannelState> patterns = new TopicTrie<>();
+    //sessions subscribed to the topic being published. a session is added once per publish, marked with its epoch
+    private final List<ChannelState> targets = new ArrayList<>();
+    private long publishEpoch;
+    private final Consumer<ChannelState> addTarget = this::addTarget;
+    private Counter queueDepth;
+    private Counter sessionCount;
+    private Histogram publishLatency;
 
     public NioJetlangSendFiber(Fiber sendFiber, ObjectByteWriter<T> objectByteWriter, Charset charset) {
+        this(sendFiber, objectByteWriter, charset, new JetlangBuffer(1024));
+    }
+
+    /**
+     * Encodes into chunks from the pool and sends with gathering writes, so large publishes aren't copied
+     * into an ever larger buffer.
+     */
+    public NioJetlangSendFiber(Fiber sendFiber, ObjectByteWriter<T> objectByteWriter, Charset charset, BufferChunkPool pool) {
+        this(sendFiber, objectByteWriter, charset, new JetlangBuffer(pool));
+    }
+
+    private NioJetlangSendFiber(Fiber sendFiber, ObjectByteWriter<T> objectByteWriter, Charset charset, JetlangBuffer buffer) {
         this.sendFiber = sendFiber;
-        this.buffer = new Buffer<>(objectByteWriter, charset);
+        this.buffer = new Buffer<>(objectByteWriter, charset, buffer);
     }
 
     public Fiber getFiber() {
         return sendFiber;
     }
 
+    /**
+     * Reports the tasks waiting on the send fiber, the sessions and the messages written. Must be called before the
+     * fiber is used. Shards sharing a registry report their totals.
+     */
+    public void setMetrics(MetricsRegistry registry) {
+        this.queueDepth = registry.upDownCounter("jetlang_send_queue_depth");
+        this.sessionCount = registry.upDownCounter("jetlang_send_sessions");
+        this.buffer.messagesWritten = registry.counter("jetlang_send_messages");
+    }
+
+    /**
+     * Records the nanos from each publish until it is written to the sockets of the subscribed sessions. Must be
+     * called before the fiber is used.
+     */
+    public void setPublishLatency(Histogram publishLatency) {
+        this.publishLatency = publishLatency;
+    }
+
+    private long startNanos() {
+        return publishLatency != null ? System.nanoTime() : 0;
+    }
+
+    private void recordPublish(long startNanos) {
+        if (publishLatency != null) {
+            publishLatency.recordNanosSince(startNanos);
+        }
+    }
+
+    private void execute(Runnable task) {
+        final Counter queueDepth = this.queueDepth;
+        if (queueDepth == null) {
+            sendFiber.execute(task);
+        } else {
+            queueDepth.inc();
+            sendFiber.execute(new Queued(task, queueDepth));
+        }
+    }
+
+    private static class Queued implements Runnable {
+        private final Runnable task;
+        private final Counter queueDepth;
+
+        Queued(Runnable task, Counter queueDepth) {
+            this.task = task;
+            this.queueDepth = queueDepth;
+        }
+
+        @Override
+        public void run() {
+            queueDepth.dec();
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
     public void onNewSession(ChannelState channel) {
-        sendFiber.execute(() -> sessions.add(channel));
+        execute(() -> {
+            if (sessions.add(channel) && sessionCount != null) {
+                sessionCount.inc();
+            }
+        });
+    }
+
+    /**
+     * Messages published on these topics to a session that is above its high watermark are conflated. Only the
+     * latest value per topic is kept and it is sent once the session is writable again, so a lagging client
+     * catches up immediately rather than receiving a stale backlog. Other topics are written as usual and left to
+     * the session's {@link org.jetlang.web.SlowConsumerPolicy}.
+     */
+    public void setConflatedTopics(Predicate<String> conflatedTopics) {
+        execute(() -> this.conflatedTopics = conflatedTopics);
+    }
+
+    /**
+     * Opt in to smart batching. Everything written to a session while the send fiber drains its queue is sent
+     * with one write at the end of the drain, or sooner once the session has the threshold of bytes pending.
+     *
+     * @param flushThresholdBytes not positive to write every message immediately, which is the default
+     */
+    public void setWriteCoalescing(int flushThresholdBytes) {
+        execute(() -> {
+            if (buffer.coalescer != null) {
+                buffer.coalescer.flushAll();
+            }
+            buffer.coalescer = flushThresholdBytes > 0 ? new WriteCoalescer(sendFiber, flushThresholdBytes) : null;
+        });
+    }
+
+    /**
+     * Called when the session's writer drains to its low watermark.
+     */
+    void onWritable(ChannelState sc) {
+        execute(() -> flushConflated(sc));
+    }
+
+    private void flushConflated(ChannelState sc) {
+        if (sc.conflated == null) {
+            return;
+        }
+        final Iterator<Map.Entry<String, Object>> pending = sc.conflated.entrySet().iterator();
+        while (pending.hasNext() && sc.channel.isWritable()) {
+            final Map.Entry<String, Object> latest = pending.next();
+            pending.remove();
+            if (isSubscribed(sc, latest.getKey())) {
+                //only values published through this fiber are conflated
+                @SuppressWarnings("unchecked")
+                final T value = (T) latest.getValue();
+                buffer.write(latest.getKey(), value, sc);
+            }
+        }
+    }
+
+    /**
+     * @return the sessions subscribed to the topic exactly or by pattern. Valid until the next call.
+     */
+    private List<ChannelState> subscribersOf(String topic) {
+        targets.clear();
+        publishEpoch++;
+        final Set<ChannelState> exact = subscribers.get(topic);
+        if (exact != null) {
+            for (ChannelState sc : exact) {
+                addTarget(sc);
+            }
+        }
+        patterns.forEachMatch(topic, addTarget);
+        return targets;
+    }
+
+    private void addTarget(ChannelState sc) {
+        if (sc.publishEpoch != publishEpoch) {
+            sc.publishEpoch = publishEpoch;
+            targets.add(sc);
+        }
+    }
+
+    private static boolean isSubscribed(ChannelState sc, String topic) {
+        if (sc.subscriptions.contains(topic)) {
+            return true;
+        }
+        return sc.patterns != null && sc.patterns.anyMatch(topic);
+    }
+
+    /**
+     * @return false if the message was held back for conflation, otherwise the writer's slow consumer policy decides
+     */
+    private boolean writableOrConflate(ChannelState sc, String topic, Object latest) {
+        if (latest == null || sc.channel.isWritable() || !conflatedTopics.test(topic)) {
+            return true;
+        }
+        if (sc.conflated == null) {
+            sc.conflated = new LinkedHashMap<>();
+        }
+        sc.conflated.put(topic, latest);
+        return false;
     }
 
     private class BulkPublish implements Runnable {
         private final String topic;
         private final T object;
+        private final long startNanos;
         private int position = -1;
 
-        public BulkPublish(String topic, T object) {
+        public BulkPublish(String topic, T object, long startNanos) {
             this.topic = topic;
             this.object = object;
+            this.startNanos = startNanos;
         }
 
         @Override
         public void run() {
             position = writeToAllSubscribedClients(topic, object);
+            if (position >= 0) {
+                recordPublish(startNanos);
+            }
         }
 
         @Override
@@ -68,32 +273,128 @@ public class NioJetlangSendFiber<T> {
      * @return the number of bytes written or -1 if no sessions subscribed.
      */
     public int writeToAllSubscribedClients(String topic, T object) {
+        buffer.clear();
+        Arrays.fill(encodedStart, -1);
         int position = -1;
-        for (int i = 0; i < sessions.size(); i++) {
-            final ChannelState channelState = sessions.get(i);
-            if (channelState.subscriptions.contains(topic)) {
-                if (position == -1) {
-                    buffer.append(topic, object);
-                    position = buffer.position();
+        TopicAliases.Alias alias = null;
+        boolean aliasResolved = false;
+        final List<ChannelState> subscribed = subscribersOf(topic);
+        for (int i = 0; i < subscribed.size(); i++) {
+            final ChannelState channelState = subscribed.get(i);
+            if (writableOrConflate(channelState, topic, object)) {
+                if (channelState.aliases != null && !aliasResolved) {
+                    alias = buffer.resolveAlias(topic);
+                    aliasResolved = true;
+                }
+                final boolean aliased = channelState.aliases != null && alias != null;
+                final int encoding = (aliased ? 1 : 0) | (channelState.varInts ? 2 : 0);
+                //encoded bytes are the same for every session w/ the same encoding b/c alias ids are allocated by the send fiber
+                if (encodedStart[encoding] == -1) {
+                    encodedStart[encoding] = buffer.position();
+                    if (aliased) {
+                        buffer.appendAliased(alias, topic, object, channelState.varInts);
+                    } else {
+                        buffer.append(topic, object, channelState.varInts);
+                    }
+                    encodedEnd[encoding] = buffer.position();
+                    position = Math.max(position, encodedEnd[encoding]);
+                }
+                if (aliased && !buffer.bindIfNeeded(alias, channelState)) {
+                    //without the binding the client can't read the aliased message
+                    continue;
                 }
-                buffer.setPositionAndFlush(position, channelState);
+                buffer.flush(encodedStart[encoding], encodedEnd[encoding], channelState);
             }
         }
+        buffer.clear();
         return position;
     }
 
     public void publishToAllSubscribedClients(String topic, T obj) {
-        sendFiber.execute(new BulkPublish(topic, obj));
+        execute(new BulkPublish(topic, obj, startNanos()));
+    }
+
+    /**
+     * Sends the messages to every subscribed client in one {@link MsgTypes#Batch} frame. Clients that didn't agree to
+     * {@link ProtocolFeatures#Batch} in the handshake get a Data frame per message.
+     */
+    public void publishBatchToAllSubscribedClients(String topic, List<? extends T> objs) {
+        final long startNanos = startNanos();
+        execute(() -> {
+            if (writeBatchToAllSubscribedClients(topic, objs) >= 0) {
+                recordPublish(startNanos);
+            }
+        });
+    }
+
+    /**
+     * Assumes the caller is already on the send thread.
+     *
+     * @return the number of bytes written or -1 if no sessions subscribed.
+     */
+    public int writeBatchToAllSubscribedClients(String topic, List<? extends T> objs) {
+        buffer.clear();
+        Arrays.fill(encodedStart, -1);
+        int position = -1;
+        int batchStart = -1;
+        int batchEnd = -1;
+        //a lagging session only needs the last value of a conflated batch
+        final T last = objs.isEmpty() ? null : objs.get(objs.size() - 1);
+        final List<ChannelState> subscribed = subscribersOf(topic);
+        for (int i = 0; i < subscribed.size(); i++) {
+            final ChannelState channelState = subscribed.get(i);
+            if (writableOrConflate(channelState, topic, last)) {
+                if (ProtocolFeatures.isEnabled(channelState.features, ProtocolFeatures.Batch)) {
+                    if (batchStart == -1) {
+                        batchStart = buffer.position();
+                        buffer.appendBatch(topic, objs);
+                        batchEnd = buffer.position();
+                        position = Math.max(position, batchEnd);
+                    }
+                    buffer.flush(batchStart, batchEnd, channelState);
+                } else {
+                    final int encoding = channelState.varInts ? 2 : 0;
+                    if (encodedStart[encoding] == -1) {
+                        encodedStart[encoding] = buffer.position();
+                        for (int m = 0; m < objs.size(); m++) {
+                            buffer.append(topic, objs.get(m), channelState.varInts);
+                        }
+                        encodedEnd[encoding] = buffer.position();
+                        position = Math.max(position, encodedEnd[encoding]);
+                    }
+                    buffer.flush(encodedStart[encoding], encodedEnd[encoding], channelState);
+                }
+            }
+        }
+        buffer.clear();
+        return position;
     }
 
     public static class ChannelState {
-        public final NioWriter channel;
+        public final SocketWriter channel;
+        private final JetlangBuffer.GatheringWriter<SendResult> gatheringWriter;
         private final NioJetlangRemotingClientFactory.Id id;
         private final NioFiber fiber;
         private final Set<String> subscriptions = new HashSet<>();
+        private TopicAliases.Bindings aliases;
+        private boolean varInts;
+        //agreed in the handshake. only accessed on the send fiber
+        private int features;
+        //latest unsent value per conflated topic while unwritable. only accessed on the send fiber
+        private LinkedHashMap<String, Object> conflated;
+        //each pattern is its own value
+        private TopicTrie<String> patterns;
+        private long publishEpoch;
+        //coalesced writes that fail may have carried alias bindings
+        private final Runnable onDeferredWriteFailed = () -> {
+            if (aliases != null) {
+                aliases.clear();
+            }
+        };
 
-        public ChannelState(NioWriter channel, NioJetlangRemotingClientFactory.Id id, NioFiber fiber) {
+        public ChannelState(SocketWriter channel, NioJetlangRemotingClientFactory.Id id, NioFiber fiber) {
             this.channel = channel;
+            this.gatheringWriter = channel::send;
             this.id = id;
             this.fiber = fiber;
         }
@@ -113,7 +414,7 @@ public class NioJetlangSendFiber<T> {
     }
 
     public void sendIntAsByte(ChannelState channel, int heartbeat) {
-        sendFiber.execute(() -> writeIntAsByte(channel, heartbeat));
+        execute(() -> writeIntAsByte(channel, heartbeat));
     }
 
     private void writeIntAsByte(ChannelState channel, int heartbeat) {
@@ -121,20 +422,85 @@ public class NioJetlangSendFiber<T> {
     }
 
 
+    /**
+     * Published messages will be sent with topic aliases. The client must support {@link MsgTypes#TopicAlias}.
+     */
+    public void enableTopicAliases(ChannelState sc) {
+        execute(() -> {
+            if (sc.aliases == null) {
+                sc.aliases = new TopicAliases.Bindings();
+            }
+        });
+    }
+
+    /**
+     * Enables the agreed features for the session and answers the client's handshake.
+     */
+    public void handshake(ChannelState sc, int features) {
+        execute(() -> {
+            if (ProtocolFeatures.isEnabled(features, ProtocolFeatures.TopicAliases) && sc.aliases == null) {
+                sc.aliases = new TopicAliases.Bindings();
+            }
+            sc.varInts = ProtocolFeatures.isEnabled(features, ProtocolFeatures.VarInts);
+            sc.features = features;
+            buffer.writeHandshake(features, sc);
+        });
+    }
+
     public void onSubscriptionRequest(String topic, ChannelState sc) {
-        sendFiber.execute(() -> sc.subscriptions.add(topic));
+        execute(() -> {
+            //ignore requests read before a close was handled
+            if (sessions.contains(sc) && sc.subscriptions.add(topic)) {
+                subscribers.computeIfAbsent(topic, t -> new LinkedHashSet<>()).add(sc);
+            }
+        });
     }
 
     public void onUnsubscribeRequest(String topic, ChannelState sc) {
-        sendFiber.execute(() -> sc.subscriptions.remove(topic));
+        execute(() -> {
+            if (sc.subscriptions.remove(topic)) {
+                removeSubscriber(topic, sc);
+            }
+        });
+    }
+
+    private void removeSubscriber(String topic, ChannelState sc) {
+        final Set<ChannelState> subscribed = subscribers.get(topic);
+        if (subscribed != null && subscribed.remove(sc) && subscribed.isEmpty()) {
+            subscribers.remove(topic);
+        }
+    }
+
+    public void onPatternSubscriptionRequest(String pattern, ChannelState sc) {
+        execute(() -> {
+            if (!sessions.contains(sc)) {
+                return;
+            }
+            if (sc.patterns == null) {
+                sc.patterns = new TopicTrie<>();
+            }
+            if (sc.patterns.add(pattern, pattern)) {
+                patterns.add(pattern, sc);
+            }
+        });
+    }
+
+    public void onPatternUnsubscribeRequest(String pattern, ChannelState sc) {
+        execute(() -> {
+            if (sc.patterns != null && sc.patterns.remove(pattern, pattern)) {
+                patterns.remove(pattern, sc);
+            }
+        });
     }
 
     public void publish(ChannelState sc, String topic, T msg) {
-        sendFiber.execute(new Runnable() {
+        final long startNanos = startNanos();
+        execute(new Runnable() {
             @Override
             public void run() {
-                if (sc.subscriptions.contains(topic)) {
+                if (isSubscribed(sc, topic) && writableOrConflate(sc, topic, msg)) {
                     buffer.write(topic, msg, sc);
+                    recordPublish(startNanos);
                 }
             }
 
@@ -148,25 +514,37 @@ public class NioJetlangSendFiber<T> {
 
 
     public void reply(ChannelState sc, int reqId, String replyTopic, T replyMsg) {
-        sendFiber.execute(() -> {
+        execute(() -> {
             buffer.writeReply(reqId, replyTopic, replyMsg, sc);
         });
     }
 
+    public void replyPart(ChannelState sc, int reqId, String replyTopic, T replyMsg) {
+        execute(() -> {
+            buffer.writeReplyPart(reqId, replyTopic, replyMsg, sc);
+        });
+    }
+
+    public void replyEnd(ChannelState sc, int reqId) {
+        execute(() -> {
+            buffer.writeReplyEnd(reqId, sc);
+        });
+    }
+
     public void publishIfSubscribed(ChannelState sc, String topic, byte[] data) {
-        sendFiber.execute(() -> {
-            if (sc.subscriptions.contains(topic)) {
+        execute(() -> {
+            if (isSubscribed(sc, topic)) {
                 buffer.writeBytes(data, sc);
             }
         });
     }
 
     public void publishBytes(ChannelState channel, byte[] data) {
-        sendFiber.execute(() -> buffer.writeBytes(data, channel));
+        execute(() -> buffer.writeBytes(data, channel));
     }
 
     public void handleLogout(ChannelState channel) {
-        sendFiber.execute(() -> {
+        execute(() -> {
                     writeIntAsByte(channel, MsgTypes.Disconnect);
                     removeSubscriptions(channel);
                 }
@@ -174,12 +552,22 @@ public class NioJetlangSendFiber<T> {
     }
 
     private void removeSubscriptions(ChannelState channel) {
+        for (String topic : channel.subscriptions) {
+            removeSubscriber(topic, channel);
+        }
         channel.subscriptions.clear();
-        sessions.remove(channel);
+        channel.conflated = null;
+        if (channel.patterns != null) {
+            channel.patterns.forEach(pattern -> patterns.remove(pattern, channel));
+            channel.patterns = null;
+        }
+        if (sessions.remove(channel) && sessionCount != null) {
+            sessionCount.dec();
+        }
     }
 
     public void handleClose(ChannelState sc) {
-        sendFiber.execute(() -> {
+        execute(() -> {
             removeSubscriptions(sc);
         });
     }
@@ -189,37 +577,114 @@ public class NioJetlangSendFiber<T> {
         private final ObjectByteWriter<T> objectByteWriter;
         private final Charset charset;
         private final JetlangBuffer byteBuffer;
+        private final TopicAliases aliases;
+        private WriteCoalescer coalescer;
+        private Counter messagesWritten;
 
-        public Buffer(ObjectByteWriter<T> objectByteWriter, Charset charset) {
+        public Buffer(ObjectByteWriter<T> objectByteWriter, Charset charset, JetlangBuffer byteBuffer) {
             this.objectByteWriter = objectByteWriter;
             this.charset = charset;
-            this.byteBuffer = new JetlangBuffer(1024);
+            this.byteBuffer = byteBuffer;
+            this.aliases = new TopicAliases(charset);
+        }
+
+        public SendResult flush(ChannelState session) {
+            SendResult result = byteBuffer.writeTo(writerFor(session));
+            byteBuffer.clear();
+            return result;
+        }
+
+        /**
+         * Sends the bytes between start and end while leaving the write position unchanged.
+         */
+        public SendResult flush(int start, int end, ChannelState session) {
+            return byteBuffer.writeTo(start, end, writerFor(session));
+        }
+
+        private JetlangBuffer.GatheringWriter<SendResult> writerFor(ChannelState session) {
+            if (messagesWritten != null) {
+                messagesWritten.inc();
+            }
+            return coalescer != null ? coalescer.to(session.channel, session.onDeferredWriteFailed) : session.gatheringWriter;
+        }
+
+        public TopicAliases.Alias resolveAlias(String topic) {
+            return aliases.get(topic);
+        }
+
+        public void appendAliased(TopicAliases.Alias alias, String topic, T object, boolean varInts) {
+            byteBuffer.setVarInts(varInts);
+            byteBuffer.appendAliasedMsg(alias.id, topic, object, objectByteWriter);
         }
 
-        public void flush(ChannelState session) {
-            ByteBuffer toSend = byteBuffer.getBuffer();
-            toSend.flip();
-            executeFlush(toSend, session);
-            toSend.clear();
+        /**
+         * @return false if the binding couldn't be sent, so the alias can't be used with the session
+         */
+        public boolean bindIfNeeded(TopicAliases.Alias alias, ChannelState session) {
+            if (session.aliases.isBound(alias)) {
+                return true;
+            }
+            byteBuffer.setVarInts(session.varInts);
+            int start = byteBuffer.position();
+            byteBuffer.appendTopicAlias(alias.id, alias.topicBytes);
+            SendResult result = flush(start, byteBuffer.position(), session);
+            byteBuffer.position(start);
+            if (!result.isAccepted()) {
+                return false;
+            }
+            session.aliases.markBound(alias);
+            return true;
         }
 
-        private void executeFlush(ByteBuffer toSend, ChannelState session) {
-            session.channel.send(toSend);
+        public void clear() {
+            byteBuffer.clear();
         }
 
-        public void append(String topic, T object) {
+        public void append(String topic, T object, boolean varInts) {
+            byteBuffer.setVarInts(varInts);
             byteBuffer.appendMsg(topic, object, objectByteWriter, charset);
         }
 
+        public void appendBatch(String topic, List<? extends T> objs) {
+            byteBuffer.setVarInts(false);
+            byte[] topicBytes = topic.getBytes(charset);
+            int start = byteBuffer.beginBatch();
+            for (int i = 0; i < objs.size(); i++) {
+                byteBuffer.appendBatchMsg(topic, topicBytes, objs.get(i), objectByteWriter);
+            }
+            byteBuffer.endBatch(start);
+        }
+
         public void write(String topic, T msg, ChannelState channel) {
-            append(topic, msg);
-            flush(channel);
+            byteBuffer.setVarInts(channel.varInts);
+            if (channel.aliases != null) {
+                TopicAliases.Alias bound = byteBuffer.appendMsg(topic, msg, objectByteWriter, charset, aliases, channel.aliases);
+                if (!flush(channel).isAccepted() && bound != null) {
+                    channel.aliases.unbind(bound);
+                }
+            } else {
+                byteBuffer.appendMsg(topic, msg, objectByteWriter, charset);
+                flush(channel);
+            }
         }
         public void writeReply(int reqId, String replyTopic, T replyMsg, ChannelState session) {
+            byteBuffer.setVarInts(session.varInts);
             byteBuffer.appendReply(reqId, replyTopic, replyMsg, objectByteWriter, charset);
             flush(session);
         }
 
+        public void writeReplyPart(int reqId, String replyTopic, T replyMsg, ChannelState session) {
+            byteBuffer.setVarInts(session.varInts);
+            byteBuffer.appendReplyPart(reqId, replyTopic, replyMsg, objectByteWriter, charset);
+            flush(session);
+        }
+
+        public void writeReplyEnd(int reqId, ChannelState session) {
+            byteBuffer.setVarInts(session.varInts);
+            byteBuffer.appendReplyEnd(reqId);
+            flush(session);
+        }
+
         public static void tryWrite(WritableByteChannel channel, ByteBuffer byteBuffer) throws IOException {
             int write;
             do {
@@ -227,6 +692,11 @@ public class NioJetlangSendFiber<T> {
             } while (write > 0 && byteBuffer.remaining() > 0);
         }
 
+        public void writeHandshake(int features, ChannelState session) {
+            byteBuffer.appendHandshake(ProtocolFeatures.VERSION, features);
+            flush(session);
+        }
+
         public void writeSingleByte(int byteToWrite, ChannelState session) {
             byteBuffer.appendIntAsByte(byteToWrite);
             flush(session);
@@ -237,12 +707,6 @@ public class NioJetlangSendFiber<T> {
             flush(session);
         }
 
-        public void setPositionAndFlush(int position, ChannelState session) {
-            ByteBuffer bb = byteBuffer.getBuffer();
-            bb.position(position);
-            flush(session);
-        }
-
         public int position() {
             return byteBuffer.position();
         }
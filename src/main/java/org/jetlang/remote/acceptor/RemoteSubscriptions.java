@@ -9,10 +9,15 @@ import org.jetlang.core.Disposable;
 import org.jetlang.core.DisposingExecutor;
 import org.jetlang.core.Filter;
 import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.remote.core.BufferChunkPool;
 import org.jetlang.remote.core.JetlangBuffer;
 import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.remote.core.ProtocolFeatures;
 import org.jetlang.remote.core.Serializer;
+import org.jetlang.remote.core.WriteCoalescer;
+import org.jetlang.web.SendResult;
+import org.jetlang.web.SocketWriter;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -69,23 +74,48 @@ public class RemoteSubscriptions<W> {
         private final Channel<Topic<W>> subscriptions;
         private final Channel<Topic<W>> unsub;
         private final JetlangBuffer buffer;
+        private WriteCoalescer coalescer;
 
         public FiberSubscriptions(DisposingExecutor fiber, ObjectByteWriter<W> writer, int initialSendBufferSize, Charset topicCharSet, Channel<Topic<W>> subscriptions, Channel<Topic<W>> unsub) {
+            this(fiber, writer, new JetlangBuffer(initialSendBufferSize), topicCharSet, subscriptions, unsub);
+        }
+
+        public FiberSubscriptions(DisposingExecutor fiber, ObjectByteWriter<W> writer, JetlangBuffer buffer, Charset topicCharSet, Channel<Topic<W>> subscriptions, Channel<Topic<W>> unsub) {
             this.fiber = fiber;
             this.writer = writer;
             this.topicCharSet = topicCharSet;
             this.subscriptions = subscriptions;
             this.unsub = unsub;
-            this.buffer = new JetlangBuffer(initialSendBufferSize);
+            this.buffer = buffer;
+        }
+
+        /**
+         * Opt in to smart batching of the writes made by topics subscribed after this call. See
+         * {@link WriteCoalescer}.
+         */
+        public FiberSubscriptions<W> withWriteCoalescing(int flushThresholdBytes) {
+            this.coalescer = flushThresholdBytes > 0 ? new WriteCoalescer(fiber, flushThresholdBytes) : null;
+            return this;
         }
 
         public <T extends W> Subscribers<T> subscribe(String topic, Callback<Subscription<T>> onSubscribe, Callback<Subscription<T>> onUnsubscribe) {
+            return subscribe(topic, onSubscribe, onUnsubscribe, false);
+        }
+
+        /**
+         * @param conflate when true, a subscriber above its high watermark keeps only the latest published value and
+         *                 receives it once writable again. Otherwise unwritable subscribers are skipped.
+         */
+        public <T extends W> Subscribers<T> subscribe(String topic, Callback<Subscription<T>> onSubscribe, Callback<Subscription<T>> onUnsubscribe, boolean conflate) {
             final Map<Topic<T>, Subscription<T>> subs = new HashMap<>();
             final ObjectByteWriter<T> writer = (ObjectByteWriter<T>) this.writer;
-            final Buffer<T> buffer = new Buffer<>(topic, this.topicCharSet, this.buffer, writer);
+            final Buffer<T> buffer = new Buffer<>(topic, this.topicCharSet, this.buffer, writer, coalescer);
             Callback<Topic<W>> gen = (msg) -> {
                 Topic<T> cast = (Topic<T>) msg;
                 Subscription<T> t = new Subscription<>(cast, buffer);
+                if (conflate) {
+                    t.flushOnWritable(fiber);
+                }
                 subs.put(cast, t);
                 onSubscribe.onMessage(t);
             };
@@ -94,6 +124,7 @@ public class RemoteSubscriptions<W> {
             Callback<Topic<W>> genUnSub = (msg) -> {
                 Subscription<T> remove = subs.remove(msg);
                 if(remove != null) {
+                    remove.onUnsubscribe();
                     onUnsubscribe.onMessage(remove);
                 }
             };
@@ -102,7 +133,7 @@ public class RemoteSubscriptions<W> {
                 newSub.dispose();
                 unsubClose.dispose();
             };
-            return new Subscribers<T>(subs, disposable, buffer);
+            return new Subscribers<T>(subs, disposable, buffer, conflate);
         }
     }
 
@@ -110,6 +141,13 @@ public class RemoteSubscriptions<W> {
         return new FiberSubscriptions<>(executor, this.serializer.get(), initialSendBufferSize, topicCharSet, subscriptions, unsub);
     }
 
+    /**
+     * Messages published on the fiber are encoded into chunks from the pool and sent with gathering writes.
+     */
+    public FiberSubscriptions<W> onFiber(DisposingExecutor executor, BufferChunkPool pool){
+        return new FiberSubscriptions<>(executor, this.serializer.get(), new JetlangBuffer(pool), topicCharSet, subscriptions, unsub);
+    }
+
     public void onNewSession(JetlangNioSession<?, W> session) {
         final Map<String, Topic<W>> sessionSubscriptions = new HashMap<>();
         session.getSubscriptionRequestChannel().subscribe(onReadThread(req -> {
@@ -131,7 +169,7 @@ public class RemoteSubscriptions<W> {
         }));
     }
 
-    public static class Topic<T> {
+    public static class Topic<T> implements JetlangBuffer.GatheringWriter<SendResult> {
         private final JetlangNioSession<?, T> session;
         private final String topic;
 
@@ -148,10 +186,35 @@ public class RemoteSubscriptions<W> {
             return session.getSessionId();
         }
 
+        public boolean isWritable() {
+            return session.isWritable();
+        }
+
+        boolean isBatchEnabled() {
+            return session.isFeatureEnabled(ProtocolFeatures.Batch);
+        }
+
+        Disposable onWritable(DisposingExecutor fiber, Runnable onWritable) {
+            return session.getWritabilityChannel().subscribe(fiber, event -> {
+                if (event.isWritable()) {
+                    onWritable.run();
+                }
+            });
+        }
+
         public void send(ByteBuffer sendBuffer) {
             session.getWriter().send(sendBuffer);
         }
 
+        SocketWriter writer() {
+            return session.getWriter();
+        }
+
+        @Override
+        public SendResult write(ByteBuffer[] srcs, int offset, int length) {
+            return session.getWriter().send(srcs, offset, length);
+        }
+
         @Override
         public String toString() {
             return "Topic{" +
@@ -164,6 +227,9 @@ public class RemoteSubscriptions<W> {
     public static class Subscription<T> {
         final Topic<T> topic;
         private final Buffer<T> writer;
+        //latest value not sent while unwritable. only accessed on the subscription fiber
+        private T conflated;
+        private Disposable writableSub;
 
         public Subscription(Topic<T> topic, Buffer<T> writer){
             this.topic = topic;
@@ -178,11 +244,42 @@ public class RemoteSubscriptions<W> {
             return this.topic.topic();
         }
 
+        /**
+         * @return false while the session is above its high watermark. Publishing to all subscribers skips it.
+         */
+        public boolean isWritable() {
+            return topic.isWritable();
+        }
+
         public void send(T msg){
             writer.append(msg);
             writer.flushTo(topic);
         }
 
+        void conflate(T msg) {
+            conflated = msg;
+        }
+
+        void flushOnWritable(DisposingExecutor fiber) {
+            writableSub = topic.onWritable(fiber, this::flushConflated);
+        }
+
+        private void flushConflated() {
+            if (conflated != null && isWritable()) {
+                T latest = conflated;
+                conflated = null;
+                send(latest);
+            }
+        }
+
+        void onUnsubscribe() {
+            conflated = null;
+            if (writableSub != null) {
+                writableSub.dispose();
+                writableSub = null;
+            }
+        }
+
         public void sendRawMsg(ByteBuffer msg){
             writer.appendRawMsg(msg);
             writer.flushTo(topic);
@@ -194,39 +291,85 @@ public class RemoteSubscriptions<W> {
         private final ObjectByteWriter<T> writer;
         private final String topic;
         private final byte[] topicBytes;
+        private final WriteCoalescer coalescer;
 
-        public Buffer(String topic, Charset topicCharset, JetlangBuffer jBuf, ObjectByteWriter<T> writer){
+        public Buffer(String topic, Charset topicCharset, JetlangBuffer jBuf, ObjectByteWriter<T> writer, WriteCoalescer coalescer){
             this.topic = topic;
             this.sendBuffer = jBuf;
             this.writer = writer;
             this.topicBytes = topic.getBytes(topicCharset);
+            this.coalescer = coalescer;
+        }
+
+        private JetlangBuffer.GatheringWriter<SendResult> writerFor(Topic<T> topic) {
+            return coalescer != null ? coalescer.to(topic.writer()) : topic;
         }
 
         public void append(T msg) {
-            ByteBuffer beforeWrite = this.sendBuffer.getBuffer();
-            beforeWrite.clear();
+            this.sendBuffer.clear();
             this.sendBuffer.appendMsg(topic, topicBytes, msg, writer);
         }
 
         public void appendRawMsg(ByteBuffer msg){
-            ByteBuffer beforeWrite = this.sendBuffer.getBuffer();
-            beforeWrite.clear();
+            this.sendBuffer.clear();
             this.sendBuffer.appendMsg(topicBytes, msg);
         }
 
-        void flushTo(Collection<Subscription<T>> values) {
-            ByteBuffer buffer = sendBuffer.getBuffer();
-            buffer.flip();
-            for (Subscription subscription : values) {
-                subscription.topic.send(buffer);
-                buffer.position(0);
+        private void appendBatch(Collection<? extends T> msgs) {
+            int start = this.sendBuffer.beginBatch();
+            for (T msg : msgs) {
+                this.sendBuffer.appendBatchMsg(topic, topicBytes, msg, writer);
+            }
+            this.sendBuffer.endBatch(start);
+        }
+
+        /**
+         * Sends a Batch frame to subscribers that agreed to batches and a Data frame per message to the rest. Each
+         * is encoded at most once.
+         */
+        void flushBatchTo(Collection<Subscription<T>> values, Collection<? extends T> msgs, T latest) {
+            this.sendBuffer.clear();
+            int batchStart = -1, batchEnd = -1, dataStart = -1, dataEnd = -1;
+            for (Subscription<T> subscription : values) {
+                if (!subscription.topic.isWritable()) {
+                    if (latest != null) {
+                        subscription.conflate(latest);
+                    }
+                } else if (subscription.topic.isBatchEnabled()) {
+                    if (batchStart == -1) {
+                        batchStart = sendBuffer.position();
+                        appendBatch(msgs);
+                        batchEnd = sendBuffer.position();
+                    }
+                    sendBuffer.writeTo(batchStart, batchEnd, writerFor(subscription.topic));
+                } else {
+                    if (dataStart == -1) {
+                        dataStart = sendBuffer.position();
+                        for (T msg : msgs) {
+                            sendBuffer.appendMsg(topic, topicBytes, msg, writer);
+                        }
+                        dataEnd = sendBuffer.position();
+                    }
+                    sendBuffer.writeTo(dataStart, dataEnd, writerFor(subscription.topic));
+                }
+            }
+        }
+
+        /**
+         * @param latest kept by unwritable subscriptions when conflating, otherwise null
+         */
+        void flushTo(Collection<Subscription<T>> values, T latest) {
+            for (Subscription<T> subscription : values) {
+                if (subscription.topic.isWritable()) {
+                    sendBuffer.writeTo(writerFor(subscription.topic));
+                } else if (latest != null) {
+                    subscription.conflate(latest);
+                }
             }
         }
 
         void flushTo(Topic<T> writer) {
-            ByteBuffer buffer = sendBuffer.getBuffer();
-            buffer.flip();
-            writer.send(buffer);
+            sendBuffer.writeTo(writerFor(writer));
         }
     }
 
@@ -234,19 +377,38 @@ public class RemoteSubscriptions<W> {
         private final Map<Topic<T>, Subscription<T>> subscriptions;
         private final Disposable onEnd;
         private final Buffer<T> sendBuffer;
+        private final boolean conflate;
 
         public Subscribers(Map<Topic<T>, Subscription<T>> subscriptions, Disposable onEnd,
                            Buffer<T> buffer) {
+            this(subscriptions, onEnd, buffer, false);
+        }
+
+        public Subscribers(Map<Topic<T>, Subscription<T>> subscriptions, Disposable onEnd,
+                           Buffer<T> buffer, boolean conflate) {
             this.subscriptions = subscriptions;
             this.onEnd = onEnd;
             this.sendBuffer = buffer;
+            this.conflate = conflate;
         }
 
         public int publish(T msg) {
             int sz = subscriptions.size();
             if (sz > 0) {
                 this.sendBuffer.append(msg);
-                this.sendBuffer.flushTo(subscriptions.values());
+                this.sendBuffer.flushTo(subscriptions.values(), conflate ? msg : null);
+            }
+            return sz;
+        }
+
+        /**
+         * Sends all messages in a single {@link MsgTypes#Batch} frame to subscribers that agreed to
+         * {@link ProtocolFeatures#Batch} in the handshake, and as separate messages to the rest.
+         */
+        public int publishBatch(Collection<? extends T> msgs) {
+            int sz = subscriptions.size();
+            if (sz > 0 && !msgs.isEmpty()) {
+                this.sendBuffer.flushBatchTo(subscriptions.values(), msgs, conflate ? last(msgs) : null);
             }
             return sz;
         }
@@ -255,14 +417,25 @@ public class RemoteSubscriptions<W> {
             int sz = subscriptions.size();
             if (sz > 0) {
                 this.sendBuffer.appendRawMsg(msg);
-                this.sendBuffer.flushTo(subscriptions.values());
+                this.sendBuffer.flushTo(subscriptions.values(), null);
             }
             return sz;
         }
 
+        private static <T> T last(Collection<? extends T> msgs) {
+            T last = null;
+            for (T msg : msgs) {
+                last = msg;
+            }
+            return last;
+        }
+
         @Override
         public void dispose() {
             onEnd.dispose();
+            for (Subscription<T> subscription : subscriptions.values()) {
+                subscription.onUnsubscribe();
+            }
         }
     }
 }
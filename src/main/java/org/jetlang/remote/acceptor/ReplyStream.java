@@ -0,0 +1,109 @@
+package org.jetlang.remote.acceptor;
+
+/**
+ * Replies to one request with a stream of parts. The requester grants credit for the parts it is ready to
+ * receive, so a large result set is sent in bounded memory at the pace of the consumer. Send parts until
+ * {@link #send(Object)} returns false, then continue from the credit listener.
+ * <p>
+ * Thread safe. The credit listener is called on the read thread of the session.
+ */
+public class ReplyStream<W> {
+
+    private final int reqId;
+    private final JetlangBaseSession<?, W> session;
+    private String topic;
+    private int credits;
+    private boolean opened;
+    private boolean closed;
+    private Runnable creditListener;
+
+    ReplyStream(int reqId, JetlangBaseSession<?, W> session) {
+        this.reqId = reqId;
+        this.session = session;
+    }
+
+    synchronized void open(String topic) {
+        this.topic = topic;
+        this.opened = true;
+    }
+
+    synchronized boolean isOpened() {
+        return opened;
+    }
+
+    /**
+     * @return false without sending if the stream has no credit or is closed
+     */
+    public synchronized boolean send(W part) {
+        if (closed || credits <= 0) {
+            return false;
+        }
+        credits--;
+        session.replyPart(reqId, topic, part);
+        return true;
+    }
+
+    /**
+     * Sends the end of the stream. Does nothing if the stream was cancelled.
+     */
+    public void end() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            session.replyEnd(reqId);
+        }
+        session.removeReplyStream(reqId);
+    }
+
+    public synchronized int getCredits() {
+        return credits;
+    }
+
+    /**
+     * @return true once ended, cancelled by the requester or the session closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Called whenever credit is granted and when the stream is cancelled.
+     */
+    public synchronized void setCreditListener(Runnable listener) {
+        this.creditListener = listener;
+    }
+
+    void grant(int granted) {
+        final Runnable listener;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            credits = (int) Math.min(Integer.MAX_VALUE, (long) credits + granted);
+            listener = creditListener;
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    void cancel() {
+        Runnable listener = close();
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return the credit listener to call outside of any lock, or null if already closed or there is none
+     */
+    synchronized Runnable close() {
+        if (closed) {
+            return null;
+        }
+        closed = true;
+        return creditListener;
+    }
+}
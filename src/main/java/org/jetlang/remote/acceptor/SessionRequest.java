@@ -29,4 +29,15 @@ public class SessionRequest<R, W> {
         session.reply(reqId, replyTopic, replyMsg);
     }
 
+    /**
+     * Replies with a stream of parts instead of a single reply. The requester must have asked for a stream.
+     */
+    public ReplyStream<W> openStream() {
+        return session.openReplyStream(reqId, reqmsgTopic);
+    }
+
+    public ReplyStream<W> openStream(String replyTopic) {
+        return session.openReplyStream(reqId, replyTopic);
+    }
+
 }
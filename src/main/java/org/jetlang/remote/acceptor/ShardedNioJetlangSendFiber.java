@@ -0,0 +1,95 @@
+package org.jetlang.remote.acceptor;
+
+import org.jetlang.fibers.Fiber;
+import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.remote.metrics.Histogram;
+import org.jetlang.remote.metrics.MetricsRegistry;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Spreads sessions across several send fibers so serialization and socket writes use more than one core.
+ * <p>
+ * Each session is assigned to one shard when accepted and all of its messages are sent from that shard, so
+ * messages to a session stay in order. A publish to all subscribed clients is passed to every shard and each shard
+ * serializes it at most once for its own sessions.
+ */
+public class ShardedNioJetlangSendFiber<T> {
+
+    private final List<NioJetlangSendFiber<T>> shards;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param writers called once per fiber. Each shard serializes on its own thread, so writers must not be shared.
+     */
+    public ShardedNioJetlangSendFiber(List<? extends Fiber> fibers, Supplier<ObjectByteWriter<T>> writers, Charset charset) {
+        List<NioJetlangSendFiber<T>> shards = new ArrayList<>(fibers.size());
+        for (Fiber fiber : fibers) {
+            shards.add(new NioJetlangSendFiber<>(fiber, writers.get(), charset));
+        }
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    public ShardedNioJetlangSendFiber(List<NioJetlangSendFiber<T>> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    /**
+     * Assigns shards to new sessions in turn.
+     */
+    public NioJetlangSendFiber<T> nextShard() {
+        return shards.get((next.getAndIncrement() & Integer.MAX_VALUE) % shards.size());
+    }
+
+    public List<NioJetlangSendFiber<T>> getShards() {
+        return shards;
+    }
+
+    public void publishToAllSubscribedClients(String topic, T obj) {
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).publishToAllSubscribedClients(topic, obj);
+        }
+    }
+
+    public void publishBatchToAllSubscribedClients(String topic, List<? extends T> objs) {
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).publishBatchToAllSubscribedClients(topic, objs);
+        }
+    }
+
+    public void setConflatedTopics(Predicate<String> conflatedTopics) {
+        for (NioJetlangSendFiber<T> shard : shards) {
+            shard.setConflatedTopics(conflatedTopics);
+        }
+    }
+
+    public void setMetrics(MetricsRegistry registry) {
+        for (NioJetlangSendFiber<T> shard : shards) {
+            shard.setMetrics(registry);
+        }
+    }
+
+    /**
+     * Shards record into the one histogram.
+     */
+    public void setPublishLatency(Histogram publishLatency) {
+        for (NioJetlangSendFiber<T> shard : shards) {
+            shard.setPublishLatency(publishLatency);
+        }
+    }
+
+    public void setWriteCoalescing(int flushThresholdBytes) {
+        for (NioJetlangSendFiber<T> shard : shards) {
+            shard.setWriteCoalescing(flushThresholdBytes);
+        }
+    }
+}
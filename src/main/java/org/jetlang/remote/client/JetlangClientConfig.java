@@ -1,6 +1,12 @@
 package org.jetlang.remote.client;
 
+import org.jetlang.remote.core.BufferChunkPool;
+import org.jetlang.remote.core.ChunkedMessageHandler;
+import org.jetlang.remote.core.JetlangBuffer;
+import org.jetlang.remote.core.ReadBufferPolicy;
 import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.metrics.Histogram;
+import org.jetlang.remote.metrics.MetricsRegistry;
 
 import java.nio.charset.Charset;
 import java.util.concurrent.TimeUnit;
@@ -12,6 +18,18 @@ public class JetlangClientConfig {
     private long logoutTimeout = 60;
     private TimeUnit logoutTimeoutUnit = TimeUnit.SECONDS;
     private boolean cacheTopics = true;
+    private int topicCacheCapacity = TopicReader.Bounded.DEFAULT_CAPACITY;
+    private boolean topicAliases = false;
+    private int handshakeFeatures = 0;
+    private BufferChunkPool sendBufferChunkPool;
+    private int requestTimeoutTickInMs = 10;
+    private int writeCoalescingThreshold = 0;
+    private ReadBufferPolicy readBufferPolicy = ReadBufferPolicy.DEFAULT;
+    private int chunkThresholdBytes;
+    private ChunkedMessageHandler chunkedMessageHandler;
+    private MetricsRegistry metrics;
+    private Histogram requestLatency;
+    private Histogram publishLatency;
 
     public void setHeartbeatIntervalInMs(int ms) {
         this.hbIntervalInMs = ms;
@@ -61,7 +79,149 @@ public class JetlangClientConfig {
         this.cacheTopics = cacheTopics;
     }
 
+    public int getTopicCacheCapacity() {
+        return topicCacheCapacity;
+    }
+
+    /**
+     * Max number of topics held by the topic cache when {@link #setCacheTopics(boolean)} is enabled.
+     */
+    public void setTopicCacheCapacity(int topicCacheCapacity) {
+        this.topicCacheCapacity = topicCacheCapacity;
+    }
+
+    public boolean getTopicAliases() {
+        return topicAliases;
+    }
+
+    /**
+     * When enabled, published messages are sent with topic aliases rather than the full topic.
+     * The acceptor must support {@link org.jetlang.remote.core.MsgTypes#TopicAlias}.
+     */
+    public void setTopicAliases(boolean topicAliases) {
+        this.topicAliases = topicAliases;
+    }
+
+    public int getHandshakeFeatures() {
+        return handshakeFeatures;
+    }
+
+    /**
+     * When non-zero, the client sends a {@link org.jetlang.remote.core.MsgTypes#Handshake} requesting these
+     * {@link org.jetlang.remote.core.ProtocolFeatures} on connect and enables whichever the acceptor agrees to.
+     * Only set once the acceptors support handshakes.
+     */
+    public void setHandshakeFeatures(int handshakeFeatures) {
+        this.handshakeFeatures = handshakeFeatures;
+    }
+
+    public int getRequestTimeoutTickInMs() {
+        return requestTimeoutTickInMs;
+    }
+
+    /**
+     * Resolution of request timeouts. Timeouts fire up to one tick late.
+     */
+    public void setRequestTimeoutTickInMs(int requestTimeoutTickInMs) {
+        this.requestTimeoutTickInMs = requestTimeoutTickInMs;
+    }
+
+    public int getWriteCoalescingThreshold() {
+        return writeCoalescingThreshold;
+    }
+
+    /**
+     * When positive, the nio client coalesces messages published from any thread and writes them from the nio
+     * thread in one write, or immediately once this many bytes are pending. Cuts syscalls when publishing at a high
+     * rate at the cost of a hand off to the nio thread.
+     * <p>
+     * A coalesced message is reported as {@link org.jetlang.web.SendResult.Buffered}. If the deferred write is
+     * later dropped or fails, the publisher is not told.
+     */
+    public void setWriteCoalescingThreshold(int writeCoalescingThreshold) {
+        this.writeCoalescingThreshold = writeCoalescingThreshold;
+    }
+
+    public BufferChunkPool getSendBufferChunkPool() {
+        return sendBufferChunkPool;
+    }
+
+    /**
+     * When set, the nio client encodes messages into chunks from this pool and sends them with gathering writes
+     * instead of growing one direct buffer. The pool can be shared between clients.
+     */
+    public void setSendBufferChunkPool(BufferChunkPool sendBufferChunkPool) {
+        this.sendBufferChunkPool = sendBufferChunkPool;
+    }
+
+    public ReadBufferPolicy getReadBufferPolicy() {
+        return readBufferPolicy;
+    }
+
+    /**
+     * Sizes the buffer the client reads into. Share one policy with a pool to reuse read buffers across clients.
+     */
+    public void setReadBufferPolicy(ReadBufferPolicy readBufferPolicy) {
+        this.readBufferPolicy = readBufferPolicy;
+    }
+
+    public int getChunkThresholdBytes() {
+        return chunkThresholdBytes;
+    }
+
+    public ChunkedMessageHandler getChunkedMessageHandler() {
+        return chunkedMessageHandler;
+    }
+
+    /**
+     * Data messages larger than the threshold are passed to the handler in chunks as they are read instead of being
+     * buffered whole and deserialized.
+     */
+    public void setChunkedMessages(int thresholdBytes, ChunkedMessageHandler handler) {
+        this.chunkThresholdBytes = thresholdBytes;
+        this.chunkedMessageHandler = handler;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The nio client reports bytes and messages read and written, connects and reconnects to the registry.
+     * Null, the default, to disable.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    public Histogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * Records the nanos from each request being made until its reply is read. Null, the default, to disable.
+     */
+    public void setRequestLatency(Histogram requestLatency) {
+        this.requestLatency = requestLatency;
+    }
+
+    public Histogram getPublishLatency() {
+        return publishLatency;
+    }
+
+    /**
+     * Records the nanos from each publish on {@link JetlangTcpClient} until it is written to the socket by the send
+     * fiber. Null, the default, to disable.
+     */
+    public void setPublishLatency(Histogram publishLatency) {
+        this.publishLatency = publishLatency;
+    }
+
+    public JetlangBuffer createSendBuffer() {
+        return sendBufferChunkPool != null ? new JetlangBuffer(sendBufferChunkPool) : new JetlangBuffer(128);
+    }
+
     public TopicReader createTopicReader(Charset charset) {
-        return cacheTopics ? new TopicReader.Cached(charset) : new TopicReader.Default(charset);
+        return cacheTopics ? new TopicReader.Bounded(charset, topicCacheCapacity) : new TopicReader.Default(charset);
     }
 }
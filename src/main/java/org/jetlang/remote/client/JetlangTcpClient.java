@@ -15,10 +15,12 @@ import org.jetlang.remote.core.HeartbeatEvent;
 import org.jetlang.remote.core.JetlangRemotingInputStream;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.MsgTypes;
+import org.jetlang.remote.core.ProtocolFeatures;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.SocketMessageStreamWriter;
 import org.jetlang.remote.core.TcpSocket;
+import org.jetlang.remote.metrics.Histogram;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -26,9 +28,6 @@ import java.net.Socket;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -38,7 +37,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
 
-    private MessageStreamWriter<W> socket;
+    private MessageStreamWriter.NioChannel<W> socket;
     private final Fiber sendFiber;
     private final JetlangClientConfig config;
     private final Serializer<R, W> ser;
@@ -64,7 +63,11 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     private Disposable timeoutSchedule;
     private final Channel<HeartbeatEvent> Heartbeat = channel();
     private AtomicInteger reqId = new AtomicInteger();
-    private final Map<Integer, Req> pendingRequests = Collections.synchronizedMap(new HashMap<Integer, Req>());
+    private final RequestTable<PendingRequest<?>> pendingRequests = new RequestTable<>(r -> r.id);
+    //request timeouts. only accessed on the send fiber
+    private final TimeoutWheel timeouts;
+    private Disposable timeoutTick;
+    private final Runnable expireTimeouts = this::expireTimeouts;
 
     private final SocketWriter<W> socketWriter = new SocketWriter<W>() {
         @Override
@@ -94,6 +97,7 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
         this.config = config;
         this.ser = ser;
         this.errorHandler = errorHandler;
+        this.timeouts = new TimeoutWheel(config.getRequestTimeoutTickInMs(), TimeUnit.MILLISECONDS, 512, System.nanoTime());
         RemoteSubscriptions.SubscriptionWriter subWriter = new RemoteSubscriptions.SubscriptionWriter() {
             @Override
             public boolean sendSubscription(String topic) {
@@ -116,6 +120,20 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
             public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
                 publishReply(reqId, readObject);
             }
+
+            @Override
+            public void onHandshake(int version, int features) {
+                sendFiber.execute(() -> {
+                    if (socket != null) {
+                        if (ProtocolFeatures.isEnabled(features, ProtocolFeatures.TopicAliases)) {
+                            socket.enableTopicAliases();
+                        }
+                        if (ProtocolFeatures.isEnabled(features, ProtocolFeatures.VarInts)) {
+                            socket.enableVarInts();
+                        }
+                    }
+                });
+            }
         };
     }
 
@@ -125,13 +143,33 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     }
 
     private void publishReply(int id, R reply) {
-        Req r = pendingRequests.remove(id);
+        //the requester picks the reply type, so it is only known to match by contract
+        @SuppressWarnings("unchecked")
+        PendingRequest<R> r = (PendingRequest<R>) pendingRequests.remove(id);
         if (r != null) {
-            //noinspection unchecked
+            if (config.getRequestLatency() != null) {
+                config.getRequestLatency().recordNanosSince(r.startNanos);
+            }
             r.onReply(reply);
         }
     }
 
+    private void addTimeout(Req r) {
+        timeouts.add(r, r.timeoutAt);
+        if (timeoutTick == null) {
+            int tick = config.getRequestTimeoutTickInMs();
+            timeoutTick = sendFiber.scheduleWithFixedDelay(expireTimeouts, tick, tick, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void expireTimeouts() {
+        timeouts.advance(System.nanoTime());
+        if (timeouts.isEmpty() && timeoutTick != null) {
+            timeoutTick.dispose();
+            timeoutTick = null;
+        }
+    }
+
     private boolean sendSubscription(String subject, int msgType) {
         if (socket != null) {
             try {
@@ -195,11 +233,17 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     private void handleConnect(SocketChannel newSocket) throws IOException {
         this.pendingConnect.dispose();
         this.pendingConnect = null;
-        this.socket = new MessageStreamWriter.NioChannel<W>(newSocket, charset, ser.getWriter());
+        this.socket = new MessageStreamWriter.NioChannel<W>(newSocket, charset, ser.getWriter(), config.getTopicAliases());
+        if (config.getHandshakeFeatures() != 0) {
+            this.socket.writeHandshake(ProtocolFeatures.VERSION, config.getHandshakeFeatures());
+        }
         this.remoteSubscriptions.onConnect();
         final AtomicBoolean lastRead = new AtomicBoolean(true);
         final Runnable reader = () -> {
-            final JetlangRemotingProtocol protocol = new JetlangRemotingProtocol<R>(protocolHandler, ser.getReader(), config.createTopicReader(charset));
+            final JetlangRemotingProtocol protocol = new JetlangRemotingProtocol<R>(protocolHandler, ser.getReader(), config.createTopicReader(charset), config.getReadBufferPolicy());
+            if (config.getChunkedMessageHandler() != null) {
+                protocol.setChunkedMessages(config.getChunkThresholdBytes(), config.getChunkedMessageHandler());
+            }
             final JetlangRemotingInputStream inputStream = new JetlangRemotingInputStream(newSocket, protocol, onReadTimeout);
             try {
                 Connected.publish(new ConnectEvent());
@@ -208,6 +252,8 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
                 }
             } catch (IOException failed) {
                 handleReadExceptionOnSendFiber(failed);
+            } finally {
+                protocol.releaseBuffer();
             }
         };
         Thread readThread = new Thread(reader, getClass().getSimpleName());
@@ -285,27 +331,39 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
         throw new RuntimeException("Already closed.");
     }
 
-    private class Req<T> {
-        final DisposingExecutor fiber;
-        final Callback<T> cb;
-        private final AtomicBoolean disposed;
+    private class Req<T> extends PendingRequest<T> {
+        private final String topic;
+        private final W msg;
 
-        public Req(DisposingExecutor fiber, Callback<T> cb, AtomicBoolean disposed) {
-            this.fiber = fiber;
-            this.cb = cb;
-            this.disposed = disposed;
+        public Req(int id, String topic, W msg, DisposingExecutor fiber, Callback<T> cb, Callback<TimeoutControls> onTimeout, long timeoutAt) {
+            super(id, pendingRequests, fiber, cb, onTimeout, timeoutAt);
+            this.topic = topic;
+            this.msg = msg;
         }
 
-        public void onReply(final T reply) {
-            if (!disposed.get()) {
-                Runnable run = new Runnable() {
-                    public void run() {
-                        if (disposed.compareAndSet(false, true)) {
-                            cb.onMessage(reply);
-                        }
-                    }
-                };
-                fiber.execute(run);
+        /**
+         * Writes the request when first run on the send fiber, then delivers the reply on the target fiber.
+         */
+        @Override
+        public void run() {
+            if (state == NEW) {
+                send();
+            } else {
+                super.run();
+            }
+        }
+
+        private void send() {
+            if (hasTimeout()) {
+                addTimeout(this);
+            }
+            if (socket != null && markSent()) {
+                try {
+                    socket.writeRequest(id, topic, msg);
+                } catch (IOException e) {
+                    pendingRequests.remove(id);
+                    handleDisconnect(new CloseEvent.WriteException(e));
+                }
             }
         }
     }
@@ -314,40 +372,14 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
                                   final T req,
                                   final DisposingExecutor executor, final Callback<C> callback,
                                   final Callback<TimeoutControls> timeoutRunnable, int timeout, TimeUnit timeUnit) {
-        final AtomicBoolean disposed = new AtomicBoolean(false);
-        final int id = reqId.incrementAndGet();
-        Runnable reqSend = () -> {
-            if (!disposed.get()) {
-                if (socket != null) {
-                    pendingRequests.put(id, new Req<C>(executor, callback, disposed));
-                    try {
-                        socket.writeRequest(id, reqTopic, req);
-                    } catch (IOException e) {
-                        pendingRequests.remove(id);
-                        handleDisconnect(new CloseEvent.WriteException(e));
-                    }
-                }
-            }
-        };
-        sendFiber.execute(reqSend);
-        if (timeout > 0 && callback != null) {
-            Runnable onTimeout = () -> {
-                if (!disposed.get()) {
-                    TimeoutControls controls = () -> {
-                        disposed.set(true);
-                        pendingRequests.remove(id);
-                    };
-                    timeoutRunnable.onMessage(controls);
-                }
-            };
-            final Disposable disposable = sendFiber.schedule(onTimeout, timeout, timeUnit);
-            return () -> {
-                disposed.set(true);
-                disposable.dispose();
-            };
-        } else {
-            return () -> disposed.set(true);
+        final boolean hasTimeout = timeout > 0 && callback != null;
+        final long deadline = hasTimeout ? System.nanoTime() + timeUnit.toNanos(timeout) : 0;
+        final Req<C> r = new Req<>(reqId.incrementAndGet(), reqTopic, req, executor, callback, hasTimeout ? timeoutRunnable : null, deadline);
+        if (config.getRequestLatency() != null) {
+            r.startNanos = System.nanoTime();
         }
+        sendFiber.execute(r);
+        return r;
     }
 
 
@@ -372,8 +404,12 @@ public class JetlangTcpClient<R, W> implements JetlangClient<R, W> {
     }
 
     public <T extends W> void publish(final String topic, final T msg, final Runnable onSend) {
+        final Histogram publishLatency = config.getPublishLatency();
+        final long startNanos = publishLatency != null ? System.nanoTime() : 0;
         Runnable r = () -> {
             if(socketWriter.send(topic, msg)){
+                if (publishLatency != null)
+                    publishLatency.recordNanosSince(startNanos);
                 if (onSend != null)
                     onSend.run();
             }
@@ -19,22 +19,32 @@ import org.jetlang.remote.core.JetlangBuffer;
 import org.jetlang.remote.core.JetlangRemotingProtocol;
 import org.jetlang.remote.core.MsgTypes;
 import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.remote.core.ProtocolFeatures;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.TcpClientNioConfig;
 import org.jetlang.remote.core.TcpClientNioFiber;
+import org.jetlang.remote.core.TopicAliases;
 import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.core.TopicTrie;
+import org.jetlang.remote.metrics.ReadMetrics;
+import org.jetlang.remote.metrics.WriteMetrics;
 import org.jetlang.web.NioWriter;
 import org.jetlang.web.SendResult;
 
-import java.nio.ByteBuffer;
+import java.io.IOException;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -69,24 +79,45 @@ public class JetlangTcpNioClient<R, W> {
     private final AtomicBoolean lifecycleLock = new AtomicBoolean();
     private Stopper stopper = null;
 
+    private final AtomicInteger reqId = new AtomicInteger();
+    private final RequestTable<PendingRequest<?>> pendingRequests = new RequestTable<>(r -> r.id);
+    private final RequestTable<ReplyStreamRequest<?>> replyStreams = new RequestTable<>(r -> r.id);
+    private final TimeoutWheel timeouts;
+    private Disposable timeoutTick;
+    private static final SynchronousDisposingExecutor onReadThread = new SynchronousDisposingExecutor();
+
     interface Sender<W> {
 
-        ConnectedChannel<W> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter<W> objWriter, Charset charset, Subscriptions subscriptions);
+        ConnectedChannel<W> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter<W> objWriter, Charset charset, Subscriptions subscriptions, JetlangClientConfig config);
 
         SendResult publish(String topic, W msg);
 
+        SendResult request(int reqId, String topic, W msg);
+
+        SendResult requestStream(int reqId, String topic, W msg, int credits);
+
+        SendResult replyCredit(int reqId, int credits);
+
         void sendSubscription(String subject, int subscriptionType);
 
         SendResult publish(SendBuffer buffer);
 
         SendResult publishMsgType(int msgType);
+
+        void onHandshake(int features);
     }
 
     private static class Disconnected<T> implements Sender<T> {
 
         @Override
-        public ConnectedChannel<T> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter<T> objWriter, Charset charset, Subscriptions subscriptions) {
-            ConnectedChannel<T> connectedChannel = new ConnectedChannel<>(writer, objWriter, charset);
+        public ConnectedChannel<T> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter<T> objWriter, Charset charset, Subscriptions subscriptions, JetlangClientConfig config) {
+            ConnectedChannel<T> connectedChannel = new ConnectedChannel<>(writer, objWriter, charset, config.getTopicAliases(), config.createSendBuffer());
+            if (config.getWriteCoalescingThreshold() > 0) {
+                connectedChannel.coalesceWrites(nioFiber, config.getWriteCoalescingThreshold());
+            }
+            if (config.getHandshakeFeatures() != 0) {
+                connectedChannel.sendHandshake(config.getHandshakeFeatures());
+            }
             subscriptions.onConnect(connectedChannel);
             return connectedChannel;
         }
@@ -96,6 +127,21 @@ public class JetlangTcpNioClient<R, W> {
             return SendResult.Closed;
         }
 
+        @Override
+        public SendResult request(int reqId, String topic, T msg) {
+            return SendResult.Closed;
+        }
+
+        @Override
+        public SendResult requestStream(int reqId, String topic, T msg, int credits) {
+            return SendResult.Closed;
+        }
+
+        @Override
+        public SendResult replyCredit(int reqId, int credits) {
+            return SendResult.Closed;
+        }
+
         @Override
         public SendResult publish(SendBuffer buffer) {
             buffer.clear();
@@ -111,6 +157,11 @@ public class JetlangTcpNioClient<R, W> {
         public void sendSubscription(String subject, int subType) {
 
         }
+
+        @Override
+        public void onHandshake(int features) {
+
+        }
     }
 
     private static class ConnectedChannel<T> implements Sender<T> {
@@ -119,74 +170,207 @@ public class JetlangTcpNioClient<R, W> {
         private final ObjectByteWriter<T> objWriter;
         private final Charset charset;
         private final JetlangBuffer directMemoryBuffer;
-
-        public ConnectedChannel(NioWriter writer, ObjectByteWriter<T> objWriter, Charset charset) {
+        private final JetlangBuffer.GatheringWriter<SendResult> gatheringWriter;
+        private TopicAliases aliases;
+        private TopicAliases.Bindings bindings;
+        private NioFiber coalescingFiber;
+        private int coalescingThreshold;
+        private boolean flushQueued;
+        private boolean closed;
+
+        public ConnectedChannel(NioWriter writer, ObjectByteWriter<T> objWriter, Charset charset, boolean topicAliases, JetlangBuffer directMemoryBuffer) {
             this.writer = writer;
             this.objWriter = objWriter;
             this.charset = charset;
-            this.directMemoryBuffer = new JetlangBuffer(128);
+            this.directMemoryBuffer = directMemoryBuffer;
+            this.gatheringWriter = writer::send;
+            this.aliases = topicAliases ? new TopicAliases(charset) : null;
+            this.bindings = topicAliases ? new TopicAliases.Bindings() : null;
+        }
+
+        /**
+         * Appended messages are left in the buffer and written by the nio fiber, or once the threshold is reached.
+         */
+        void coalesceWrites(NioFiber fiber, int thresholdBytes) {
+            synchronized (directMemoryBuffer) {
+                this.coalescingFiber = fiber;
+                this.coalescingThreshold = thresholdBytes;
+            }
         }
 
         @Override
-        public ConnectedChannel<T> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter objWriter, Charset charset, Subscriptions subscriptions) {
+        public ConnectedChannel<T> connect(SocketChannel chan, NioFiber nioFiber, NioWriter writer, ObjectByteWriter objWriter, Charset charset, Subscriptions subscriptions, JetlangClientConfig config) {
             throw new RuntimeException("should not connect");
         }
 
         @Override
         public SendResult publish(String topic, T msg) {
             synchronized (directMemoryBuffer) {
-                directMemoryBuffer.appendMsg(topic, msg, objWriter, charset);
-                return flush();
+                final int start = directMemoryBuffer.position();
+                if (aliases != null) {
+                    directMemoryBuffer.appendMsg(topic, msg, objWriter, charset, aliases, bindings);
+                } else {
+                    directMemoryBuffer.appendMsg(topic, msg, objWriter, charset);
+                }
+                return flush(start);
+            }
+        }
+
+        @Override
+        public SendResult request(int reqId, String topic, T msg) {
+            synchronized (directMemoryBuffer) {
+                final int start = directMemoryBuffer.position();
+                directMemoryBuffer.appendRequest(reqId, topic, msg, objWriter, charset);
+                return flush(start);
+            }
+        }
+
+        @Override
+        public SendResult requestStream(int reqId, String topic, T msg, int credits) {
+            synchronized (directMemoryBuffer) {
+                final int start = directMemoryBuffer.position();
+                directMemoryBuffer.appendRequest(reqId, topic, msg, objWriter, charset);
+                directMemoryBuffer.appendReplyCredit(reqId, credits);
+                return flush(start);
+            }
+        }
+
+        @Override
+        public SendResult replyCredit(int reqId, int credits) {
+            synchronized (directMemoryBuffer) {
+                final int start = directMemoryBuffer.position();
+                directMemoryBuffer.appendReplyCredit(reqId, credits);
+                return flush(start);
+            }
+        }
+
+        void sendHandshake(int features) {
+            synchronized (directMemoryBuffer) {
+                final int start = directMemoryBuffer.position();
+                directMemoryBuffer.appendHandshake(ProtocolFeatures.VERSION, features);
+                flush(start);
+            }
+        }
+
+        @Override
+        public void onHandshake(int features) {
+            synchronized (directMemoryBuffer) {
+                if (ProtocolFeatures.isEnabled(features, ProtocolFeatures.TopicAliases) && aliases == null) {
+                    aliases = new TopicAliases(charset);
+                    bindings = new TopicAliases.Bindings();
+                }
+                directMemoryBuffer.setVarInts(ProtocolFeatures.isEnabled(features, ProtocolFeatures.VarInts));
             }
         }
 
         @Override
         public SendResult publishMsgType(int msgType) {
             synchronized (directMemoryBuffer){
+                final int start = directMemoryBuffer.position();
                 directMemoryBuffer.appendIntAsByte(msgType);
-                return flush();
+                return flush(start);
             }
         }
 
-        private SendResult flush() {
-            final ByteBuffer buffer = directMemoryBuffer.getBuffer();
-            buffer.flip();
-            return flush(buffer);
+        /**
+         * @param start position of the appended message, so a coalesced message is reported as Buffered
+         */
+        private SendResult flush(int start) {
+            if (closed) {
+                directMemoryBuffer.clear();
+                return SendResult.Closed;
+            }
+            final int position = directMemoryBuffer.position();
+            if (coalescingFiber != null && position < coalescingThreshold) {
+                if (!flushQueued) {
+                    flushQueued = true;
+                    coalescingFiber.execute(this::flushQueuedWrites);
+                }
+                return new SendResult.Buffered(position - start, position);
+            }
+            return write();
         }
 
-        private SendResult flush(ByteBuffer buffer) {
-            SendResult send = writer.send(buffer);
-            buffer.clear();
+        private void flushQueuedWrites() {
+            synchronized (directMemoryBuffer) {
+                flushQueued = false;
+                if (!closed) {
+                    write();
+                }
+            }
+        }
+
+        private SendResult write() {
+            if (directMemoryBuffer.position() == 0) {
+                return SendResult.SUCCESS;
+            }
+            SendResult send = directMemoryBuffer.writeTo(gatheringWriter);
+            directMemoryBuffer.clear();
+            if (!send.isAccepted() && bindings != null) {
+                //the write may have carried alias bindings
+                bindings.clear();
+            }
             return send;
         }
 
         @Override
         public SendResult publish(SendBuffer buffer) {
-            return flush(buffer.getBuffer());
+            if (coalescingFiber != null) {
+                synchronized (directMemoryBuffer) {
+                    //keep order with coalesced messages
+                    write();
+                }
+            }
+            SendResult send = buffer.sendTo(writer);
+            buffer.clear();
+            return send;
         }
 
         @Override
         public void sendSubscription(String subject, int msgType) {
             synchronized (directMemoryBuffer){
+                final int start = directMemoryBuffer.position();
                 directMemoryBuffer.appendSubscription(subject, msgType, charset);
-                flush();
+                flush(start);
             }
         }
 
         public Disconnected<T> onDisconnect() {
+            synchronized (directMemoryBuffer) {
+                //callers still holding this channel get Closed
+                closed = true;
+                directMemoryBuffer.clear();
+            }
             return new Disconnected<>();
         }
     }
 
+    private interface ReplyStreamDispatcher<R> {
+
+        void onReplyPart(int reqId, R part);
+
+        void onReplyEnd(int reqId);
+
+        void onDisconnect();
+    }
+
     private static class Sub<T> {
 
         private final String subject;
         private final CloseableChannel<T> channel;
+        private final int subscribeType;
+        private final int unsubscribeType;
         private Sender sender;
 
         public Sub(String subject, CloseableChannel<T> channel) {
+            this(subject, channel, MsgTypes.Subscription, MsgTypes.Unsubscribe);
+        }
+
+        public Sub(String subject, CloseableChannel<T> channel, int subscribeType, int unsubscribeType) {
             this.subject = subject;
             this.channel = channel;
+            this.subscribeType = subscribeType;
+            this.unsubscribeType = unsubscribeType;
         }
 
         public Disposable subscribe(Subscribable<T> tChannelSubscription, Sender channel) {
@@ -201,14 +385,14 @@ public class JetlangTcpNioClient<R, W> {
         private void onConnect(Sender channel) {
             this.sender = channel;
             if(this.channel.subscriptionCount() > 0) {
-                sender.sendSubscription(subject, MsgTypes.Subscription);
+                sender.sendSubscription(subject, subscribeType);
             }
         }
 
         public void onUnsubscription(Disposable unsub) {
             unsub.dispose();
             if(channel.subscriptionCount() == 0){
-                sender.sendSubscription(subject, MsgTypes.Unsubscribe);
+                sender.sendSubscription(subject, unsubscribeType);
             }
         }
     }
@@ -216,6 +400,10 @@ public class JetlangTcpNioClient<R, W> {
     private static class Subscriptions implements JetlangRemotingProtocol.MessageDispatcher {
 
         private final Map<String, Sub> remoteSubscriptions = new LinkedHashMap<String, Sub>();
+        private final Map<String, Sub<?>> patternSubscriptions = new LinkedHashMap<>();
+        private final TopicTrie<Sub<?>> patterns = new TopicTrie<>();
+        //only used by the read thread
+        private final List<Sub<?>> matched = new ArrayList<>();
 
         private final CloseableChannel.Group channelsToClose;
 
@@ -228,11 +416,17 @@ public class JetlangTcpNioClient<R, W> {
             Sub<R> channel;
             synchronized (remoteSubscriptions) {
                 channel = (Sub<R>) remoteSubscriptions.get(dataTopicVal);
+                patterns.forEachMatch(dataTopicVal, matched::add);
             }
             if (channel != null) {
                 channel.channel.publish(readObject);
             }
-
+            if (!matched.isEmpty()) {
+                for (int i = 0; i < matched.size(); i++) {
+                    publish(matched.get(i), readObject);
+                }
+                matched.clear();
+            }
         }
 
         public <T> Disposable subscribe(String subject, Subscribable<T> tChannelSubscription, Sender channel) {
@@ -252,11 +446,41 @@ public class JetlangTcpNioClient<R, W> {
             }
         }
 
+        //subscribers to a pattern pick the message type, so it is only known to match by contract
+        @SuppressWarnings("unchecked")
+        private static <T> void publish(Sub<T> sub, Object readObject) {
+            sub.channel.publish((T) readObject);
+        }
+
+        public <T> Disposable subscribePattern(String pattern, Subscribable<T> tChannelSubscription, Sender<?> channel) {
+            TopicTrie.validate(pattern);
+            synchronized (remoteSubscriptions) {
+                @SuppressWarnings("unchecked")
+                Sub<T> chan = (Sub<T>) patternSubscriptions.get(pattern);
+                if (chan == null) {
+                    chan = new Sub<>(pattern, channelsToClose.add(new MemoryChannel<>()),
+                            MsgTypes.PatternSubscription, MsgTypes.PatternUnsubscribe);
+                    patternSubscriptions.put(pattern, chan);
+                    patterns.add(pattern, chan);
+                }
+                Disposable unsub = chan.subscribe(tChannelSubscription, channel);
+                final Sub<T> finalChan = chan;
+                return () -> {
+                    synchronized (remoteSubscriptions) {
+                        finalChan.onUnsubscription(unsub);
+                    }
+                };
+            }
+        }
+
         public void onConnect(ConnectedChannel connectedChannel) {
             synchronized (remoteSubscriptions){
                 for (Sub<?> value : remoteSubscriptions.values()) {
                     value.onConnect(connectedChannel);
                 }
+                for (Sub<?> value : patternSubscriptions.values()) {
+                    value.onConnect(connectedChannel);
+                }
             }
         }
     }
@@ -270,11 +494,74 @@ public class JetlangTcpNioClient<R, W> {
         this.clientFactory = new JetlangClientFactory<>(ser, topicReader,
                 Connected, readTimeout, Closed, config,
                 socketConnector.getReadTimeoutInMs(), channelsToClose, logoutLatch, errorHandler, hb,
-                (ReplyHandler<R>) (reqId, dataTopicVal, readObject) -> replyHandler.onReply(reqId, dataTopicVal, readObject));
+                (ReplyHandler<R>) this::onReply, new ReplyStreamDispatcher<R>() {
+                    @Override
+                    public void onReplyPart(int reqId, R part) {
+                        //the requester picks the part type, so it is only known to match by contract
+                        @SuppressWarnings("unchecked")
+                        ReplyStreamRequest<R> r = (ReplyStreamRequest<R>) replyStreams.get(reqId);
+                        if (r != null) {
+                            r.onPart(part);
+                        }
+                    }
+
+                    @Override
+                    public void onReplyEnd(int reqId) {
+                        ReplyStreamRequest<?> r = replyStreams.remove(reqId);
+                        if (r != null) {
+                            r.onEnd();
+                        }
+                    }
+
+                    @Override
+                    public void onDisconnect() {
+                        replyStreams.removeAll(ReplyStreamRequest::onDisconnect);
+                        IOException disconnected = new IOException("Disconnected before reply");
+                        pendingRequests.removeAll(r -> r.fail(disconnected));
+                    }
+                });
         this.config = config;
         this.ser = ser;
         this.errorHandler = errorHandler;
         this.readFiber = readFiber;
+        if (config.getMetrics() != null) {
+            readFiber.setMetrics(config.getMetrics());
+        }
+        this.timeouts = new TimeoutWheel(config.getRequestTimeoutTickInMs(), TimeUnit.MILLISECONDS, 512, System.nanoTime());
+    }
+
+    private void onReply(int id, String dataTopicVal, R readObject) {
+        //the requester picks the reply type, so it is only known to match by contract
+        @SuppressWarnings("unchecked")
+        PendingRequest<R> r = (PendingRequest<R>) pendingRequests.remove(id);
+        if (r != null) {
+            if (config.getRequestLatency() != null) {
+                config.getRequestLatency().recordNanosSince(r.startNanos);
+            }
+            r.onReply(readObject);
+        } else {
+            replyHandler.onReply(id, dataTopicVal, readObject);
+        }
+    }
+
+    private void addTimeout(PendingRequest<?> r) {
+        synchronized (timeouts) {
+            timeouts.add(r, r.timeoutAt);
+            if (timeoutTick == null) {
+                int tick = config.getRequestTimeoutTickInMs();
+                timeoutTick = readFiber.getFiber().scheduleWithFixedDelay(this::expireTimeouts, tick, tick, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void expireTimeouts() {
+        synchronized (timeouts) {
+            timeouts.advance(System.nanoTime());
+            if (timeouts.isEmpty() && timeoutTick != null) {
+                timeoutTick.dispose();
+                timeoutTick = null;
+            }
+        }
     }
 
     public void setReplyHandler(ReplyHandler<R> replyHandler) {
@@ -404,6 +691,18 @@ public class JetlangTcpNioClient<R, W> {
         return clientFactory.subscribe(topic, tChannelSubscription);
     }
 
+    /**
+     * Receives every topic matching the pattern, e.g. "prices.NYSE.*" or "prices.>". See {@link TopicTrie} for the
+     * syntax. The acceptor must support {@link org.jetlang.remote.core.ProtocolFeatures#PatternSubscriptions}.
+     */
+    public <T extends R> Disposable subscribePattern(String pattern, DisposingExecutor executor, Callback<T> msg) {
+        return subscribePattern(pattern, new ChannelSubscription<>(executor, msg));
+    }
+
+    public <T extends R> Disposable subscribePattern(String pattern, Subscribable<T> tChannelSubscription) {
+        return clientFactory.subscribePattern(pattern, tChannelSubscription);
+    }
+
     public SendResult publish(String topic, W msg) {
         return clientFactory.publish(topic, msg);
     }
@@ -412,6 +711,82 @@ public class JetlangTcpNioClient<R, W> {
         return clientFactory.publish(buffer);
     }
 
+    /**
+     * Sends a request without waiting for the reply, so any number of requests can be in flight on the connection.
+     * The reply is delivered on the executor. Timeouts are delivered on the read thread. A request that can't be
+     * sent, or is still waiting for its reply when the connection drops, is reported through the timeout callback
+     * at once on the read thread. A request without a timeout is then discarded.
+     *
+     * @return disposable that cancels the request
+     */
+    public <C extends R> Disposable request(String topic, W msg, DisposingExecutor executor, Callback<C> onReply,
+                                            Callback<TimeoutControls> onTimeout, int timeout, TimeUnit unit) {
+        return request(topic, msg, executor, onReply, onTimeout, timeout, unit, null);
+    }
+
+    private <C extends R> PendingRequest<C> request(String topic, W msg, DisposingExecutor executor, Callback<C> onReply,
+                                                    Callback<TimeoutControls> onTimeout, int timeout, TimeUnit unit,
+                                                    Callback<Exception> onFailed) {
+        final boolean hasTimeout = timeout > 0 && onTimeout != null;
+        final long deadline = hasTimeout ? System.nanoTime() + unit.toNanos(timeout) : 0;
+        PendingRequest<C> r = new PendingRequest<>(reqId.incrementAndGet(), pendingRequests, executor, onReply,
+                hasTimeout ? onTimeout : null, deadline);
+        r.onFailed = onFailed;
+        if (config.getRequestLatency() != null) {
+            r.startNanos = System.nanoTime();
+        }
+        if (hasTimeout) {
+            addTimeout(r);
+        }
+        if (r.markSent()) {
+            SendResult result = clientFactory.request(r.id, topic, msg);
+            if (!result.isAccepted() && pendingRequests.remove(r.id) != null) {
+                Exception cause = result instanceof SendResult.FailedWithError
+                        ? ((SendResult.FailedWithError) result).getFailed()
+                        : new IOException(topic + " request not sent: " + result);
+                readFiber.getFiber().execute(() -> r.fail(cause));
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Sends a request that is answered with a stream of parts, for results too large for one reply. The acceptor
+     * sends up to initialCredits parts and waits for more credit from {@link ReplyStreamRequest#request(int)}.
+     * Parts are delivered in order on the executor. The acceptor must support
+     * {@link org.jetlang.remote.core.ProtocolFeatures#ReplyStreams}.
+     */
+    public <C extends R> ReplyStreamRequest<C> requestStream(String topic, W msg, DisposingExecutor executor,
+                                                             ReplyStreamHandler<C> handler, int initialCredits) {
+        ReplyStreamRequest<C> r = new ReplyStreamRequest<>(reqId.incrementAndGet(), replyStreams, executor, handler,
+                clientFactory::replyCredit);
+        replyStreams.put(r.id, r);
+        SendResult result = clientFactory.requestStream(r.id, topic, msg, initialCredits);
+        if (!result.isAccepted() && replyStreams.remove(r.id) != null) {
+            r.onDisconnect();
+        }
+        return r;
+    }
+
+    /**
+     * Sends a request and completes the future with the reply on the read thread. The future fails with a
+     * TimeoutException if no reply arrives in time, or with an IOException if the request can't be sent or the
+     * connection drops first. Cancelling the future cancels the request.
+     */
+    public <C extends R> CompletableFuture<C> request(String topic, W msg, int timeout, TimeUnit unit) {
+        final CompletableFuture<C> future = new CompletableFuture<>();
+        Disposable req = request(topic, msg, onReadThread, future::complete, (controls) -> {
+            controls.cancelRequest();
+            future.completeExceptionally(new TimeoutException(topic + " timed out after " + timeout + " " + unit));
+        }, timeout, unit, future::completeExceptionally);
+        future.whenComplete((reply, err) -> {
+            if (future.isCancelled()) {
+                req.dispose();
+            }
+        });
+        return future;
+    }
+
     public interface ReplyHandler<R> {
 
         void onReply(int reqId, String dataTopicVal, R readObject);
@@ -431,6 +806,7 @@ public class JetlangTcpNioClient<R, W> {
         private final Subscriptions subscriptions;
         private final Publisher<HeartbeatEvent> hb;
         private ReplyHandler replyHandler;
+        private final ReplyStreamDispatcher<R> replyStreams;
 
         private volatile Sender<W> channel;
 
@@ -445,11 +821,13 @@ public class JetlangTcpNioClient<R, W> {
                                     CountDownLatch logoutLatch,
                                     ErrorHandler errorHandler,
                                     Publisher<HeartbeatEvent> hb,
-                                    ReplyHandler replyHandler) {
+                                    ReplyHandler replyHandler,
+                                    ReplyStreamDispatcher<R> replyStreams) {
             this.ser = ser;
             this.subscriptions = new Subscriptions(channelsToClose);
             this.hb = hb;
             this.replyHandler = replyHandler;
+            this.replyStreams = replyStreams;
             this.channel = new Disconnected<>();
             this.topicReader = topicReader;
             this.connectEventChannel = connectEventChannel;
@@ -473,10 +851,32 @@ public class JetlangTcpNioClient<R, W> {
                 public void onRequestReply(int reqId, String dataTopicVal, R readObject) {
                     replyHandler.onReply(reqId, dataTopicVal, readObject);
                 }
+
+                @Override
+                public void onHandshake(int version, int features) {
+                    channel.onHandshake(features);
+                }
+
+                @Override
+                public void onReplyPart(int reqId, String dataTopicVal, R readObject) {
+                    replyStreams.onReplyPart(reqId, readObject);
+                }
+
+                @Override
+                public void onReplyEnd(int reqId) {
+                    replyStreams.onReplyEnd(reqId);
+                }
             };
             NioJetlangProtocolReader<R> reader = new NioJetlangProtocolReader<R>(chan, msgHandler, ser.getReader(), topicReader,
-                    () -> timeout.publish(new ReadTimeoutEvent()));
-            ConnectedChannel<W> connect = channel.connect(chan, nioFiber, writer, ser.getWriter(), JetlangTcpClient.charset, subscriptions);
+                    () -> timeout.publish(new ReadTimeoutEvent()), config.getReadBufferPolicy());
+            if (config.getMetrics() != null) {
+                reader.setMetrics(new ReadMetrics(config.getMetrics(), "jetlang_client"));
+                writer.setMetrics(new WriteMetrics(config.getMetrics(), "jetlang_client"));
+            }
+            if (config.getChunkedMessageHandler() != null) {
+                reader.setChunkedMessages(config.getChunkThresholdBytes(), config.getChunkedMessageHandler());
+            }
+            ConnectedChannel<W> connect = channel.connect(chan, nioFiber, writer, ser.getWriter(), JetlangTcpClient.charset, subscriptions, config);
             this.channel = connect;
             this.connectEventChannel.publish(new ConnectEvent());
 
@@ -499,7 +899,9 @@ public class JetlangTcpNioClient<R, W> {
                 public void onDisconnect() {
                     readTimeout.dispose();
                     hbSched.dispose();
+                    reader.onClosed();
                     JetlangClientFactory.this.channel = connect.onDisconnect();
+                    replyStreams.onDisconnect();
                     //TODO distinquish disconnects
                     closed.publish(new CloseEvent.GracefulDisconnect());
                 }
@@ -511,15 +913,31 @@ public class JetlangTcpNioClient<R, W> {
         }
 
         public boolean sendLogoutIfConnected() {
-            return channel.publishMsgType(MsgTypes.Disconnect).equals(SendResult.SUCCESS);
+            return channel.publishMsgType(MsgTypes.Disconnect).isAccepted();
         }
 
         public <T extends R> Disposable subscribe(String topic, Subscribable<T> tChannelSubscription) {
             return subscriptions.subscribe(topic, tChannelSubscription, channel);
         }
 
+        public <T extends R> Disposable subscribePattern(String pattern, Subscribable<T> tChannelSubscription) {
+            return subscriptions.subscribePattern(pattern, tChannelSubscription, channel);
+        }
+
         public SendResult publish(SendBuffer buffer) {
             return channel.publish(buffer);
         }
+
+        public SendResult request(int reqId, String topic, W msg) {
+            return channel.request(reqId, topic, msg);
+        }
+
+        public SendResult requestStream(int reqId, String topic, W msg, int credits) {
+            return channel.requestStream(reqId, topic, msg, credits);
+        }
+
+        public SendResult replyCredit(int reqId, int credits) {
+            return channel.replyCredit(reqId, credits);
+        }
     }
 }
@@ -0,0 +1,116 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * State of one outstanding request. The same object is the entry in the {@link RequestTable}, the
+ * {@link TimeoutWheel} entry, the runnable that delivers the reply on the target executor, the
+ * {@link TimeoutControls} and the Disposable handed back to the caller, so a request costs one allocation.
+ */
+class PendingRequest<T> extends TimeoutWheel.Entry implements Runnable, Disposable, TimeoutControls {
+    static final int NEW = 0;
+    static final int SENT = 1;
+    static final int REPLIED = 2;
+    static final int DONE = 3;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PendingRequest> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(PendingRequest.class, "state");
+
+    final int id;
+    final long timeoutAt;
+    private final RequestTable<PendingRequest<?>> pending;
+    private final DisposingExecutor executor;
+    private final Callback<T> onReply;
+    private final Callback<TimeoutControls> onTimeout;
+    //optional. set before the request is sent
+    Callback<Exception> onFailed;
+    volatile int state = NEW;
+    private T reply;
+    //set when request latency is recorded
+    long startNanos;
+
+    /**
+     * @param onTimeout null if the request has no timeout
+     */
+    PendingRequest(int id, RequestTable<PendingRequest<?>> pending, DisposingExecutor executor, Callback<T> onReply,
+                   Callback<TimeoutControls> onTimeout, long timeoutAt) {
+        this.id = id;
+        this.pending = pending;
+        this.executor = executor;
+        this.onReply = onReply;
+        this.onTimeout = onTimeout;
+        this.timeoutAt = timeoutAt;
+    }
+
+    boolean hasTimeout() {
+        return onTimeout != null;
+    }
+
+    /**
+     * Adds the request to the table unless it was disposed first. Must happen before the request is written so
+     * the reply can't arrive before it is pending.
+     */
+    boolean markSent() {
+        if (stateUpdater.compareAndSet(this, NEW, SENT)) {
+            pending.put(id, this);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called after the request was taken out of the table by its reply.
+     */
+    void onReply(T reply) {
+        this.reply = reply;
+        if (stateUpdater.compareAndSet(this, SENT, REPLIED)) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Called after the request was taken out of the table because no reply can arrive: it wasn't sent or the
+     * connection dropped. Reported at once through onFailed, or else the timeout callback. A request with neither
+     * is discarded.
+     */
+    void fail(Exception cause) {
+        if (stateUpdater.compareAndSet(this, SENT, DONE)) {
+            if (onFailed != null) {
+                onFailed.onMessage(cause);
+            } else if (onTimeout != null) {
+                onTimeout.onMessage(this);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        if (stateUpdater.compareAndSet(this, REPLIED, DONE)) {
+            onReply.onMessage(reply);
+        }
+    }
+
+    @Override
+    protected void onTimeout() {
+        final int current = state;
+        if (current == NEW || current == SENT) {
+            onTimeout.onMessage(this);
+        }
+    }
+
+    @Override
+    public void cancelRequest() {
+        dispose();
+    }
+
+    @Override
+    public void dispose() {
+        if (stateUpdater.getAndSet(this, DONE) == SENT) {
+            pending.remove(id);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.jetlang.remote.client;
+
+/**
+ * Receives the parts of a reply stream in order.
+ */
+public interface ReplyStreamHandler<T> {
+
+    void onPart(T part);
+
+    void onEnd();
+
+    /**
+     * The connection closed before the stream ended. No more parts will arrive.
+     */
+    default void onDisconnect() {
+    }
+}
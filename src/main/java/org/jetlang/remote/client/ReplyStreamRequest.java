@@ -0,0 +1,74 @@
+package org.jetlang.remote.client;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.web.SendResult;
+
+/**
+ * Requester side of a reply stream. The acceptor sends no more parts than the credit granted, so grant more with
+ * {@link #request(int)} as parts are consumed. Disposing cancels the stream.
+ */
+public class ReplyStreamRequest<T> implements Disposable {
+
+    interface CreditSender {
+        SendResult sendCredit(int reqId, int credits);
+    }
+
+    final int id;
+    private final RequestTable<ReplyStreamRequest<?>> streams;
+    private final DisposingExecutor executor;
+    private final ReplyStreamHandler<T> handler;
+    private final CreditSender sender;
+    private volatile boolean disposed;
+
+    ReplyStreamRequest(int id, RequestTable<ReplyStreamRequest<?>> streams, DisposingExecutor executor,
+                       ReplyStreamHandler<T> handler, CreditSender sender) {
+        this.id = id;
+        this.streams = streams;
+        this.executor = executor;
+        this.handler = handler;
+        this.sender = sender;
+    }
+
+    /**
+     * Grants credit for more parts.
+     */
+    public SendResult request(int credits) {
+        if (disposed || credits <= 0) {
+            return SendResult.Closed;
+        }
+        return sender.sendCredit(id, credits);
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        if (streams.remove(id) != null) {
+            sender.sendCredit(id, 0);
+        }
+    }
+
+    void onPart(T part) {
+        executor.execute(() -> {
+            if (!disposed) {
+                handler.onPart(part);
+            }
+        });
+    }
+
+    void onEnd() {
+        executor.execute(() -> {
+            if (!disposed) {
+                handler.onEnd();
+            }
+        });
+    }
+
+    void onDisconnect() {
+        executor.execute(() -> {
+            if (!disposed) {
+                handler.onDisconnect();
+            }
+        });
+    }
+}
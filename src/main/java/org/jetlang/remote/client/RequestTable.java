@@ -0,0 +1,115 @@
+package org.jetlang.remote.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lock free table of pending requests keyed by request id. Ids are handed out sequentially, so each id is mapped
+ * straight to slot {@code id & (capacity - 1)} and lookups never probe or box. The rare request that finds
+ * its slot still held by one issued {@code capacity} requests earlier goes to a synchronized overflow map.
+ */
+public class RequestTable<T> {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final ToIntFunction<T> idOf;
+    private final Map<Integer, T> overflow = new HashMap<>();
+    private volatile int overflowSize;
+
+    public RequestTable(ToIntFunction<T> idOf) {
+        this(DEFAULT_CAPACITY, idOf);
+    }
+
+    /**
+     * @param capacity rounded up to a power of 2. Should exceed the number of requests normally in flight.
+     */
+    public RequestTable(int capacity, ToIntFunction<T> idOf) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.idOf = idOf;
+    }
+
+    public void put(int id, T value) {
+        if (!slots.compareAndSet(id & mask, null, value)) {
+            synchronized (overflow) {
+                overflow.put(id, value);
+                overflowSize = overflow.size();
+            }
+        }
+    }
+
+    /**
+     * @return the value or null if no longer pending
+     */
+    public T remove(int id) {
+        final int slot = id & mask;
+        final T value = slots.get(slot);
+        if (value != null && idOf.applyAsInt(value) == id && slots.compareAndSet(slot, value, null)) {
+            return value;
+        }
+        if (overflowSize > 0) {
+            synchronized (overflow) {
+                T removed = overflow.remove(id);
+                overflowSize = overflow.size();
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value or null if not pending
+     */
+    public T get(int id) {
+        final T value = slots.get(id & mask);
+        if (value != null && idOf.applyAsInt(value) == id) {
+            return value;
+        }
+        if (overflowSize > 0) {
+            synchronized (overflow) {
+                return overflow.get(id);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes every pending value.
+     */
+    public void removeAll(Consumer<T> onRemoved) {
+        for (int i = 0; i < slots.length(); i++) {
+            final T value = slots.getAndSet(i, null);
+            if (value != null) {
+                onRemoved.accept(value);
+            }
+        }
+        if (overflowSize > 0) {
+            final List<T> values;
+            synchronized (overflow) {
+                values = new ArrayList<>(overflow.values());
+                overflow.clear();
+                overflowSize = 0;
+            }
+            for (T value : values) {
+                onRemoved.accept(value);
+            }
+        }
+    }
+
+    public int size() {
+        int count = overflowSize;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
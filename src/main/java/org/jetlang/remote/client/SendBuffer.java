@@ -1,7 +1,10 @@
 package org.jetlang.remote.client;
 
+import org.jetlang.remote.core.BufferChunkPool;
 import org.jetlang.remote.core.JetlangBuffer;
 import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.web.SendResult;
+import org.jetlang.web.SocketWriter;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -12,15 +15,40 @@ import java.nio.charset.Charset;
 public class SendBuffer {
 
     private final JetlangBuffer buffer;
+    private final boolean segmented;
 
     public SendBuffer(int initialSize){
         this.buffer = new JetlangBuffer(initialSize);
+        this.segmented = false;
     }
 
+    /**
+     * Creates a segmented buffer that fills chunks from the pool. Large batches are sent without copying them
+     * into one contiguous buffer.
+     */
+    public SendBuffer(BufferChunkPool pool){
+        this.buffer = new JetlangBuffer(pool);
+        this.segmented = true;
+    }
+
+    /**
+     * Only valid for unsegmented buffers, or segmented ones that still fit in one chunk.
+     */
     public ByteBuffer getBuffer() {
         return buffer.getBuffer();
     }
 
+    /**
+     * A segmented buffer sends everything appended since the last clear with one gathering write. An unsegmented
+     * buffer sends getBuffer() from its position to its limit, so it must be flipped first.
+     */
+    public SendResult sendTo(SocketWriter writer) {
+        if (segmented) {
+            return buffer.writeTo(writer::send);
+        }
+        return writer.send(buffer.getBuffer());
+    }
+
     public void appendMsg(byte[] topicBytes, ByteBuffer msg){
         this.buffer.appendMsg(topicBytes, msg);
     }
@@ -0,0 +1,97 @@
+package org.jetlang.remote.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel for request deadlines. Entries are linked into the bucket for their deadline tick, so
+ * adding a timeout allocates nothing and one periodic task expires every outstanding request. Deadlines fire
+ * up to one tick late.
+ * <p>
+ * Not thread safe. Must be used from a single fiber.
+ */
+public class TimeoutWheel {
+
+    public abstract static class Entry {
+        private long deadline;
+        private Entry next;
+
+        /**
+         * Called once the deadline has passed. Entries that are no longer pending should ignore the call.
+         */
+        protected abstract void onTimeout();
+    }
+
+    private final Entry[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos;
+    private long currentTick;
+    private int size;
+
+    public TimeoutWheel(long tick, TimeUnit unit, int bucketCount, long nowNanos) {
+        int count = Integer.highestOneBit(Math.max(bucketCount, 2) - 1) << 1;
+        this.buckets = new Entry[count];
+        this.mask = count - 1;
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.startNanos = nowNanos;
+    }
+
+    public void add(Entry entry, long deadlineNanos) {
+        entry.deadline = deadlineNanos;
+        long elapsed = deadlineNanos - startNanos;
+        long tick = Math.max(currentTick, elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos);
+        int bucket = (int) (tick & mask);
+        entry.next = buckets[bucket];
+        buckets[bucket] = entry;
+        size++;
+    }
+
+    /**
+     * Expires every entry with a deadline at or before now.
+     *
+     * @return the number of expired entries
+     */
+    public int advance(long nowNanos) {
+        final long target = (nowNanos - startNanos) / tickNanos;
+        int expired = 0;
+        //a full turn visits every bucket, so there's no need to go further when the wheel falls behind
+        final long last = Math.min(target, currentTick + mask);
+        for (; currentTick <= last; currentTick++) {
+            expired += expire((int) (currentTick & mask), nowNanos);
+        }
+        if (currentTick <= target) {
+            currentTick = target + 1;
+        }
+        return expired;
+    }
+
+    private int expire(int bucket, long nowNanos) {
+        int expired = 0;
+        //detach the whole list first so a callback can safely add entries
+        Entry e = buckets[bucket];
+        buckets[bucket] = null;
+        while (e != null) {
+            final Entry next = e.next;
+            //entries for later turns of the wheel go back in the bucket
+            if (e.deadline - nowNanos <= 0) {
+                e.next = null;
+                size--;
+                expired++;
+                e.onTimeout();
+            } else {
+                e.next = buckets[bucket];
+                buckets[bucket] = e;
+            }
+            e = next;
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
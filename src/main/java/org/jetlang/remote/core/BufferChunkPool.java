@@ -0,0 +1,70 @@
+package org.jetlang.remote.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * Pool of fixed size direct buffers used by segmented {@link JetlangBuffer}s. Thread safe, so one pool can be
+ * shared by every buffer in the process.
+ */
+public class BufferChunkPool {
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 256;
+
+    private final int chunkSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    private long allocated;
+
+    public BufferChunkPool() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * @param chunkSize size of each pooled chunk in bytes
+     * @param maxPooled max number of released chunks kept for reuse. Chunks released beyond this are left for gc.
+     */
+    public BufferChunkPool(int chunkSize, int maxPooled) {
+        this.chunkSize = chunkSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public synchronized ByteBuffer take() {
+        ByteBuffer chunk = free.pollLast();
+        if (chunk != null) {
+            return chunk;
+        }
+        allocated++;
+        return allocate(chunkSize);
+    }
+
+    /**
+     * Returns a chunk to the pool. Buffers that didn't come from the pool are ignored.
+     */
+    public synchronized void release(ByteBuffer chunk) {
+        if (chunk.capacity() == chunkSize && free.size() < maxPooled) {
+            chunk.clear();
+            free.addLast(chunk);
+        }
+    }
+
+    public synchronized int getPooledCount() {
+        return free.size();
+    }
+
+    /**
+     * @return total chunks allocated by the pool
+     */
+    public synchronized long getAllocatedCount() {
+        return allocated;
+    }
+
+    static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.BIG_ENDIAN);
+    }
+}
@@ -43,6 +43,14 @@ public class ByteArrayBuffer {
         appendIntAsByte((v >>> 0) & 0xFF);
     }
 
+    public void appendVarInt(int v) {
+        while ((v & ~0x7F) != 0) {
+            appendIntAsByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        appendIntAsByte(v);
+    }
+
     public void append(byte[] bytes, int offset, int length) {
         resize(length);
         System.arraycopy(bytes, offset, buffer, position, length);
@@ -0,0 +1,101 @@
+package org.jetlang.remote.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zero copy serializer. The reader hands out a read-only view of the protocol buffer instead of copying
+ * each message into a new array.
+ * <p>
+ * The view is reused for every message and is only valid for the duration of the callback on the read thread, as
+ * it is moved to the next message and the protocol buffer is compacted and refilled by the next read. Handlers must
+ * decode or forward the bytes (e.g. publishRawMsg) before returning. Construct with copy enabled when messages are
+ * delivered to subscribers on other fibers.
+ */
+public class ByteBufferSerializer implements Serializer<ByteBuffer, ByteBuffer> {
+
+    public static class Writer implements ObjectByteWriter<ByteBuffer> {
+        @Override
+        public void write(String topic, ByteBuffer obj, ByteMessageWriter writer) {
+            int position = obj.position();
+            writer.writeObjectAsBytes(obj);
+            obj.position(position);
+        }
+    }
+
+    /**
+     * Returns a read-only view of the message in the protocol buffer. No bytes are copied. The same view is
+     * returned for every message, so it is only valid until the next read. Not thread safe.
+     */
+    public static class Reader implements ObjectByteReader<ByteBuffer> {
+        private ByteBuffer source;
+        private ByteBuffer view;
+
+        @Override
+        public ByteBuffer readObject(String fromTopic, ByteBuffer bb, int length) {
+            //the protocol buffer is only replaced when it grows
+            if (bb != source) {
+                source = bb;
+                view = bb.asReadOnlyBuffer();
+            }
+            view.limit(bb.position() + length);
+            view.position(bb.position());
+            return view;
+        }
+    }
+
+    /**
+     * Copies each message into its own heap buffer, so it can be queued to another fiber.
+     */
+    public static class Copying implements ObjectByteReader<ByteBuffer> {
+        @Override
+        public ByteBuffer readObject(String fromTopic, ByteBuffer bb, int length) {
+            ByteBuffer copy = ByteBuffer.allocate(length);
+            int limit = bb.limit();
+            bb.limit(bb.position() + length);
+            copy.put(bb);
+            bb.limit(limit);
+            copy.flip();
+            return copy;
+        }
+    }
+
+    private final Writer writer = new Writer();
+    private final ObjectByteReader<ByteBuffer> reader;
+
+    public ByteBufferSerializer() {
+        this(false);
+    }
+
+    public ByteBufferSerializer(boolean copy) {
+        this.reader = copy ? new Copying() : new Reader();
+    }
+
+    public ObjectByteWriter<ByteBuffer> getWriter() {
+        return writer;
+    }
+
+    public ObjectByteReader<ByteBuffer> getReader() {
+        return reader;
+    }
+
+    public static class Factory implements SerializerFactory<ByteBuffer, ByteBuffer> {
+        private final boolean copy;
+
+        public Factory() {
+            this(false);
+        }
+
+        public Factory(boolean copy) {
+            this.copy = copy;
+        }
+
+        public Serializer<ByteBuffer, ByteBuffer> create() {
+            return new ByteBufferSerializer(copy);
+        }
+
+        public ObjectByteWriter<ByteBuffer> createForGlobalWriter() {
+            return new Writer();
+        }
+
+    }
+}
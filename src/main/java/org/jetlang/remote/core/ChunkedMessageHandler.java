@@ -0,0 +1,19 @@
+package org.jetlang.remote.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives data messages above the chunk threshold as their bytes arrive rather than as one object, so a reader
+ * never buffers a whole large message. Called on the read thread.
+ */
+public interface ChunkedMessageHandler {
+
+    void onStart(String topic, int totalBytes);
+
+    /**
+     * @param chunk read only view of the next bytes of the message. Only valid during the call.
+     */
+    void onChunk(String topic, ByteBuffer chunk);
+
+    void onEnd(String topic);
+}
@@ -3,29 +3,74 @@ package org.jetlang.remote.core;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
+/**
+ * Encodes messages into direct memory. By default the bytes are held in one buffer that doubles when full.
+ * A buffer created with a {@link BufferChunkPool} is segmented instead: it fills pooled chunks and returns
+ * them to the pool on clear, so large messages never copy and never pin an oversized buffer. Segmented
+ * contents are sent with {@link #writeTo(GatheringWriter)}.
+ */
 public class JetlangBuffer {
+    private static final int MAX_VARINT_SIZE = 5;
+    private final BufferChunkPool pool;
+    //chunks[chunkCount - 1] is the buffer being written to. an unpooled buffer always has one chunk.
+    private ByteBuffer[] chunks = new ByteBuffer[1];
+    private ByteBuffer[] views = new ByteBuffer[1];
+    private int[] chunkStarts = new int[1];
+    private int chunkCount;
     private ByteBuffer buffer;
+    private boolean varInts;
     private final ByteMessageWriter byteMsgWriter = new ByteMessageWriter() {
         @Override
         public void writeObjectAsBytes(byte[] buffer, int offset, int length) {
-                appendInt(length);
+                appendSize(length);
                 append(buffer, offset, length);
         }
 
         @Override
         public void writeObjectAsBytes(ByteBuffer buffer) {
-            appendInt(buffer.remaining());
+            appendSize(buffer.remaining());
             append(buffer);
         }
     };
 
+    /**
+     * When enabled, sizes, request ids and aliases are written as varints. The receiver must support {@link MsgTypes#VarIntFlag}.
+     */
+    public void setVarInts(boolean varInts) {
+        this.varInts = varInts;
+    }
+
+    public boolean isVarInts() {
+        return varInts;
+    }
+
+    /**
+     * Sends a range of the buffer as one gathering write.
+     */
+    public interface GatheringWriter<R> {
+        R write(ByteBuffer[] srcs, int offset, int length);
+    }
+
+    /**
+     * @throws IllegalStateException if the contents span more than one chunk. Use writeTo for segmented buffers.
+     */
     public ByteBuffer getBuffer(){
+        if (chunkCount > 1) {
+            throw new IllegalStateException("Buffer spans " + chunkCount + " chunks");
+        }
         return buffer;
     }
 
     public JetlangBuffer(int initialSize) {
-        this.buffer = allocate(initialSize);
+        this.pool = null;
+        addChunk(allocate(initialSize));
+    }
+
+    public JetlangBuffer(BufferChunkPool pool) {
+        this.pool = pool;
+        addChunk(pool.take());
     }
 
     private static ByteBuffer allocate(int initialSize) {
@@ -36,23 +81,119 @@ public class JetlangBuffer {
         appendMsg(topic, topic.getBytes(charset), msg, objWriter);
     }
 
+    /**
+     * Appends the message with an aliased topic, binding the alias first if it is new to the connection.
+     * Falls back to the full topic if the alias table is full.
+     *
+     * @return the alias bound by this message, or null. It must be unbound if the buffer isn't sent.
+     */
+    public <T> TopicAliases.Alias appendMsg(String topic, T msg, ObjectByteWriter<T> objWriter, Charset charset, TopicAliases aliases, TopicAliases.Bindings bindings) {
+        TopicAliases.Alias alias = aliases.get(topic);
+        if (alias != null) {
+            boolean bound = bindings.bindIfNeeded(alias, this);
+            appendAliasedMsg(alias.id, topic, msg, objWriter);
+            return bound ? alias : null;
+        }
+        appendMsg(topic, msg, objWriter, charset);
+        return null;
+    }
+
     public <T> void appendMsg(String topic, byte[] topicBytes, T msg, ObjectByteWriter<T> objWriter) {
-        appendIntAsByte(MsgTypes.Data);
+        appendMsgType(MsgTypes.Data);
+        appendTopic(topicBytes);
+        writeMsgOnly(topic, msg, objWriter);
+    }
+
+    public void appendHandshake(int version, int features) {
+        resize(1 + 4 + 4);
+        appendIntAsByte(MsgTypes.Handshake);
+        appendInt(version);
+        appendInt(features);
+    }
+
+    public void appendTopicAlias(int alias, byte[] topicBytes) {
+        appendMsgType(MsgTypes.TopicAlias);
+        appendSize(alias);
         appendTopic(topicBytes);
+    }
+
+    public <T> void appendAliasedMsg(int alias, String topic, T msg, ObjectByteWriter<T> objWriter) {
+        appendMsgType(MsgTypes.AliasedData);
+        appendSize(alias);
         writeMsgOnly(topic, msg, objWriter);
     }
 
+    public void appendAliasedMsg(int alias, ByteBuffer msg) {
+        int sz = msg.remaining();
+        reserve(1 + MAX_VARINT_SIZE * 2 + sz);
+        appendMsgType(MsgTypes.AliasedData);
+        appendSize(alias);
+        appendSize(sz);
+        append(msg);
+    }
+
     public <T> void writeMsgOnly(String topic, T msg, ObjectByteWriter<T> objWriter) {
         objWriter.write(topic, msg, byteMsgWriter);
     }
 
     public <T> void appendMsg(byte[] topicBytes, ByteBuffer msg) {
         int sz = msg.remaining();
-        resize(1 + 1 + topicBytes.length + 4 + sz);
-        appendIntAsByte(MsgTypes.Data);
+        reserve(1 + 1 + topicBytes.length + MAX_VARINT_SIZE + sz);
+        appendMsgType(MsgTypes.Data);
+        appendTopic(topicBytes);
+        appendSize(sz);
+        append(msg);
+    }
+
+    /**
+     * Starts a {@link MsgTypes#Batch} frame. Append entries with appendBatchMsg and complete it with endBatch.
+     *
+     * @return the start of the frame to pass to endBatch
+     */
+    public int beginBatch() {
+        //keeps the header in one chunk so endBatch can patch it in place
+        resize(1 + MAX_VARINT_SIZE);
+        int start = position();
+        appendMsgType(MsgTypes.Batch);
+        if (varInts) {
+            //reserve a padded varint that is filled in by endBatch
+            buffer.position(buffer.position() + MAX_VARINT_SIZE);
+        } else {
+            appendInt(0);
+        }
+        return start;
+    }
+
+    public <T> void appendBatchMsg(String topic, byte[] topicBytes, T msg, ObjectByteWriter<T> objWriter) {
         appendTopic(topicBytes);
-        appendInt(sz);
-        buffer.put(msg);
+        writeMsgOnly(topic, msg, objWriter);
+    }
+
+    public void appendBatchMsg(byte[] topicBytes, ByteBuffer msg) {
+        int sz = msg.remaining();
+        reserve(1 + topicBytes.length + MAX_VARINT_SIZE + sz);
+        appendTopic(topicBytes);
+        appendSize(sz);
+        append(msg);
+    }
+
+    /**
+     * Writes the length of the batch started at batchStart.
+     */
+    public void endBatch(int batchStart) {
+        final int chunk = chunkIndex(batchStart);
+        final ByteBuffer header = chunks[chunk];
+        final int local = batchStart - chunkStarts[chunk];
+        if ((header.get(local) & MsgTypes.VarIntFlag) != 0) {
+            int size = position() - batchStart - 1 - MAX_VARINT_SIZE;
+            for (int i = 0; i < MAX_VARINT_SIZE - 1; i++) {
+                header.put(local + 1 + i, (byte) ((size & 0x7F) | 0x80));
+                size >>>= 7;
+            }
+            header.put(local + MAX_VARINT_SIZE, (byte) size);
+        } else {
+            header.putInt(local + 1, position() - batchStart - 5);
+        }
     }
 
     private <T> void appendMsgBody(String topic, T msg, ObjectByteWriter<T> objWriter, Charset charset) {
@@ -67,17 +208,80 @@ public class JetlangBuffer {
     }
 
     public int position() {
-        return buffer.position();
+        return chunkStarts[chunkCount - 1] + buffer.position();
+    }
+
+    /**
+     * Moves the write position back to an earlier position, discarding everything after it.
+     */
+    public void position(int position) {
+        final int chunk = chunkIndex(position);
+        releaseChunksAfter(chunk);
+        buffer.position(position - chunkStarts[chunk]);
     }
 
-    private void append(byte[] topicBytes, int offset, int length) {
-        resize(length);
-        buffer.put(topicBytes, offset, length);
+    /**
+     * Writes everything appended since the last clear.
+     */
+    public <R> R writeTo(GatheringWriter<R> out) {
+        return writeTo(0, position(), out);
+    }
+
+    /**
+     * Writes the bytes between start and end. The write position is unchanged, so the same range can be
+     * written to several channels.
+     */
+    public <R> R writeTo(int start, int end, GatheringWriter<R> out) {
+        final int first = chunkIndex(start);
+        final int last = chunkIndex(end);
+        for (int i = first; i <= last; i++) {
+            final int chunkStart = chunkStarts[i];
+            final int chunkEnd = chunkStart + chunks[i].position();
+            views[i].limit(Math.min(end, chunkEnd) - chunkStart).position(Math.max(start, chunkStart) - chunkStart);
+        }
+        return out.write(views, first, last - first + 1);
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    private int chunkIndex(int position) {
+        int i = chunkCount - 1;
+        while (chunkStarts[i] > position) {
+            i--;
+        }
+        return i;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (pool == null) {
+            resize(length);
+            buffer.put(bytes, offset, length);
+            return;
+        }
+        while (length > 0) {
+            resize(1);
+            final int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
     }
 
     private void append(ByteBuffer msg) {
-        resize(msg.remaining());
-        buffer.put(msg);
+        if (pool == null) {
+            resize(msg.remaining());
+            buffer.put(msg);
+            return;
+        }
+        final int limit = msg.limit();
+        while (msg.hasRemaining()) {
+            resize(1);
+            msg.limit(msg.position() + Math.min(msg.remaining(), buffer.remaining()));
+            buffer.put(msg);
+            msg.limit(limit);
+        }
     }
 
 
@@ -91,15 +295,81 @@ public class JetlangBuffer {
         buffer.putInt(value);
     }
 
+    private void appendMsgType(int msgType) {
+        appendIntAsByte(varInts ? msgType | MsgTypes.VarIntFlag : msgType);
+    }
+
+    private void appendSize(int value) {
+        if (varInts) {
+            appendVarInt(value);
+        } else {
+            appendInt(value);
+        }
+    }
+
+    private void appendVarInt(int value) {
+        resize(MAX_VARINT_SIZE);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Ensures required bytes can be written to the current chunk without splitting them.
+     */
     private void resize(int required) {
         if (buffer.remaining() < required) {
-            ByteBuffer resized = allocate(buffer.capacity() + Math.max(required, 128));
-            buffer.flip();
-            resized.put(buffer);
-            this.buffer = resized;
+            if (pool != null) {
+                final int start = position();
+                //oversized requests only happen for headers longer than a chunk, so they aren't pooled
+                addChunk(required <= pool.getChunkSize() ? pool.take() : allocate(required));
+                chunkStarts[chunkCount - 1] = start;
+            } else {
+                //doubling keeps the total copying linear in the final size
+                ByteBuffer resized = allocate(Math.max(buffer.capacity() * 2, buffer.position() + required));
+                buffer.flip();
+                resized.put(buffer);
+                chunks[0] = resized;
+                views[0] = resized.duplicate();
+                this.buffer = resized;
+            }
+        }
+    }
+
+    /**
+     * Grows an unpooled buffer up front for a message of known size. Segmented buffers fill chunks as they go.
+     */
+    private void reserve(int required) {
+        if (pool == null) {
+            resize(required);
         }
     }
 
+    private void addChunk(ByteBuffer chunk) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            views = Arrays.copyOf(views, chunkCount * 2);
+            chunkStarts = Arrays.copyOf(chunkStarts, chunkCount * 2);
+        }
+        chunks[chunkCount] = chunk;
+        views[chunkCount] = chunk.duplicate();
+        chunkStarts[chunkCount] = 0;
+        chunkCount++;
+        buffer = chunk;
+    }
+
+    private void releaseChunksAfter(int chunk) {
+        for (int i = chunk + 1; i < chunkCount; i++) {
+            pool.release(chunks[i]);
+            chunks[i] = null;
+            views[i] = null;
+        }
+        chunkCount = chunk + 1;
+        buffer = chunks[chunk];
+    }
+
     public void appendSubscription(String subject, int subscriptionType, Charset charset) {
         byte[] bytes = subject.getBytes(charset);
         appendIntAsByte(subscriptionType);
@@ -111,33 +381,59 @@ public class JetlangBuffer {
     }
 
     public <T> void appendRequest(int reqId, String reqTopic, T reqMsg, ObjectByteWriter<T> objectByteWriter, Charset topicCharset) {
-        appendIntAsByte(MsgTypes.DataRequest);
-        appendInt(reqId);
+        appendMsgType(MsgTypes.DataRequest);
+        appendSize(reqId);
         appendMsgBody(reqTopic, reqMsg, objectByteWriter, topicCharset);
     }
 
     public <T> void appendRequest(int reqId, byte[] reqTopic, ByteBuffer reqMsg) {
         int sz = reqMsg.remaining();
-        resize(1 + 4 + 1 + reqTopic.length + 4 + sz);
-        appendIntAsByte(MsgTypes.DataRequest);
-        appendInt(reqId);
+        reserve(1 + MAX_VARINT_SIZE + 1 + reqTopic.length + MAX_VARINT_SIZE + sz);
+        appendMsgType(MsgTypes.DataRequest);
+        appendSize(reqId);
         appendTopic(reqTopic);
-        appendInt(sz);
-        buffer.put(reqMsg);
+        appendSize(sz);
+        append(reqMsg);
     }
 
 
     public <T> void appendReply(int reqId, String replyTopic, T replyMsg, ObjectByteWriter<T> objectByteWriter, Charset topicCharset) {
-        appendIntAsByte(MsgTypes.DataReply);
-        appendInt(reqId);
+        appendMsgType(MsgTypes.DataReply);
+        appendSize(reqId);
         appendMsgBody(replyTopic, replyMsg, objectByteWriter, topicCharset);
     }
 
+    public <T> void appendReplyPart(int reqId, String replyTopic, T replyMsg, ObjectByteWriter<T> objectByteWriter, Charset topicCharset) {
+        appendMsgType(MsgTypes.ReplyPart);
+        appendSize(reqId);
+        appendMsgBody(replyTopic, replyMsg, objectByteWriter, topicCharset);
+    }
+
+    public void appendReplyEnd(int reqId) {
+        appendMsgType(MsgTypes.ReplyEnd);
+        appendSize(reqId);
+    }
+
+    public void appendReplyCredit(int reqId, int credits) {
+        appendMsgType(MsgTypes.ReplyCredit);
+        appendSize(reqId);
+        appendSize(credits);
+    }
+
+    /**
+     * Flips the underlying buffer for reading. Only valid while the contents fit in one chunk.
+     */
     public void flip() {
-        buffer.flip();
+        getBuffer().flip();
     }
 
+    /**
+     * Discards the contents. A segmented buffer returns all but its first chunk to the pool.
+     */
     public void clear(){
+        if (chunkCount > 1) {
+            releaseChunksAfter(0);
+        }
         buffer.clear();
     }
 }
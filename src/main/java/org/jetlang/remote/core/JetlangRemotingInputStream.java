@@ -64,9 +64,7 @@ public class JetlangRemotingInputStream {
             nextCommand = nextCommand.run();
         }
         buffer.compact();
-        if (nextCommand.getRequiredBytes() > buffer.capacity()) {
-            protocol.resizeBuffer(nextCommand.getRequiredBytes());
-        }
+        protocol.afterRead(nextCommand.getRequiredBytes());
         return true;
     }
 
@@ -1,9 +1,11 @@
 package org.jetlang.remote.core;
 
 import org.jetlang.channels.Publisher;
+import org.jetlang.remote.metrics.ReadMetrics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class JetlangRemotingProtocol<T> {
 
@@ -12,6 +14,12 @@ public class JetlangRemotingProtocol<T> {
     private final TopicReader topicReader;
     private final DataRequest dataRequest = new DataRequest();
     private final DataRequestReply dataRequestReply = new DataRequestReply();
+    private final ReplyPart replyPart = new ReplyPart();
+    private String[] topicAliases = new String[16];
+    private boolean varInts;
+    private int chunkThreshold;
+    private ChunkedMessageHandler chunkedHandler;
+    private ReadMetrics metrics;
     private final DataReader dataReader = new DataReader() {
         @Override
         protected void onObject(String dataTopicVal, T readObject) {
@@ -21,6 +29,11 @@ public class JetlangRemotingProtocol<T> {
                 session.onHandlerException(failed);
             }
         }
+
+        @Override
+        protected boolean allowChunks() {
+            return true;
+        }
     };
     public final State root = new State() {
         @Override
@@ -31,7 +44,11 @@ public class JetlangRemotingProtocol<T> {
         @Override
         public State run() {
             int read = buffer.get();
-            switch (read) {
+            if (metrics != null) {
+                metrics.messages.inc();
+            }
+            varInts = (read & MsgTypes.VarIntFlag) != 0;
+            switch (read & 0xFF & ~MsgTypes.VarIntFlag) {
                 case MsgTypes.Heartbeat:
                     execEvent(session::onHb);
                     return this;
@@ -48,6 +65,24 @@ public class JetlangRemotingProtocol<T> {
                     return dataRequest.reqIdSt;
                 case MsgTypes.DataReply:
                     return dataRequestReply.reqIdSt;
+                case MsgTypes.TopicAlias:
+                    return aliasRequest.aliasSt;
+                case MsgTypes.AliasedData:
+                    return dataReader.aliasSt;
+                case MsgTypes.Batch:
+                    return batch.sizeSt;
+                case MsgTypes.Handshake:
+                    return handshake;
+                case MsgTypes.ReplyPart:
+                    return replyPart.reqIdSt;
+                case MsgTypes.ReplyEnd:
+                    return replyEnd;
+                case MsgTypes.ReplyCredit:
+                    return replyCredit;
+                case MsgTypes.PatternSubscription:
+                    return patternSubRequest.first;
+                case MsgTypes.PatternUnsubscribe:
+                    return patternUnsubRequest.first;
                 default:
                     session.onUnknownMessage(read);
                     return this;
@@ -85,13 +120,106 @@ public class JetlangRemotingProtocol<T> {
             return root;
         }
     };
+    private final StringState patternSubRequest = new StringState() {
+        @Override
+        protected State onString(String val) {
+            execEvent(() -> session.onPatternSubscriptionRequest(val));
+            return root;
+        }
+    };
+    private final StringState patternUnsubRequest = new StringState() {
+        @Override
+        protected State onString(String val) {
+            execEvent(() -> session.onPatternUnsubscribeRequest(val));
+            return root;
+        }
+    };
+    private final TopicAliasState aliasRequest = new TopicAliasState();
+    private final BatchState batch = new BatchState();
+    private final State handshake = new IntState() {
+        private int version;
+
+        private final IntState features = new IntState() {
+            @Override
+            protected State onInt(int features) {
+                execEvent(() -> session.onHandshake(version, features));
+                return root;
+            }
+        };
+
+        @Override
+        protected State onInt(int version) {
+            this.version = version;
+            return features;
+        }
+    };
+    private final State replyEnd = new IntState() {
+        @Override
+        protected State onInt(int reqId) {
+            execEvent(() -> session.onReplyEnd(reqId));
+            return root;
+        }
+    };
+    private final State replyCredit = new IntState() {
+        private int reqId;
+
+        private final IntState credits = new IntState() {
+            @Override
+            protected State onInt(int credits) {
+                execEvent(() -> session.onReplyCredit(reqId, credits));
+                return root;
+            }
+        };
+
+        @Override
+        protected State onInt(int reqId) {
+            this.reqId = reqId;
+            return credits;
+        }
+    };
     private final ObjectByteReader<T> reader;
 
+    private final ReadBufferPolicy bufferPolicy;
+
     public void resizeBuffer(int requiredBytes) {
-        ByteBuffer b = ByteBuffer.allocateDirect(requiredBytes);
-        buffer.flip();
-        b.put(buffer);
-        buffer = b;
+        buffer = bufferPolicy.grow(buffer, requiredBytes);
+    }
+
+    /**
+     * Called after each read once the buffer is compacted. Shrinks a buffer grown for a large message.
+     */
+    public void afterRead(int requiredBytes) {
+        if (requiredBytes > buffer.capacity()) {
+            resizeBuffer(requiredBytes);
+        } else {
+            buffer = bufferPolicy.afterRead(buffer, requiredBytes);
+        }
+    }
+
+    /**
+     * Delivers data messages larger than the threshold to the handler in chunks as they are read instead of
+     * buffering them whole. Requests and replies are always buffered.
+     */
+    public void setChunkedMessages(int thresholdBytes, ChunkedMessageHandler handler) {
+        this.chunkThreshold = thresholdBytes;
+        this.chunkedHandler = handler;
+    }
+
+    /**
+     * Counts messages and parse failures. Bytes are counted by the caller that reads the socket.
+     */
+    public void setMetrics(ReadMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the buffer to the policy's pool. The protocol must not be used afterwards.
+     */
+    public void releaseBuffer() {
+        if (buffer != null) {
+            bufferPolicy.release(buffer);
+            buffer = null;
+        }
     }
 
     public interface Handler<T> {
@@ -117,6 +245,36 @@ public class JetlangRemotingProtocol<T> {
         void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed);
 
         void onClientDisconnect(IOException ioException);
+
+        /**
+         * Acceptors answer with the supported subset of the features. Clients receive the agreed features.
+         */
+        default void onHandshake(int version, int features) {
+            onUnknownMessage(MsgTypes.Handshake);
+        }
+
+        default void onReplyPart(int reqId, String dataTopicVal, T readObject) {
+            onUnknownMessage(MsgTypes.ReplyPart);
+        }
+
+        default void onReplyEnd(int reqId) {
+            onUnknownMessage(MsgTypes.ReplyEnd);
+        }
+
+        /**
+         * @param credits more parts the requester will accept, or not positive if the stream is cancelled
+         */
+        default void onReplyCredit(int reqId, int credits) {
+            onUnknownMessage(MsgTypes.ReplyCredit);
+        }
+
+        default void onPatternSubscriptionRequest(String pattern) {
+            onUnknownMessage(MsgTypes.PatternSubscription);
+        }
+
+        default void onPatternUnsubscribeRequest(String pattern) {
+            onUnknownMessage(MsgTypes.PatternUnsubscribe);
+        }
     }
 
     public interface MessageDispatcher {
@@ -183,9 +341,14 @@ public class JetlangRemotingProtocol<T> {
     }
 
     public JetlangRemotingProtocol(Handler<T> session, ObjectByteReader<T> reader, TopicReader charset) {
+        this(session, reader, charset, ReadBufferPolicy.DEFAULT);
+    }
+
+    public JetlangRemotingProtocol(Handler<T> session, ObjectByteReader<T> reader, TopicReader charset, ReadBufferPolicy bufferPolicy) {
         this.session = session;
         this.topicReader = charset;
-        this.buffer = ByteBuffer.allocateDirect(128);
+        this.bufferPolicy = bufferPolicy;
+        this.buffer = bufferPolicy.allocate();
         this.reader = reader;
     }
 
@@ -195,6 +358,59 @@ public class JetlangRemotingProtocol<T> {
         State run();
     }
 
+    /**
+     * Reads a 4 byte int or a varint if the current message has {@link MsgTypes#VarIntFlag} set.
+     */
+    private abstract class IntState implements State {
+        private int value;
+        private int shift;
+
+        @Override
+        public int getRequiredBytes() {
+            return varInts ? 1 : 4;
+        }
+
+        @Override
+        public State run() {
+            if (!varInts) {
+                return onInt(buffer.getInt());
+            }
+            while (buffer.hasRemaining()) {
+                int b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                //a 5th byte always ends the int
+                if (b >= 0 || shift == 28) {
+                    int result = value;
+                    value = 0;
+                    shift = 0;
+                    return onInt(result);
+                }
+                shift += 7;
+            }
+            return this;
+        }
+
+        protected abstract State onInt(int value);
+    }
+
+    /**
+     * @return the int or -1 if a varint runs past the end
+     */
+    private int readInt(int end) {
+        if (!varInts) {
+            return buffer.getInt();
+        }
+        int value = 0;
+        for (int shift = 0; buffer.position() < end; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0 || shift == 28) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
     private abstract class StringState {
         private int stringSize;
         State getSubRequestString = new State() {
@@ -239,7 +455,9 @@ public class JetlangRemotingProtocol<T> {
             @Override
             public State run(){
                 int origPos = buffer.position();
-                parseObject(origPos);
+                if (dataTopicVal != null) {
+                    parseObject(origPos);
+                }
                 buffer.position(origPos + dataSizeVal);
                 return root;
             }
@@ -250,24 +468,61 @@ public class JetlangRemotingProtocol<T> {
             try {
                 readObject = reader.readObject(dataTopicVal, buffer, dataSizeVal);
             }catch(Throwable failed){
+                if (metrics != null) {
+                    metrics.parseFailures.inc();
+                }
                 session.onParseFailure(dataTopicVal, buffer, startingPosition, dataSizeVal, failed);
                 return;
             }
             onObject(dataTopicVal, readObject);
         }
 
-        State dataSize = new State() {
+        private int chunkRemaining;
+        State chunkRead = new State() {
             @Override
             public int getRequiredBytes() {
-                return 4;
+                return 1;
             }
 
             @Override
             public State run() {
-                dataSizeVal = buffer.getInt();
+                final int origPos = buffer.position();
+                final int length = Math.min(buffer.remaining(), chunkRemaining);
+                if (dataTopicVal != null) {
+                    ByteBuffer chunk = buffer.asReadOnlyBuffer();
+                    chunk.limit(origPos + length);
+                    execEvent(() -> chunkedHandler.onChunk(dataTopicVal, chunk));
+                }
+                buffer.position(origPos + length);
+                chunkRemaining -= length;
+                if (chunkRemaining > 0) {
+                    return this;
+                }
+                if (dataTopicVal != null) {
+                    execEvent(() -> chunkedHandler.onEnd(dataTopicVal));
+                }
+                return root;
+            }
+        };
+
+        State dataSize = new IntState() {
+            @Override
+            protected State onInt(int value) {
+                dataSizeVal = value;
+                if (chunkedHandler != null && value > chunkThreshold && allowChunks()) {
+                    chunkRemaining = value;
+                    if (dataTopicVal != null) {
+                        execEvent(() -> chunkedHandler.onStart(dataTopicVal, value));
+                    }
+                    return chunkRead;
+                }
                 return dataSizeRead;
             }
         };
+
+        protected boolean allowChunks() {
+            return false;
+        }
         StringState first = new StringState() {
             @Override
             protected State onString(String val) {
@@ -275,10 +530,101 @@ public class JetlangRemotingProtocol<T> {
                 return dataSize;
             }
         };
+        State aliasSt = new IntState() {
+            @Override
+            protected State onInt(int alias) {
+                dataTopicVal = alias >= 0 && alias < topicAliases.length ? topicAliases[alias] : null;
+                if (dataTopicVal == null) {
+                    session.onHandlerException(new IOException("Unknown topic alias: " + alias));
+                }
+                return dataSize;
+            }
+        };
 
         protected abstract void onObject(String dataTopicVal, T readObject);
     }
 
+    private class TopicAliasState {
+        int alias;
+
+        StringState topic = new StringState() {
+            @Override
+            protected State onString(String val) {
+                if (alias < 0 || alias >= TopicAliases.MAX_ALIASES) {
+                    session.onHandlerException(new IOException("Topic alias out of range: " + alias + " " + val));
+                } else {
+                    if (alias >= topicAliases.length) {
+                        topicAliases = Arrays.copyOf(topicAliases, Math.min(Math.max(alias + 1, topicAliases.length * 2), TopicAliases.MAX_ALIASES));
+                    }
+                    topicAliases[alias] = val;
+                }
+                return root;
+            }
+        };
+
+        State aliasSt = new IntState() {
+            @Override
+            protected State onInt(int value) {
+                alias = value;
+                return topic.first;
+            }
+        };
+    }
+
+    private class BatchState {
+        int batchSize;
+
+        /**
+         * Decodes every entry once the whole batch is buffered.
+         */
+        State body = new State() {
+            @Override
+            public int getRequiredBytes() {
+                return batchSize;
+            }
+
+            @Override
+            public State run() {
+                final int end = buffer.position() + batchSize;
+                while (buffer.position() < end) {
+                    int topicSize = Byte.toUnsignedInt(buffer.get());
+                    if (buffer.position() + topicSize + (varInts ? 1 : 4) > end) {
+                        break;
+                    }
+                    int topicPos = buffer.position();
+                    String topic = topicReader.read(buffer, topicSize);
+                    buffer.position(topicPos + topicSize);
+                    int dataSize = readInt(end);
+                    int dataPos = buffer.position();
+                    if (dataSize < 0 || dataPos + dataSize > end) {
+                        break;
+                    }
+                    dataReader.dataTopicVal = topic;
+                    dataReader.dataSizeVal = dataSize;
+                    dataReader.parseObject(dataPos);
+                    buffer.position(dataPos + dataSize);
+                }
+                if (buffer.position() != end) {
+                    session.onHandlerException(new IOException("Malformed batch of " + batchSize + " bytes"));
+                    buffer.position(end);
+                }
+                return root;
+            }
+        };
+
+        State sizeSt = new IntState() {
+            @Override
+            protected State onInt(int value) {
+                batchSize = value;
+                if (batchSize < 0) {
+                    session.onHandlerException(new IOException("Invalid batch size: " + batchSize));
+                    batchSize = 0;
+                }
+                return body;
+            }
+        };
+    }
+
     private class DataRequest extends DataRequestBase {
         @Override
         protected void handleRequest(int reqId, String dataTopicVal, T readObject) {
@@ -294,6 +640,14 @@ public class JetlangRemotingProtocol<T> {
         }
     }
 
+    private class ReplyPart extends DataRequestBase {
+
+        @Override
+        protected void handleRequest(int reqId, String dataTopicVal, T readObject) {
+            session.onReplyPart(reqId, dataTopicVal, readObject);
+        }
+    }
+
     private abstract class DataRequestBase {
         int reqId;
 
@@ -310,15 +664,10 @@ public class JetlangRemotingProtocol<T> {
 
         protected abstract void handleRequest(int reqId, String dataTopicVal, T readObject);
 
-        State reqIdSt = new State() {
-            @Override
-            public int getRequiredBytes() {
-                return 4;
-            }
-
+        State reqIdSt = new IntState() {
             @Override
-            public State run() {
-                reqId = buffer.getInt();
+            protected State onInt(int value) {
+                reqId = value;
                 return data.first.first;
             }
         };
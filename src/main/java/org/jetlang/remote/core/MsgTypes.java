@@ -9,6 +9,49 @@ public class MsgTypes {
     public static final int Unsubscribe = 5;
     public static final int DataRequest = 6;
     public static final int DataReply = 7;
+    /**
+     * Binds a topic to an integer alias for the rest of the connection.
+     */
+    public static final int TopicAlias = 8;
+    /**
+     * Data message that references its topic by a previously bound alias.
+     */
+    public static final int AliasedData = 9;
+    /**
+     * Several data messages behind one length prefix. Each entry is a topic followed by a sized payload.
+     */
+    public static final int Batch = 10;
+    /**
+     * Protocol version and {@link ProtocolFeatures} bits. Sent by a client as its first message and answered by the acceptor.
+     */
+    public static final int Handshake = 11;
+    /**
+     * One reply of a reply stream. Same layout as {@link #DataReply}. Only sent while the requester has credit.
+     */
+    public static final int ReplyPart = 12;
+    /**
+     * Request id of a reply stream that has no more parts.
+     */
+    public static final int ReplyEnd = 13;
+    /**
+     * Request id and a credit count sent by the requester of a reply stream. Grants that many more parts, or
+     * cancels the stream if not positive.
+     */
+    public static final int ReplyCredit = 14;
+    /**
+     * Subscribes to every topic matching a {@link TopicTrie} pattern. Same layout as {@link #Subscription}.
+     */
+    public static final int PatternSubscription = 15;
+    /**
+     * Removes a {@link #PatternSubscription}. Same layout as {@link #Unsubscribe}.
+     */
+    public static final int PatternUnsubscribe = 16;
+
+    /**
+     * Set on the msg type byte when the int fields of the message (sizes, request ids, aliases) are written as
+     * unsigned LEB128 varints rather than 4 byte ints.
+     */
+    public static final int VarIntFlag = 0x80;
 
     private MsgTypes() {
 
@@ -4,5 +4,11 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public interface ObjectByteReader<T> {
+    /**
+     * The message occupies length bytes starting at the buffer's position. The protocol repositions the buffer
+     * after the call, so readers may leave the position anywhere. Readers may also return a view of the buffer
+     * rather than a copy (see {@link ByteBufferSerializer}), in which case the object is only valid until the
+     * handler returns.
+     */
     T readObject(String fromTopic, ByteBuffer bb, int length);
 }
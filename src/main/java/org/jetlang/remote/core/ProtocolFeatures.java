@@ -0,0 +1,44 @@
+package org.jetlang.remote.core;
+
+/**
+ * Optional protocol features negotiated with {@link MsgTypes#Handshake}.
+ * <p>
+ * A client that wants to use features sends a handshake as its first message with the bits it supports. The acceptor
+ * answers with the intersection of those bits and its own, and both sides may then use the agreed features for the
+ * rest of the connection. Clients only send a handshake when configured to, so acceptors must be upgraded first.
+ */
+public class ProtocolFeatures {
+
+    public static final int VERSION = 1;
+
+    /**
+     * {@link MsgTypes#TopicAlias} and {@link MsgTypes#AliasedData}.
+     */
+    public static final int TopicAliases = 1;
+    /**
+     * {@link MsgTypes#Batch}.
+     */
+    public static final int Batch = 1 << 1;
+    /**
+     * {@link MsgTypes#VarIntFlag}.
+     */
+    public static final int VarInts = 1 << 2;
+    /**
+     * {@link MsgTypes#ReplyPart}, {@link MsgTypes#ReplyEnd} and {@link MsgTypes#ReplyCredit}.
+     */
+    public static final int ReplyStreams = 1 << 3;
+    /**
+     * {@link MsgTypes#PatternSubscription} and {@link MsgTypes#PatternUnsubscribe}.
+     */
+    public static final int PatternSubscriptions = 1 << 4;
+
+    public static final int All = TopicAliases | Batch | VarInts | ReplyStreams | PatternSubscriptions;
+
+    public static boolean isEnabled(int features, int feature) {
+        return (features & feature) == feature;
+    }
+
+    private ProtocolFeatures() {
+
+    }
+}
@@ -0,0 +1,81 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.web.SizeClassBufferPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sizes the direct buffer a {@link JetlangRemotingProtocol} reads into. The buffer grows at least twofold when a
+ * message doesn't fit, so slowly growing messages don't reallocate on every read, and is shrunk back once a large
+ * message has been read so one large message doesn't pin a large buffer for the life of the connection.
+ * <p>
+ * Buffers are drawn from and returned to a shared direct {@link SizeClassBufferPool} when one is given.
+ */
+public class ReadBufferPolicy {
+
+    public static final int DEFAULT_INITIAL_SIZE = 128;
+    public static final int DEFAULT_SHRINK_ABOVE = 1024 * 1024;
+
+    public static final ReadBufferPolicy DEFAULT = new ReadBufferPolicy(DEFAULT_INITIAL_SIZE, DEFAULT_SHRINK_ABOVE, null);
+
+    private final int initialSize;
+    private final int shrinkAboveBytes;
+    private final SizeClassBufferPool pool;
+
+    /**
+     * @param shrinkAboveBytes buffers larger than this are replaced once the bytes left in them fit in a smaller one
+     * @param pool             direct pool to borrow from, or null to allocate
+     */
+    public ReadBufferPolicy(int initialSize, int shrinkAboveBytes, SizeClassBufferPool pool) {
+        this.initialSize = initialSize;
+        this.shrinkAboveBytes = shrinkAboveBytes;
+        this.pool = pool;
+    }
+
+    public ByteBuffer allocate() {
+        return allocate(initialSize);
+    }
+
+    private ByteBuffer allocate(int size) {
+        return pool != null ? pool.borrow(size) : BufferChunkPool.allocate(size);
+    }
+
+    public void release(ByteBuffer bb) {
+        if (pool != null) {
+            pool.giveBack(bb);
+        }
+    }
+
+    /**
+     * @param current in write mode
+     * @return a buffer of at least the required size holding the bytes of current, in write mode
+     */
+    public ByteBuffer grow(ByteBuffer current, int requiredBytes) {
+        int doubled = current.capacity() > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : current.capacity() * 2;
+        return moveTo(current, Math.max(requiredBytes, doubled));
+    }
+
+    /**
+     * Called after the bytes read have been processed and the buffer compacted.
+     *
+     * @return current, or a smaller buffer holding its bytes
+     */
+    public ByteBuffer afterRead(ByteBuffer current, int requiredBytes) {
+        if (current.capacity() <= shrinkAboveBytes) {
+            return current;
+        }
+        int needed = Math.max(initialSize, Math.max(requiredBytes, current.position()));
+        if (needed > shrinkAboveBytes) {
+            return current;
+        }
+        return moveTo(current, needed);
+    }
+
+    private ByteBuffer moveTo(ByteBuffer current, int size) {
+        ByteBuffer b = allocate(size);
+        current.flip();
+        b.put(current);
+        release(current);
+        return b;
+    }
+}
@@ -21,6 +21,6 @@ public interface SerializerFactory<R, W> {
     }
 
     default TopicReader createTopicReader(Charset charset){
-        return new TopicReader.Cached(charset);
+        return new TopicReader.Bounded(charset);
     }
 }
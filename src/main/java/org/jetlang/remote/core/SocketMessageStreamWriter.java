@@ -17,6 +17,9 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
     private final ObjectByteWriter<T> writer;
     private final ByteArrayBuffer buffer;
     private final Out socketOutputStream;
+    private boolean varInts;
+    private TopicAliases aliases;
+    private TopicAliases.Bindings bindings;
 
     public SocketMessageStreamWriter(Out socket, Charset charset, ObjectByteWriter<T> writer) {
         this.charset = charset;
@@ -29,6 +32,19 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
         this(new BufferedStream(new ByteArrayBuffer(), socket), charset, writer);
     }
 
+    @Override
+    public void enableVarInts() {
+        varInts = true;
+    }
+
+    @Override
+    public void enableTopicAliases() {
+        if (aliases == null) {
+            aliases = new TopicAliases(charset);
+            bindings = new TopicAliases.Bindings();
+        }
+    }
+
     @Override
     public void writeByteAsInt(int byteToWrite) throws IOException {
         socketOutputStream.write(byteToWrite);
@@ -50,37 +66,81 @@ public class SocketMessageStreamWriter<T> implements MessageStreamWriter<T> {
 
     private final ByteMessageWriter byteMessageWriter = new ByteMessageWriter() {
         public void writeObjectAsBytes(byte[] data, int offset, int length) {
-            buffer.appendInt(length);
+            appendSize(length);
             buffer.append(data, offset, length);
         }
 
         @Override
         public void writeObjectAsBytes(ByteBuffer bb) {
-            buffer.appendInt(bb.remaining());
+            appendSize(bb.remaining());
             buffer.append(bb);
         }
     };
 
     @Override
     public void write(String topic, T msg) throws IOException {
-        buffer.appendIntAsByte(MsgTypes.Data);
-        writeData(topic, msg);
+        TopicAliases.Alias alias = aliases != null ? aliases.get(topic) : null;
+        if (alias == null) {
+            appendMsgType(MsgTypes.Data);
+            writeData(topic, msg);
+            return;
+        }
+        boolean bind = !bindings.isBound(alias);
+        if (bind) {
+            appendMsgType(MsgTypes.TopicAlias);
+            appendSize(alias.id);
+            buffer.appendIntAsByte(alias.topicBytes.length);
+            buffer.append(alias.topicBytes);
+        }
+        appendMsgType(MsgTypes.AliasedData);
+        appendSize(alias.id);
+        writer.write(topic, msg, byteMessageWriter);
+        socketOutputStream.flush();
+        if (bind) {
+            bindings.markBound(alias);
+        }
     }
 
     @Override
     public void writeRequest(int id, String reqTopic, T req) throws IOException {
-        buffer.appendIntAsByte(MsgTypes.DataRequest);
-        buffer.appendInt(id);
+        appendMsgType(MsgTypes.DataRequest);
+        appendSize(id);
         writeData(reqTopic, req);
     }
 
     @Override
     public void writeReply(int reqId, String requestTopic, T replyMsg) throws IOException {
-        buffer.appendIntAsByte(MsgTypes.DataReply);
-        buffer.appendInt(reqId);
+        appendMsgType(MsgTypes.DataReply);
+        appendSize(reqId);
+        writeData(requestTopic, replyMsg);
+    }
+
+    @Override
+    public void writeReplyPart(int reqId, String requestTopic, T replyMsg) throws IOException {
+        appendMsgType(MsgTypes.ReplyPart);
+        appendSize(reqId);
         writeData(requestTopic, replyMsg);
     }
 
+    @Override
+    public void writeReplyEnd(int reqId) throws IOException {
+        appendMsgType(MsgTypes.ReplyEnd);
+        appendSize(reqId);
+        socketOutputStream.flush();
+    }
+
+    private void appendMsgType(int msgType) {
+        buffer.appendIntAsByte(varInts ? msgType | MsgTypes.VarIntFlag : msgType);
+    }
+
+    private void appendSize(int size) {
+        if (varInts) {
+            buffer.appendVarInt(size);
+        } else {
+            buffer.appendInt(size);
+        }
+    }
+
     private void writeData(String topic, T req) throws IOException {
         writeIntoBuffer(topic, req);
         socketOutputStream.flush();
@@ -2,6 +2,7 @@ package org.jetlang.remote.core;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 public interface StringDecoder {
 
@@ -13,6 +14,9 @@ public interface StringDecoder {
         return create(cs);
     }
 
+    /**
+     * @return a stateless decoder that may be shared between threads
+     */
     static StringDecoder create(Charset cs) {
         ByteArrayDecoder byteArrayDecoder = createByteArrayDecoder(cs);
         return new StringDecoder() {
@@ -30,6 +34,17 @@ public interface StringDecoder {
         };
     }
 
+    /**
+     * @return a {@link NoCopy} decoder for US-ASCII and UTF-8, otherwise the same as {@link #create(Charset)}. The
+     * decoder must only be used by one thread at a time.
+     */
+    static StringDecoder createNoCopy(Charset cs) {
+        if (StandardCharsets.US_ASCII.equals(cs) || StandardCharsets.UTF_8.equals(cs)) {
+            return new NoCopy(cs);
+        }
+        return create(cs);
+    }
+
     interface ByteArrayDecoder {
         String decode(byte[] result, int i, int size);
     }
@@ -38,4 +53,46 @@ public interface StringDecoder {
         return (bytes, offset, length) -> new String(bytes, offset, length, cs);
     }
 
+    /**
+     * Decoder for US-ASCII and UTF-8 that hands the source bytes straight to the String constructor, where the
+     * jdk checks for ascii with vectorized intrinsics. Heap buffers are decoded from their backing array and
+     * direct buffers are bulk copied into a scratch array that is reused between calls, so no intermediate
+     * array is allocated per decode. An instance must only be used by one thread at a time.
+     */
+    class NoCopy implements StringDecoder {
+        private static final int MAX_SCRATCH = 4096;
+
+        private final Charset cs;
+        private byte[] scratch = new byte[256];
+
+        public NoCopy(Charset cs) {
+            this.cs = cs;
+        }
+
+        @Override
+        public String decode(ByteBuffer bb, int length) {
+            if (bb.hasArray()) {
+                final int position = bb.position();
+                final String result = decode(bb.array(), bb.arrayOffset() + position, length);
+                bb.position(position + length);
+                return result;
+            }
+            final byte[] bytes = length <= scratch.length ? scratch : grow(length);
+            bb.get(bytes, 0, length);
+            return decode(bytes, 0, length);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, cs);
+        }
+
+        private byte[] grow(int length) {
+            if (length > MAX_SCRATCH) {
+                return new byte[length];
+            }
+            scratch = new byte[Math.min(MAX_SCRATCH, Integer.highestOneBit(length - 1) << 1)];
+            return scratch;
+        }
+    }
 }
@@ -4,6 +4,8 @@ import org.jetlang.core.Disposable;
 import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.metrics.Counter;
+import org.jetlang.remote.metrics.MetricsRegistry;
 import org.jetlang.web.IoBufferPool;
 import org.jetlang.web.NioWriter;
 
@@ -23,6 +25,7 @@ public class TcpClientNioFiber {
     private final NioFiber fiber;
     private final SocketConector connector;
     private final IoBufferPool.Factory pool = new IoBufferPool.Default();
+    private volatile ConnectionMetrics metrics = new ConnectionMetrics(new MetricsRegistry());
 
     private static final SocketConector DEFAULT = new SocketConector() {
     };
@@ -51,6 +54,31 @@ public class TcpClientNioFiber {
         this(fiber, DEFAULT);
     }
 
+    public NioFiber getFiber() {
+        return fiber;
+    }
+
+    /**
+     * Reports connection attempts, connects, disconnects and reconnects of connections started afterwards.
+     */
+    public void setMetrics(MetricsRegistry registry) {
+        this.metrics = new ConnectionMetrics(registry);
+    }
+
+    private static class ConnectionMetrics {
+        final Counter attempts;
+        final Counter connects;
+        final Counter disconnects;
+        final Counter reconnects;
+
+        ConnectionMetrics(MetricsRegistry registry) {
+            this.attempts = registry.counter("jetlang_client_connect_attempts");
+            this.connects = registry.counter("jetlang_client_connects");
+            this.disconnects = registry.counter("jetlang_client_disconnects");
+            this.reconnects = registry.counter("jetlang_client_reconnects");
+        }
+    }
+
 
     public interface ConnectedClient {
 
@@ -60,7 +88,7 @@ public class TcpClientNioFiber {
     }
 
     public Disposable connect(TcpClientNioConfig channel) {
-        TcpConnectionState state = new TcpConnectionState(channel, fiber, pool, connector);
+        TcpConnectionState state = new TcpConnectionState(channel, fiber, pool, connector, metrics);
         fiber.execute(() -> {
             state.startNewConnection(channel.getInitialConnectTimeoutInMs());
         });
@@ -75,12 +103,14 @@ public class TcpClientNioFiber {
         private final NioFiber fiber;
         private final IoBufferPool.Factory pool;
         private final SocketConector connector;
+        private final ConnectionMetrics metrics;
 
-        public TcpConnectionState(TcpClientNioConfig factory, NioFiber fiber, IoBufferPool.Factory pool, SocketConector connector) {
+        public TcpConnectionState(TcpClientNioConfig factory, NioFiber fiber, IoBufferPool.Factory pool, SocketConector connector, ConnectionMetrics metrics) {
             this.factory = factory;
             this.fiber = fiber;
             this.pool = pool;
             this.connector = connector;
+            this.metrics = metrics;
         }
 
         public void close() {
@@ -94,6 +124,7 @@ public class TcpClientNioFiber {
         public void startNewConnection(long delayInMs) {
             if (!closed) {
                 SocketChannel chan = connector.createChannel(factory);
+                metrics.attempts.inc();
                 boolean connected = false;
                 try {
                     connected = connector.startConnect(chan, factory.getRemoteAddress());
@@ -156,6 +187,7 @@ public class TcpClientNioFiber {
 
         private void onConnect(NioFiber nioFiber) {
             connectTimeout.dispose();
+            readHandler.state.metrics.connects.inc();
             NioWriter writer = new NioWriter(new Object(), chan, nioFiber, ioPool.createFor(chan, nioFiber));
             readHandler.client = channel.createClientOnConnect(chan, nioFiber, writer);
         }
@@ -223,9 +255,13 @@ public class TcpClientNioFiber {
             if (client != null) {
                 client.onDisconnect();
                 isReconnect = true;
+                state.metrics.disconnects.inc();
             }
             long connectTimeout = isReconnect ? channel.getReconnectDelayInMs() : channel.getInitialConnectTimeoutInMs();
             if (reconnectOnClose && connectTimeout >= 0) {
+                if (isReconnect) {
+                    state.metrics.reconnects.inc();
+                }
                 state.startNewConnection(connectTimeout);
             }
         }
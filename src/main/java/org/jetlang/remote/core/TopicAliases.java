@@ -0,0 +1,102 @@
+package org.jetlang.remote.core;
+
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Sender side table of topic aliases. The full topic is written once with {@link MsgTypes#TopicAlias} and
+ * subsequent messages reference it with {@link MsgTypes#AliasedData}.
+ * <p>
+ * Not thread safe. The table is expected to be confined to the thread that writes to the connection(s).
+ */
+public class TopicAliases {
+
+    /**
+     * Upper bound on alias ids. Readers reject aliases outside of this range.
+     */
+    public static final int MAX_ALIASES = 1 << 16;
+
+    private final Charset charset;
+    private final int maxAliases;
+    private final HashMap<String, Alias> aliases = new HashMap<>();
+
+    public TopicAliases(Charset charset) {
+        this(charset, MAX_ALIASES);
+    }
+
+    public TopicAliases(Charset charset, int maxAliases) {
+        this.charset = charset;
+        this.maxAliases = Math.min(maxAliases, MAX_ALIASES);
+    }
+
+    /**
+     * @return the alias for the topic or null if the table is full and the topic must be sent in full.
+     */
+    public Alias get(String topic) {
+        Alias alias = aliases.get(topic);
+        if (alias == null && aliases.size() < maxAliases) {
+            alias = new Alias(aliases.size(), topic.getBytes(charset));
+            aliases.put(topic, alias);
+        }
+        return alias;
+    }
+
+    public int size() {
+        return aliases.size();
+    }
+
+    public static class Alias {
+        public final int id;
+        public final byte[] topicBytes;
+
+        public Alias(int id, byte[] topicBytes) {
+            this.id = id;
+            this.topicBytes = topicBytes;
+        }
+    }
+
+    /**
+     * Tracks which aliases have been bound on a single connection.
+     */
+    public static class Bindings {
+        private final BitSet bound = new BitSet();
+
+        /**
+         * Appends the alias binding to the buffer if it hasn't been sent on this connection. The alias is marked
+         * bound, so the caller must {@link #unbind(Alias)} it if the buffer isn't sent.
+         *
+         * @return true if the binding was appended
+         */
+        public boolean bindIfNeeded(Alias alias, JetlangBuffer buffer) {
+            if (!bound.get(alias.id)) {
+                buffer.appendTopicAlias(alias.id, alias.topicBytes);
+                bound.set(alias.id);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isBound(Alias alias) {
+            return bound.get(alias.id);
+        }
+
+        public void markBound(Alias alias) {
+            bound.set(alias.id);
+        }
+
+        /**
+         * The binding wasn't sent, so it is sent again with the next message for the topic.
+         */
+        public void unbind(Alias alias) {
+            bound.clear(alias.id);
+        }
+
+        /**
+         * Bindings may have been lost with a failed write. Every alias is bound again before it is next used.
+         */
+        public void clear() {
+            bound.clear();
+        }
+    }
+}
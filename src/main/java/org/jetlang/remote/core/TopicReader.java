@@ -8,11 +8,14 @@ import java.util.HashMap;
 public interface TopicReader {
     String read(ByteBuffer bufferArray, int length);
 
+    /**
+     * Decodes every topic. Not thread safe.
+     */
     class Default implements TopicReader {
         private StringDecoder charset;
 
         public Default(Charset charset) {
-            this.charset = StringDecoder.create(charset);
+            this.charset = StringDecoder.createNoCopy(charset);
         }
 
         @Override
@@ -21,6 +24,142 @@ public interface TopicReader {
         }
     }
 
+    /**
+     * Bounded topic cache. Lookups hash and compare against the bytes in the buffer without copying them, so
+     * a hit allocates nothing. Entries live in an open addressing table. Once the probe window for a topic is
+     * full, an entry that hasn't been hit since the last eviction pass is replaced (clock/second chance).
+     * <p>
+     * Not thread safe.
+     */
+    class Bounded implements TopicReader {
+        public static final int DEFAULT_CAPACITY = 4096;
+        private static final int PROBE_WINDOW = 8;
+
+        private final Default charset;
+        private final int mask;
+        private final byte[][] keys;
+        private final int[] hashes;
+        private final String[] values;
+        private final boolean[] referenced;
+        private int size;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        public Bounded(Charset charset) {
+            this(charset, DEFAULT_CAPACITY);
+        }
+
+        /**
+         * @param capacity max number of cached topics. Rounded up to a power of 2.
+         */
+        public Bounded(Charset charset, int capacity) {
+            this.charset = new Default(charset);
+            int tableSize = Integer.highestOneBit(Math.max(capacity, PROBE_WINDOW) - 1) << 1;
+            this.mask = tableSize - 1;
+            this.keys = new byte[tableSize][];
+            this.hashes = new int[tableSize];
+            this.values = new String[tableSize];
+            this.referenced = new boolean[tableSize];
+        }
+
+        @Override
+        public String read(ByteBuffer bb, int length) {
+            final int start = bb.position();
+            final int hash = hash(bb, start, length);
+            final int home = hash & mask;
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                final int slot = (home + i) & mask;
+                final byte[] key = keys[slot];
+                if (key == null) {
+                    //entries are only replaced, never removed, so the topic can't be further along
+                    break;
+                }
+                if (hashes[slot] == hash && matches(key, bb, start, length)) {
+                    hits++;
+                    referenced[slot] = true;
+                    bb.position(start + length);
+                    return values[slot];
+                }
+            }
+            misses++;
+            final String result = charset.read(bb, length);
+            final byte[] key = new byte[length];
+            for (int i = 0; i < length; i++) {
+                key[i] = bb.get(start + i);
+            }
+            final int slot = victim(home);
+            if (keys[slot] == null) {
+                size++;
+            } else {
+                evictions++;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            values[slot] = result;
+            referenced[slot] = false;
+            return result;
+        }
+
+        private int victim(int home) {
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                final int slot = (home + i) & mask;
+                if (keys[slot] == null) {
+                    return slot;
+                }
+            }
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                final int slot = (home + i) & mask;
+                if (!referenced[slot]) {
+                    return slot;
+                }
+                referenced[slot] = false;
+            }
+            return home;
+        }
+
+        private static int hash(ByteBuffer bb, int start, int length) {
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + bb.get(start + i);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer bb, int start, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != bb.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        @Override
+        public String toString() {
+            return "TopicReader.Bounded{size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + '}';
+        }
+    }
+
     class Cached implements TopicReader {
         private final Default charset;
         private final Key searchKey = new Key(new byte[0], 0);
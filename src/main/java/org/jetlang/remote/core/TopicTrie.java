@@ -0,0 +1,381 @@
+package org.jetlang.remote.core;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Values keyed by topic patterns. Topics are tokens separated by '.'. In a pattern '*' matches exactly one token
+ * and a trailing '>' matches one or more tokens, so "prices.NYSE.*" matches "prices.NYSE.IBM" and "prices.>"
+ * matches every topic below "prices". A pattern without wildcards matches only the same topic.
+ * <p>
+ * Finding the values for a topic walks one path per wildcard branch, so the cost depends on the depth of the topic
+ * and not the number of patterns. Tokens are looked up by their region of the topic, so matching doesn't allocate.
+ * Not thread safe.
+ */
+public class TopicTrie<V> {
+
+    public static final String SINGLE = "*";
+    public static final String REST = ">";
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * @return false if the value was already added for the pattern
+     */
+    public boolean add(String pattern, V value) {
+        validate(pattern);
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            final int end = tokenEnd(pattern, start);
+            final String token = pattern.substring(start, end);
+            if (REST.equals(token)) {
+                if (node.rest == null) {
+                    node.rest = new LinkedHashSet<>();
+                }
+                return added(node.rest.add(value));
+            }
+            node = node.child(token);
+            if (end == pattern.length()) {
+                if (node.values == null) {
+                    node.values = new LinkedHashSet<>();
+                }
+                return added(node.values.add(value));
+            }
+            start = end + 1;
+        }
+    }
+
+    private boolean added(boolean added) {
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * @return false if the value wasn't added for the pattern
+     */
+    public boolean remove(String pattern, V value) {
+        if (remove(root, pattern, 0, value)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    private static <V> boolean remove(Node<V> node, String pattern, int start, V value) {
+        final int end = tokenEnd(pattern, start);
+        final String token = pattern.substring(start, end);
+        if (REST.equals(token)) {
+            return node.rest != null && node.rest.remove(value);
+        }
+        final Node<V> child = SINGLE.equals(token) ? node.any : (node.children != null ? node.children.get(token, 0, token.length()) : null);
+        if (child == null) {
+            return false;
+        }
+        final boolean removed;
+        if (end == pattern.length()) {
+            removed = child.values != null && child.values.remove(value);
+        } else {
+            removed = remove(child, pattern, end + 1, value);
+        }
+        if (removed && child.isEmpty()) {
+            if (SINGLE.equals(token)) {
+                node.any = null;
+            } else {
+                node.children.remove(token);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Calls back once for each pattern that matches the topic, so a value added with more than one matching
+     * pattern is passed more than once.
+     */
+    public void forEachMatch(String topic, Consumer<? super V> onMatch) {
+        if (size > 0) {
+            match(root, topic, 0, onMatch);
+        }
+    }
+
+    private static <V> void match(Node<V> node, String topic, int start, Consumer<? super V> onMatch) {
+        if (node.rest != null) {
+            node.rest.forEach(onMatch);
+        }
+        final int end = tokenEnd(topic, start);
+        final boolean last = end == topic.length();
+        if (node.children != null) {
+            final Node<V> child = node.children.get(topic, start, end);
+            if (child != null) {
+                matchChild(child, topic, end, last, onMatch);
+            }
+        }
+        if (node.any != null) {
+            matchChild(node.any, topic, end, last, onMatch);
+        }
+    }
+
+    private static <V> void matchChild(Node<V> child, String topic, int end, boolean last, Consumer<? super V> onMatch) {
+        if (last) {
+            if (child.values != null) {
+                child.values.forEach(onMatch);
+            }
+        } else {
+            match(child, topic, end + 1, onMatch);
+        }
+    }
+
+    /**
+     * @return true if any pattern matches the topic. Stops at the first match.
+     */
+    public boolean anyMatch(String topic) {
+        return size > 0 && anyMatch(root, topic, 0);
+    }
+
+    private static <V> boolean anyMatch(Node<V> node, String topic, int start) {
+        if (node.rest != null && !node.rest.isEmpty()) {
+            return true;
+        }
+        final int end = tokenEnd(topic, start);
+        final boolean last = end == topic.length();
+        final Node<V> child = node.children != null ? node.children.get(topic, start, end) : null;
+        return (child != null && anyMatchChild(child, topic, end, last))
+                || (node.any != null && anyMatchChild(node.any, topic, end, last));
+    }
+
+    private static <V> boolean anyMatchChild(Node<V> child, String topic, int end, boolean last) {
+        if (last) {
+            return child.values != null && !child.values.isEmpty();
+        }
+        return anyMatch(child, topic, end + 1);
+    }
+
+    /**
+     * Calls back once for each pattern and value pair.
+     */
+    public void forEach(Consumer<? super V> onValue) {
+        forEach(root, onValue);
+    }
+
+    private static <V> void forEach(Node<V> node, Consumer<? super V> onValue) {
+        if (node.values != null) {
+            node.values.forEach(onValue);
+        }
+        if (node.rest != null) {
+            node.rest.forEach(onValue);
+        }
+        if (node.children != null) {
+            node.children.forEach(child -> forEach(child, onValue));
+        }
+        if (node.any != null) {
+            forEach(node.any, onValue);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of pattern and value pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    public static boolean isPattern(String topic) {
+        return topic.indexOf('*') >= 0 || topic.indexOf('>') >= 0;
+    }
+
+    /**
+     * Matches a single pattern without building a trie.
+     */
+    public static boolean matches(String pattern, String topic) {
+        int p = 0;
+        int t = 0;
+        while (true) {
+            final int pEnd = tokenEnd(pattern, p);
+            final int tEnd = tokenEnd(topic, t);
+            final int pLen = pEnd - p;
+            if (pLen == 1 && pattern.charAt(p) == '>') {
+                return t <= topic.length();
+            }
+            final boolean single = pLen == 1 && pattern.charAt(p) == '*';
+            if (!single && (pLen != tEnd - t || !pattern.regionMatches(p, topic, t, pLen))) {
+                return false;
+            }
+            final boolean pDone = pEnd == pattern.length();
+            final boolean tDone = tEnd == topic.length();
+            if (pDone || tDone) {
+                return pDone && tDone;
+            }
+            p = pEnd + 1;
+            t = tEnd + 1;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if '>' is not the last token or a wildcard is part of a token
+     */
+    public static void validate(String pattern) {
+        int start = 0;
+        while (true) {
+            final int end = tokenEnd(pattern, start);
+            final String token = pattern.substring(start, end);
+            if (token.length() > 1 && (token.indexOf('*') >= 0 || token.indexOf('>') >= 0)) {
+                throw new IllegalArgumentException("Wildcards must be a whole token: " + pattern);
+            }
+            if (end == pattern.length()) {
+                return;
+            }
+            if (REST.equals(token)) {
+                throw new IllegalArgumentException("'>' must be the last token: " + pattern);
+            }
+            start = end + 1;
+        }
+    }
+
+    private static int tokenEnd(String topic, int start) {
+        final int dot = topic.indexOf('.', start);
+        return dot < 0 ? topic.length() : dot;
+    }
+
+    private static class Node<V> {
+        private Children<V> children;
+        private Node<V> any;
+        private Set<V> values;
+        private Set<V> rest;
+
+        Node<V> child(String token) {
+            if (SINGLE.equals(token)) {
+                if (any == null) {
+                    any = new Node<>();
+                }
+                return any;
+            }
+            if (children == null) {
+                children = new Children<>();
+            }
+            return children.getOrAdd(token);
+        }
+
+        boolean isEmpty() {
+            return (children == null || children.isEmpty()) && any == null
+                    && (values == null || values.isEmpty()) && (rest == null || rest.isEmpty());
+        }
+    }
+
+    /**
+     * Child nodes keyed by token, found by a region of the topic rather than a substring.
+     */
+    private static class Children<V> {
+        private Entry<V>[] table = newTable(8);
+        private int size;
+
+        Node<V> get(String topic, int start, int end) {
+            final int length = end - start;
+            final int hash = hash(topic, start, end);
+            for (Entry<V> e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+                if (e.hash == hash && e.token.length() == length && e.token.regionMatches(0, topic, start, length)) {
+                    return e.node;
+                }
+            }
+            return null;
+        }
+
+        Node<V> getOrAdd(String token) {
+            Node<V> node = get(token, 0, token.length());
+            if (node == null) {
+                if (size >= table.length * 3 / 4) {
+                    resize();
+                }
+                node = new Node<>();
+                final int hash = hash(token, 0, token.length());
+                final int index = hash & (table.length - 1);
+                table[index] = new Entry<>(token, hash, node, table[index]);
+                size++;
+            }
+            return node;
+        }
+
+        void remove(String token) {
+            final int hash = hash(token, 0, token.length());
+            final int index = hash & (table.length - 1);
+            Entry<V> prev = null;
+            for (Entry<V> e = table[index]; e != null; prev = e, e = e.next) {
+                if (e.hash == hash && e.token.equals(token)) {
+                    if (prev == null) {
+                        table[index] = e.next;
+                    } else {
+                        prev.next = e.next;
+                    }
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void forEach(Consumer<Node<V>> onChild) {
+            for (Entry<V> head : table) {
+                for (Entry<V> e = head; e != null; e = e.next) {
+                    onChild.accept(e.node);
+                }
+            }
+        }
+
+        private void resize() {
+            final Entry<V>[] old = table;
+            table = newTable(old.length * 2);
+            for (Entry<V> head : old) {
+                Entry<V> e = head;
+                while (e != null) {
+                    final Entry<V> next = e.next;
+                    final int index = e.hash & (table.length - 1);
+                    e.next = table[index];
+                    table[index] = e;
+                    e = next;
+                }
+            }
+        }
+
+        /**
+         * Same as {@link String#hashCode()} over the region, spread so the low bits pick the bucket.
+         */
+        private static int hash(String topic, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + topic.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static <V> Entry<V>[] newTable(int length) {
+            //generic array, only ever holds Entry<V>
+            @SuppressWarnings("unchecked")
+            final Entry<V>[] table = (Entry<V>[]) new Entry<?>[length];
+            return table;
+        }
+    }
+
+    private static class Entry<V> {
+        private final String token;
+        private final int hash;
+        private final Node<V> node;
+        private Entry<V> next;
+
+        Entry(String token, int hash, Node<V> node, Entry<V> next) {
+            this.token = token;
+            this.hash = hash;
+            this.node = node;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.web.SendResult;
+import org.jetlang.web.SocketWriter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Smart batching for writes made on one executor. Bytes for a socket are copied into a per socket buffer and the
+ * first write of a batch queues a flush on the executor. The flush runs after the work already queued, so under
+ * load every message written to a socket during one drain of the queue goes out in a single write, while a lone
+ * message is flushed as soon as the current task ends. A socket is also flushed when its buffer reaches the
+ * threshold.
+ * <p>
+ * Not thread safe. Must only be used on the executor. Results of deferred writes are only reported to the
+ * onFailed callback given with the writer; a failed write closes the socket as usual.
+ */
+public class WriteCoalescer {
+
+    //buffers kept for reuse between drains. more dirty sockets than this allocate per drain
+    private static final int MAX_FREE = 16;
+    private static final int MAX_INITIAL_CAPACITY = 16 * 1024;
+
+    private final Executor executor;
+    private final int flushThresholdBytes;
+    private final int initialCapacity;
+    private final IdentityHashMap<SocketWriter, Pending> dirty = new IdentityHashMap<>();
+    private final ArrayList<Pending> free = new ArrayList<>();
+    private final Runnable flushAll = this::flushAll;
+    private boolean flushQueued;
+
+    public WriteCoalescer(Executor executor, int flushThresholdBytes) {
+        this.executor = executor;
+        this.flushThresholdBytes = flushThresholdBytes;
+        this.initialCapacity = Math.min(flushThresholdBytes, MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return a writer that coalesces writes to the socket. Deferred writes are reported as
+     * {@link SendResult.Buffered}. Valid until the next flush.
+     */
+    public JetlangBuffer.GatheringWriter<SendResult> to(SocketWriter writer) {
+        return to(writer, null);
+    }
+
+    /**
+     * @param onFailed run on the executor if a deferred write to the socket is dropped or fails. May be null.
+     * @return a writer that coalesces writes to the socket. Valid until the next flush.
+     */
+    public JetlangBuffer.GatheringWriter<SendResult> to(SocketWriter writer, Runnable onFailed) {
+        Pending pending = dirty.get(writer);
+        if (pending == null) {
+            pending = free.isEmpty() ? new Pending() : free.remove(free.size() - 1);
+            pending.writer = writer;
+            pending.onFailed = onFailed;
+            dirty.put(writer, pending);
+            if (!flushQueued) {
+                flushQueued = true;
+                executor.execute(flushAll);
+            }
+        }
+        return pending;
+    }
+
+    public void flushAll() {
+        flushQueued = false;
+        for (Pending pending : dirty.values()) {
+            pending.flush();
+            pending.writer = null;
+            pending.onFailed = null;
+            if (free.size() < MAX_FREE) {
+                //a buffer grown for one burst goes back to the gc rather than being held for every later drain
+                if (pending.buffer.capacity() > initialCapacity) {
+                    pending.buffer = ByteBuffer.allocateDirect(initialCapacity);
+                }
+                free.add(pending);
+            }
+        }
+        dirty.clear();
+    }
+
+    private class Pending implements JetlangBuffer.GatheringWriter<SendResult> {
+        private SocketWriter writer;
+        private Runnable onFailed;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(initialCapacity);
+
+        @Override
+        public SendResult write(ByteBuffer[] srcs, int offset, int length) {
+            int bytes = 0;
+            for (int i = offset; i < offset + length; i++) {
+                bytes += srcs[i].remaining();
+            }
+            if (buffer.position() + bytes > flushThresholdBytes) {
+                flush();
+            }
+            if (bytes >= flushThresholdBytes) {
+                return writer.send(srcs, offset, length);
+            }
+            if (buffer.remaining() < bytes) {
+                int capacity = buffer.capacity();
+                while (capacity < buffer.position() + bytes) {
+                    capacity *= 2;
+                }
+                ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            for (int i = offset; i < offset + length; i++) {
+                buffer.put(srcs[i]);
+            }
+            return new SendResult.Buffered(bytes, buffer.position());
+        }
+
+        private void flush() {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                SendResult result = writer.send(buffer);
+                buffer.clear();
+                if (!result.isAccepted() && onFailed != null) {
+                    onFailed.run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.jetlang.remote.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counter. Updates don't allocate and don't contend, so it can be updated from any thread on hot paths.
+ */
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void dec() {
+        value.decrement();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
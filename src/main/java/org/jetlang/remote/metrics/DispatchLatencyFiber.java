@@ -0,0 +1,71 @@
+package org.jetlang.remote.metrics;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.fibers.Fiber;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time each task waits on the fiber before it runs, e.g. session events and messages dispatched
+ * from the read thread to a session's fiber by {@link org.jetlang.web.SessionDispatcherFactory.FiberSessionFactory}
+ * or {@link org.jetlang.remote.acceptor.FiberPerSession}. Scheduled tasks are not recorded.
+ */
+public class DispatchLatencyFiber implements Fiber {
+
+    private final Fiber fiber;
+    private final Histogram latency;
+
+    public DispatchLatencyFiber(Fiber fiber, Histogram latency) {
+        this.fiber = fiber;
+        this.latency = latency;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        final long enqueuedNanos = System.nanoTime();
+        fiber.execute(() -> {
+            latency.recordNanosSince(enqueuedNanos);
+            command.run();
+        });
+    }
+
+    @Override
+    public void start() {
+        fiber.start();
+    }
+
+    @Override
+    public void add(Disposable disposable) {
+        fiber.add(disposable);
+    }
+
+    @Override
+    public boolean remove(Disposable disposable) {
+        return fiber.remove(disposable);
+    }
+
+    @Override
+    public int size() {
+        return fiber.size();
+    }
+
+    @Override
+    public Disposable schedule(Runnable command, long delay, TimeUnit unit) {
+        return fiber.schedule(command, delay, unit);
+    }
+
+    @Override
+    public Disposable scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return fiber.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+    }
+
+    @Override
+    public Disposable scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return fiber.scheduleAtFixedRate(command, initialDelay, period, unit);
+    }
+
+    @Override
+    public void dispose() {
+        fiber.dispose();
+    }
+}
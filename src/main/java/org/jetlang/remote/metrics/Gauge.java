@@ -0,0 +1,9 @@
+package org.jetlang.remote.metrics;
+
+/**
+ * Sampled when a snapshot is taken. Must be thread safe and cheap.
+ */
+public interface Gauge {
+
+    long get();
+}
@@ -0,0 +1,179 @@
+package org.jetlang.remote.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non negative values, such as latencies in nanos, in log linear buckets as in HdrHistogram. Each
+ * power of two range is split into equal sub buckets, so percentiles are reported within a fixed relative error
+ * across the full range of longs. Recording is lock free and doesn't allocate.
+ * <p>
+ * Readers take a {@link Snapshot}, optionally resetting the histogram so each snapshot covers an interval. A
+ * snapshot taken while values are recorded may miss the values being recorded.
+ */
+public class Histogram {
+
+    /**
+     * 2^7 sub buckets, so values are reported within 1/64th, about 1.6%.
+     */
+    public static final int DEFAULT_SUB_BUCKET_BITS = 7;
+
+    private final int subBucketBits;
+    private final int halfCount;
+    private final AtomicLongArray buckets;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram() {
+        this(DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @param subBucketBits from 1 to 12. Reported values are within 2^-(subBucketBits-1) of the recorded value.
+     */
+    public Histogram(int subBucketBits) {
+        if (subBucketBits < 1 || subBucketBits > 12) {
+            throw new IllegalArgumentException("subBucketBits must be from 1 to 12: " + subBucketBits);
+        }
+        this.subBucketBits = subBucketBits;
+        this.halfCount = 1 << (subBucketBits - 1);
+        this.buckets = new AtomicLongArray(bucketIndex(Long.MAX_VALUE) + 1);
+    }
+
+    private int bucketIndex(long value) {
+        if (value < (halfCount << 1)) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits + 1;
+        return shift * halfCount + (int) (value >>> shift);
+    }
+
+    private long highestValueOf(int index) {
+        if (index < (halfCount << 1)) {
+            return index;
+        }
+        int shift = index / halfCount - 1;
+        long top = index % halfCount + halfCount;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    /**
+     * Records the nanos elapsed since the start, taken from {@link System#nanoTime()}.
+     */
+    public void recordNanosSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        return snapshot().getValueAtPercentile(percentile);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, sum.sum(), max.get());
+    }
+
+    /**
+     * Takes a snapshot and clears the histogram, so the next snapshot only holds values recorded since this one.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+        }
+        return new Snapshot(counts, sum.sumThenReset(), max.getAndSet(0));
+    }
+
+    public class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long sum, long max) {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the highest value in the bucket holding the percentile, at most the max recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + (long) getMean() + " p50=" + getValueAtPercentile(50)
+                    + " p99=" + getValueAtPercentile(99) + " p99.9=" + getValueAtPercentile(99.9) + " max=" + max;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.jetlang.remote.metrics;
+
+import org.jetlang.fibers.Fiber;
+import org.jetlang.web.HttpHandler;
+import org.jetlang.web.HttpRequest;
+import org.jetlang.web.HttpResponse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the registry in the prometheus text format. Mount with
+ * {@link org.jetlang.web.WebServerConfigBuilder#addMetrics(String, MetricsRegistry)}.
+ */
+public class MetricsHttpHandler<S> implements HttpHandler<S> {
+
+    private final MetricsRegistry registry;
+
+    public MetricsHttpHandler(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void handle(Fiber dispatchFiber, HttpRequest headers, HttpResponse writer, S sessionState) {
+        writer.sendResponse(200, "OK", "text/plain; version=0.0.4", registry.toText(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,154 @@
+package org.jetlang.remote.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named counters, gauges and histograms. Metrics are created on first use and shared by every caller that asks
+ * for the same name, so many sessions or shards can update one counter. Thread safe.
+ * <p>
+ * Names follow the prometheus rules, letters, digits, underscores and colons not starting with a digit.
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Type {
+        counter, gauge, summary
+    }
+
+    private static class Metric {
+        final Type type;
+        final Object value;
+
+        Metric(Type type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name) {
+        return (Counter) getOrCreate(name, Type.counter, new Counter());
+    }
+
+    /**
+     * A counter reported as a gauge, for levels that go up and down such as bytes buffered or queue depth.
+     */
+    public Counter upDownCounter(String name) {
+        return (Counter) getOrCreate(name, Type.gauge, new Counter());
+    }
+
+    /**
+     * Registers the gauge, replacing any registered with the name.
+     */
+    public void gauge(String name, Gauge gauge) {
+        validate(name);
+        metrics.compute(name, (n, existing) -> {
+            if (existing != null && existing.type != Type.gauge) {
+                throw new IllegalArgumentException(name + " is already a " + existing.type);
+            }
+            return new Metric(Type.gauge, gauge);
+        });
+    }
+
+    public Histogram histogram(String name) {
+        return (Histogram) getOrCreate(name, Type.summary, new Histogram());
+    }
+
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    private Object getOrCreate(String name, Type type, Object created) {
+        Metric metric = metrics.get(name);
+        if (metric == null) {
+            validate(name);
+            Metric prior = metrics.putIfAbsent(name, new Metric(type, created));
+            metric = prior != null ? prior : metrics.get(name);
+        }
+        if (metric.type != type || metric.value.getClass() != created.getClass()) {
+            throw new IllegalArgumentException(name + " is already a " + metric.type);
+        }
+        return metric.value;
+    }
+
+    private static void validate(String name) {
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(Character.isLetterOrDigit(c) && c < 128) && c != '_' && c != ':') {
+                throw new IllegalArgumentException("Invalid metric name: " + name);
+            }
+        }
+    }
+
+    /**
+     * @return current value of every metric by name. Histograms are reported as their count, sum, max and
+     * quantiles, e.g. latency_count and latency{quantile="0.99"}.
+     */
+    public SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue().value;
+            if (value instanceof Counter) {
+                snapshot.put(name, ((Counter) value).get());
+            } else if (value instanceof Gauge) {
+                snapshot.put(name, ((Gauge) value).get());
+            } else {
+                Histogram.Snapshot histogram = ((Histogram) value).snapshot();
+                for (double quantile : QUANTILES) {
+                    snapshot.put(name + "{quantile=\"" + quantile + "\"}", histogram.getValueAtPercentile(quantile * 100));
+                }
+                snapshot.put(name + "_count", histogram.getCount());
+                snapshot.put(name + "_sum", histogram.getSum());
+                snapshot.put(name + "_max", histogram.getMax());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes every metric in the prometheus text exposition format.
+     */
+    public void writeText(Appendable out) throws IOException {
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Metric metric = entry.getValue();
+            out.append("# TYPE ").append(name).append(' ').append(metric.type.name()).append('\n');
+            if (metric.value instanceof Counter) {
+                line(out, name, ((Counter) metric.value).get());
+            } else if (metric.value instanceof Gauge) {
+                line(out, name, ((Gauge) metric.value).get());
+            } else {
+                Histogram.Snapshot histogram = ((Histogram) metric.value).snapshot();
+                for (double quantile : QUANTILES) {
+                    line(out, name + "{quantile=\"" + quantile + "\"}", histogram.getValueAtPercentile(quantile * 100));
+                }
+                line(out, name + "_sum", histogram.getSum());
+                line(out, name + "_count", histogram.getCount());
+            }
+        }
+    }
+
+    private static void line(Appendable out, String name, long value) throws IOException {
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        try {
+            writeText(text);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return text.toString();
+    }
+}
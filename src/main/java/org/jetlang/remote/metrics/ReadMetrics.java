@@ -0,0 +1,17 @@
+package org.jetlang.remote.metrics;
+
+/**
+ * Counters shared by the readers of one kind of connection, named with a common prefix.
+ */
+public class ReadMetrics {
+
+    public final Counter bytes;
+    public final Counter messages;
+    public final Counter parseFailures;
+
+    public ReadMetrics(MetricsRegistry registry, String prefix) {
+        this.bytes = registry.counter(prefix + "_read_bytes");
+        this.messages = registry.counter(prefix + "_read_messages");
+        this.parseFailures = registry.counter(prefix + "_parse_failures");
+    }
+}
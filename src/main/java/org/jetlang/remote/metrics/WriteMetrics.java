@@ -0,0 +1,25 @@
+package org.jetlang.remote.metrics;
+
+/**
+ * Counters shared by the writers of one kind of connection, named with a common prefix.
+ */
+public class WriteMetrics {
+
+    /**
+     * Bytes accepted by sends, whether written at once or buffered.
+     */
+    public final Counter bytes;
+    public final Counter dropped;
+    public final Counter failures;
+    /**
+     * Bytes currently buffered by all the writers for sockets that aren't draining.
+     */
+    public final Counter bufferedBytes;
+
+    public WriteMetrics(MetricsRegistry registry, String prefix) {
+        this.bytes = registry.counter(prefix + "_write_bytes");
+        this.dropped = registry.counter(prefix + "_write_dropped");
+        this.failures = registry.counter(prefix + "_write_failures");
+        this.bufferedBytes = registry.upDownCounter(prefix + "_write_buffered_bytes");
+    }
+}
@@ -0,0 +1,20 @@
+package org.jetlang.web;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives http request bodies above the chunk threshold as they arrive rather than buffered whole. Called on the
+ * read fiber before the request is dispatched. The request is then dispatched as usual with no content and
+ * {@link HttpRequest#isContentChunked()} set.
+ */
+public interface ChunkedContentHandler<T> {
+
+    void onStart(HttpRequest headers, T sessionState);
+
+    /**
+     * @param chunk the next bytes of the body. Only valid during the call.
+     */
+    void onChunk(HttpRequest headers, ByteBuffer chunk, T sessionState);
+
+    void onEnd(HttpRequest headers, T sessionState);
+}
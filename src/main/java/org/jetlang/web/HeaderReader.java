@@ -2,6 +2,8 @@ package org.jetlang.web;
 
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.metrics.ReadMetrics;
+import org.jetlang.remote.metrics.WriteMetrics;
 
 import java.net.URI;
 import java.nio.ByteBuffer;
@@ -22,8 +24,9 @@ public class HeaderReader<T> {
     private SessionDispatcherFactory.SessionDispatcher<T> sessionDispatcher;
     private final NioWriter writer;
     private final HttpResponse httpWriter;
+    private ReadMetrics readMetrics;
 
-    public HeaderReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, SessionFactory<T> sessionFactory, SessionDispatcherFactory<T> dispatcher, IoBufferPool bufferFactory) {
+    public HeaderReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, SessionFactory<T> sessionFactory, SessionDispatcherFactory<T> dispatcher, IoBufferPool bufferFactory, WriteWatermarks writeWatermarks) {
         this.channel = channel;
         this.fiber = fiber;
         this.controls = controls;
@@ -31,9 +34,15 @@ public class HeaderReader<T> {
         this.sessionFactory = sessionFactory;
         this.dispatcher = dispatcher;
         this.writer = new NioWriter(new Object(), channel, fiber, bufferFactory);
+        this.writer.setWatermarks(writeWatermarks);
         this.httpWriter = new HttpResponse.Default(writer);
     }
 
+    void setMetrics(ReadMetrics readMetrics, WriteMetrics writeMetrics) {
+        this.readMetrics = readMetrics;
+        this.writer.setMetrics(writeMetrics);
+    }
+
     public NioReader.State start() {
         return new FirstLine();
     }
@@ -82,7 +91,7 @@ public class HeaderReader<T> {
             final int startPosition = buffer.position();
             while (buffer.remaining() > 0) {
                 if (isCurrentCharEol(buffer)) {
-                    addFirstLine(buffer.array(), startPosition, buffer.position() - startPosition);
+                    addFirstLine(buffer.array(), buffer.arrayOffset() + startPosition, buffer.position() - startPosition);
                     return new HeaderLine(headers);
                 } else {
                     buffer.position(buffer.position() + 1);
@@ -103,12 +112,19 @@ public class HeaderReader<T> {
         }
     }
 
-    public NioReader.State dispatchHttpRequest(HttpRequest headers) {
+    private void initSession(HttpRequest headers) {
         if (!sessionInit) {
             sessionInit = true;
             session = sessionFactory.create(channel, fiber, controls, headers);
             sessionDispatcher = dispatcher.createOnNewSession(session, headers);
         }
+    }
+
+    public NioReader.State dispatchHttpRequest(HttpRequest headers) {
+        initSession(headers);
+        if (readMetrics != null) {
+            readMetrics.messages.inc();
+        }
         return handler.dispatch(sessionDispatcher, headers, httpWriter, HeaderReader.this, writer, session);
     }
 
@@ -128,9 +144,12 @@ public class HeaderReader<T> {
             if (eol == 4) {
                 if (headers.contentLength == 0) {
                     return dispatchHttpRequest(headers);
-                } else {
-                    return new ContentReader(headers);
                 }
+                ChunkedContentHandler<T> chunked = handler.getChunkedContentHandler();
+                if (chunked != null && headers.contentLength > handler.getChunkedContentThreshold()) {
+                    return new ChunkedContentReader(headers, chunked);
+                }
+                return new ContentReader(headers);
             }
             if (buffer.hasRemaining() && eol == 2) {
                 return new ReadHeader(headers);
@@ -161,6 +180,37 @@ public class HeaderReader<T> {
         }
     }
 
+    private class ChunkedContentReader implements NioReader.State {
+
+        private final HttpRequest headers;
+        private final ChunkedContentHandler<T> chunked;
+        private int remaining;
+
+        public ChunkedContentReader(HttpRequest headers, ChunkedContentHandler<T> chunked) {
+            this.headers = headers;
+            this.chunked = chunked;
+            this.remaining = headers.contentLength;
+            headers.contentChunked = true;
+            initSession(headers);
+            chunked.onStart(headers, session);
+        }
+
+        @Override
+        public NioReader.State processBytes(ByteBuffer bb) {
+            final int length = Math.min(bb.remaining(), remaining);
+            ByteBuffer chunk = bb.duplicate();
+            chunk.limit(bb.position() + length);
+            chunked.onChunk(headers, chunk, session);
+            bb.position(bb.position() + length);
+            remaining -= length;
+            if (remaining > 0) {
+                return null;
+            }
+            chunked.onEnd(headers, session);
+            return dispatchHttpRequest(headers);
+        }
+    }
+
     public class ReadHeader implements NioReader.State {
 
         private final HttpRequest headers;
@@ -174,7 +224,7 @@ public class HeaderReader<T> {
             final int startPosition = buffer.position();
             while (buffer.remaining() > 0) {
                 if (isCurrentCharEol(buffer)) {
-                    addHeader(buffer.array(), startPosition, buffer.position() - startPosition);
+                    addHeader(buffer.array(), buffer.arrayOffset() + startPosition, buffer.position() - startPosition);
                     return new HeaderLine(headers);
                 } else {
                     buffer.position(buffer.position() + 1);
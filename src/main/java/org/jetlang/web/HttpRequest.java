@@ -19,6 +19,7 @@ public class HttpRequest {
     String protocolVersion;
     int contentLength;
     byte[] content = empty;
+    boolean contentChunked;
     private KeyValueList queryParams = KeyValueList.EMPTY;
 
     public HttpRequest(String method, String uri, String protocolVersion, SocketAddress remoteAddress) {
@@ -63,6 +64,13 @@ public class HttpRequest {
         return content;
     }
 
+    /**
+     * @return true if the body was passed to a {@link ChunkedContentHandler} rather than read into the content
+     */
+    public boolean isContentChunked() {
+        return contentChunked;
+    }
+
     public KeyValueList getHeaders() {
         return headers;
     }
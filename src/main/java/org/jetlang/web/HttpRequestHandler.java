@@ -8,6 +8,17 @@ public interface HttpRequestHandler<T> {
 
     void onException(Throwable processingException, SocketChannel channel);
 
+    /**
+     * @return handler for bodies larger than {@link #getChunkedContentThreshold()}, or null to always buffer bodies
+     */
+    default ChunkedContentHandler<T> getChunkedContentHandler() {
+        return null;
+    }
+
+    default int getChunkedContentThreshold() {
+        return Integer.MAX_VALUE;
+    }
+
     default void onUnsupportedHttpsConnection(SocketAddress remoteAddress){
 
     }
@@ -21,11 +32,29 @@ public interface HttpRequestHandler<T> {
         private HandlerLocator.List<T> handlerMap;
         private final Handler<T> defaultHandler;
         private final ExceptionHandler handler;
+        private final int chunkedContentThreshold;
+        private final ChunkedContentHandler<T> chunkedContentHandler;
 
         public Default(HandlerLocator.List<T> handlerMap, Handler<T> defaultHandler, ExceptionHandler handler) {
+            this(handlerMap, defaultHandler, handler, Integer.MAX_VALUE, null);
+        }
+
+        public Default(HandlerLocator.List<T> handlerMap, Handler<T> defaultHandler, ExceptionHandler handler, int chunkedContentThreshold, ChunkedContentHandler<T> chunkedContentHandler) {
             this.handlerMap = handlerMap;
             this.defaultHandler = defaultHandler;
             this.handler = handler;
+            this.chunkedContentThreshold = chunkedContentThreshold;
+            this.chunkedContentHandler = chunkedContentHandler;
+        }
+
+        @Override
+        public ChunkedContentHandler<T> getChunkedContentHandler() {
+            return chunkedContentHandler;
+        }
+
+        @Override
+        public int getChunkedContentThreshold() {
+            return chunkedContentThreshold;
         }
 
         @Override
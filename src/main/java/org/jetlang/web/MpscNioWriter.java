@@ -0,0 +1,460 @@
+package org.jetlang.web;
+
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.metrics.WriteMetrics;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SocketWriter} for sockets written to by many threads at once. Sends never take a lock.
+ * <p>
+ * A sender that finds nothing queued and takes ownership of the socket writes directly, as {@link NioWriter} does.
+ * Otherwise the bytes are copied into a buffer borrowed from the {@link IoBufferPool} onto a multi producer queue and
+ * the owner drains the queue on the nio fiber with gathering writes, waiting for the socket to become writable when
+ * it is full. Results match {@link NioWriter}: queued bytes are reported as {@link SendResult.Buffered} and are
+ * subject to the {@link WriteWatermarks}.
+ */
+public class MpscNioWriter implements SocketWriter {
+
+    private static final int MAX_GATHER = 64;
+
+    private final SocketChannel channel;
+    private final NioFiber fiber;
+    private final IoBufferPool ioBufferPool;
+    private final SocketAddress remoteAddress;
+    private final ConcurrentLinkedQueue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean owned = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Object writabilityLock = new Object();
+    private final Callback<NioControls> drain = this::drainOnFiber;
+    private final WriteHandler writeHandler = new WriteHandler();
+    private volatile WriteWatermarks watermarks = WriteWatermarks.NONE;
+    private volatile Callback<WritabilityEvent> writabilityListener;
+    private volatile boolean writable = true;
+    private volatile WriteMetrics metrics;
+
+    //only used by the owner
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private int gathered;
+
+    public MpscNioWriter(SocketChannel channel, NioFiber fiber, IoBufferPool buffer) {
+        this.channel = channel;
+        this.fiber = fiber;
+        this.ioBufferPool = buffer;
+        this.remoteAddress = NioWriter.getRemote(channel);
+    }
+
+    @Override
+    public void setWatermarks(WriteWatermarks watermarks) {
+        this.watermarks = watermarks;
+    }
+
+    /**
+     * Called whenever the writer becomes unwritable or writable again. Events are delivered one at a time.
+     */
+    @Override
+    public void setWritabilityListener(Callback<WritabilityEvent> listener) {
+        this.writabilityListener = listener;
+    }
+
+    @Override
+    public void setMetrics(WriteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public int getTotalBytesBuffered() {
+        return (int) Math.min(Integer.MAX_VALUE, queuedBytes.get());
+    }
+
+    @Override
+    public SendResult send(ByteBuffer bb) {
+        if (closed.get() || !channel.isOpen()) {
+            bb.position(bb.limit());
+            return SendResult.Closed;
+        }
+        final int bytes = bb.remaining();
+        long queued = queuedBytes.get();
+        if (queued > 0) {
+            SendResult rejected = checkHighWatermark(queued, bytes);
+            if (rejected != null) {
+                bb.position(bb.limit());
+                return count(rejected, bytes);
+            }
+        } else if (owned.compareAndSet(false, true)) {
+            return count(writeAsOwner(bb), bytes);
+        }
+        return count(enqueue(copy(bb, bytes), bytes), bytes);
+    }
+
+    @Override
+    public SendResult send(byte[] toSend, int start, int length) {
+        return send(ByteBuffer.wrap(toSend, start, length));
+    }
+
+    @Override
+    public SendResult send(byte[] bytes) {
+        return send(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public SendResult sendWsMsg(byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes) {
+        //the pool's write buffer is per thread and send either writes or copies the frame before returning
+        ByteBuffer bb = ioBufferPool.beginWrite(NioWriter.wsFrameSize(length, maskBytes));
+        NioWriter.putWsFrame(bb, opCode, bytes, offset, length, maskBytes);
+        bb.flip();
+        SendResult result = send(bb);
+        ioBufferPool.returnBufferAfterWrite(bb);
+        return result;
+    }
+
+    @Override
+    public SendResult send(ByteBuffer[] srcs, int offset, int length) {
+        if (closed.get() || !channel.isOpen()) {
+            consume(srcs, offset, length);
+            return SendResult.Closed;
+        }
+        int bytes = 0;
+        for (int i = offset; i < offset + length; i++) {
+            bytes += srcs[i].remaining();
+        }
+        long queued = queuedBytes.get();
+        if (queued > 0) {
+            SendResult rejected = checkHighWatermark(queued, bytes);
+            if (rejected != null) {
+                consume(srcs, offset, length);
+                return count(rejected, bytes);
+            }
+        } else if (owned.compareAndSet(false, true)) {
+            return count(writeAsOwner(srcs, offset, length), bytes);
+        }
+        return count(enqueue(copy(srcs, offset, length, bytes), bytes), bytes);
+    }
+
+    private SendResult enqueue(ByteBuffer copy, int bytes) {
+        queue.offer(copy);
+        long total = addQueued(bytes);
+        onBuffered(total, 0);
+        if (owned.compareAndSet(false, true)) {
+            fiber.execute(drain);
+        }
+        return new SendResult.Buffered(bytes, toInt(total));
+    }
+
+    private SendResult count(SendResult result, int bytes) {
+        return NioWriter.count(metrics, result, bytes);
+    }
+
+    private long addQueued(long bytes) {
+        WriteMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.bufferedBytes.add(bytes);
+        }
+        return queuedBytes.addAndGet(bytes);
+    }
+
+    private SendResult writeAsOwner(ByteBuffer[] srcs, int offset, int length) {
+        try {
+            final ByteBuffer last = srcs[offset + length - 1];
+            while (last.hasRemaining()) {
+                if (channel.write(srcs, offset, length) == 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            consume(srcs, offset, length);
+            onFailure();
+            discard();
+            return new SendResult.FailedWithError(e);
+        }
+        int remaining = 0;
+        for (int i = offset; i < offset + length; i++) {
+            remaining += srcs[i].remaining();
+        }
+        return remaining == 0 ? written() : writePending(copy(srcs, offset, length, remaining), remaining);
+    }
+
+    private SendResult writeAsOwner(ByteBuffer bb) {
+        try {
+            while (bb.hasRemaining()) {
+                if (channel.write(bb) == 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            bb.position(bb.limit());
+            onFailure();
+            discard();
+            return new SendResult.FailedWithError(e);
+        }
+        final int remaining = bb.remaining();
+        return remaining == 0 ? written() : writePending(copy(bb, remaining), remaining);
+    }
+
+    private SendResult written() {
+        release();
+        return SendResult.SUCCESS;
+    }
+
+    private SendResult writePending(ByteBuffer rest, int remaining) {
+        //still the owner, so the rest goes ahead of anything queued meanwhile
+        gather[gathered++] = rest;
+        long total = addQueued(remaining);
+        onBuffered(total, 0);
+        fiber.execute(drain);
+        return new SendResult.Buffered(remaining, toInt(total));
+    }
+
+    private SendResult checkHighWatermark(long queued, int bytesToSend) {
+        WriteWatermarks watermarks = this.watermarks;
+        if (!watermarks.isEnabled() || queued + bytesToSend <= watermarks.getHigh()) {
+            return null;
+        }
+        onBuffered(queued, bytesToSend);
+        switch (watermarks.getPolicy().onHighWatermark(this, toInt(queued), bytesToSend)) {
+            case Drop:
+                return SendResult.Dropped;
+            case Disconnect:
+                onFailure();
+                return SendResult.Closed;
+            default:
+                return null;
+        }
+    }
+
+    private void onBuffered(long total, int rejectedBytes) {
+        WriteWatermarks watermarks = this.watermarks;
+        if (writable && watermarks.isEnabled() && total + rejectedBytes >= watermarks.getHigh()) {
+            setUnwritable(watermarks, rejectedBytes);
+        }
+    }
+
+    private void onDrained(long remaining) {
+        WriteWatermarks watermarks = this.watermarks;
+        if (!writable && remaining <= watermarks.getLow()) {
+            setWritable(watermarks);
+        }
+    }
+
+    //transitions are rare, so a lock here keeps events in order without slowing sends.
+    //totals passed in may be stale by the time the lock is held, so each transition reads the queue again.
+    private void setUnwritable(WriteWatermarks watermarks, int rejectedBytes) {
+        synchronized (writabilityLock) {
+            if (!writable || queuedBytes.get() + rejectedBytes < watermarks.getHigh()) {
+                return;
+            }
+            writable = false;
+            //the owner may have drained everything after the read above without seeing the flag,
+            //and nothing else would make the writer writable again
+            if (queuedBytes.get() == 0) {
+                writable = true;
+                return;
+            }
+            fireWritability(false);
+        }
+    }
+
+    private void setWritable(WriteWatermarks watermarks) {
+        synchronized (writabilityLock) {
+            if (writable || queuedBytes.get() > watermarks.getLow()) {
+                return;
+            }
+            writable = true;
+            fireWritability(true);
+        }
+    }
+
+    private void fireWritability(boolean writable) {
+        Callback<WritabilityEvent> listener = writabilityListener;
+        if (listener != null) {
+            listener.onMessage(new WritabilityEvent(writable, getTotalBytesBuffered()));
+        }
+    }
+
+    private void drainOnFiber(NioControls controls) {
+        if (!controls.isRegistered(channel)) {
+            discard();
+            return;
+        }
+        if (drain() == NioChannelHandler.Result.Continue) {
+            writeHandler.waiting = true;
+            controls.addHandler(writeHandler);
+        }
+    }
+
+    /**
+     * Called by the owner on the nio fiber.
+     *
+     * @return Continue if the socket is full, RemoveHandler once everything is written and ownership is released
+     */
+    private NioChannelHandler.Result drain() {
+        try {
+            while (true) {
+                while (gathered < MAX_GATHER) {
+                    ByteBuffer next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    gather[gathered++] = next;
+                }
+                if (gathered == 0) {
+                    owned.set(false);
+                    //a sender may have queued after the poll and found the socket owned
+                    if (queue.isEmpty() || !owned.compareAndSet(false, true)) {
+                        return NioChannelHandler.Result.RemoveHandler;
+                    }
+                    continue;
+                }
+                long written = channel.write(gather, 0, gathered);
+                int done = 0;
+                while (done < gathered && !gather[done].hasRemaining()) {
+                    ioBufferPool.returnReadBufferOnClose(gather[done]);
+                    done++;
+                }
+                System.arraycopy(gather, done, gather, 0, gathered - done);
+                for (int i = gathered - done; i < gathered; i++) {
+                    gather[i] = null;
+                }
+                gathered -= done;
+                onDrained(addQueued(-written));
+                if (gathered > 0) {
+                    //the socket is full
+                    return NioChannelHandler.Result.Continue;
+                }
+            }
+        } catch (IOException e) {
+            onFailure();
+            discard();
+            return NioChannelHandler.Result.CloseSocket;
+        }
+    }
+
+    private void release() {
+        owned.set(false);
+        if (!queue.isEmpty() && owned.compareAndSet(false, true)) {
+            fiber.execute(drain);
+        }
+    }
+
+    private void onFailure() {
+        if (closed.compareAndSet(false, true)) {
+            fiber.execute((c) -> c.close(channel));
+        }
+    }
+
+    /**
+     * Drops everything queued once the socket is gone. Ownership is kept so nothing else is written.
+     */
+    private void discard() {
+        closed.set(true);
+        for (int i = 0; i < gathered; i++) {
+            ioBufferPool.returnReadBufferOnClose(gather[i]);
+            gather[i] = null;
+        }
+        gathered = 0;
+        ByteBuffer queued;
+        while ((queued = queue.poll()) != null) {
+            ioBufferPool.returnReadBufferOnClose(queued);
+        }
+        addQueued(-queuedBytes.get());
+    }
+
+    //queued bytes are lent by the pool like a read buffer and given back once written or discarded
+    private ByteBuffer copy(ByteBuffer[] srcs, int offset, int length, int bytes) {
+        ByteBuffer copy = ioBufferPool.beginRead(bytes);
+        for (int i = offset; i < offset + length; i++) {
+            copy.put(srcs[i]);
+        }
+        copy.flip();
+        return copy;
+    }
+
+    private ByteBuffer copy(ByteBuffer bb, int bytes) {
+        ByteBuffer copy = ioBufferPool.beginRead(bytes);
+        copy.put(bb);
+        copy.flip();
+        return copy;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+
+        }
+    }
+
+    @Override
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    private static void consume(ByteBuffer[] srcs, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            srcs[i].position(srcs[i].limit());
+        }
+    }
+
+    private static int toInt(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private class WriteHandler implements NioChannelHandler {
+        private boolean waiting;
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            Result result = drain();
+            if (result != Result.Continue) {
+                waiting = false;
+            }
+            return result;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return SelectionKey.OP_WRITE;
+        }
+
+        @Override
+        public void onEnd() {
+            //the socket closed while the owner was waiting to write
+            if (waiting) {
+                waiting = false;
+                discard();
+            }
+        }
+
+        @Override
+        public void onSelectorEnd() {
+        }
+    }
+}
@@ -3,6 +3,9 @@ package org.jetlang.web;
 import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.metrics.Counter;
+import org.jetlang.remote.metrics.ReadMetrics;
+import org.jetlang.remote.metrics.WriteMetrics;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -20,16 +23,28 @@ public class NioReader<T> implements NioChannelHandler {
     private final int maxReadLoops;
     private final IoBufferPool bufferFactory;
     private State current;
+    private ReadMetrics readMetrics;
+    private Counter connections;
 
-    public NioReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<T> fact, SessionDispatcherFactory<T> dispatcherFact, IoBufferPool bufferFactory) {
+    public NioReader(SocketChannel channel, NioFiber fiber, NioControls controls, HttpRequestHandler<T> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<T> fact, SessionDispatcherFactory<T> dispatcherFact, IoBufferPool bufferFactory, WriteWatermarks writeWatermarks) {
         this.channel = channel;
         this.readBufferSizeInBytes = readBufferSizeInBytes;
         this.maxReadLoops = maxReadLoops;
         this.bufferFactory = bufferFactory;
-        this.headerReader = new HeaderReader<>(channel, fiber, controls, handler, fact, dispatcherFact, bufferFactory);
+        this.headerReader = new HeaderReader<>(channel, fiber, controls, handler, fact, dispatcherFact, bufferFactory, writeWatermarks);
         this.current = headerReader.initStateOnConnect();
     }
 
+    /**
+     * Counts bytes read, requests and bytes written, and the connection while it is open.
+     */
+    public void setMetrics(ReadMetrics readMetrics, WriteMetrics writeMetrics, Counter connections) {
+        this.readMetrics = readMetrics;
+        this.connections = connections;
+        this.headerReader.setMetrics(readMetrics, writeMetrics);
+        connections.inc();
+    }
+
     public boolean onRead() throws IOException {
         bb = bb == null ? bufferFactory.beginRead(readBufferSizeInBytes) : bb;
         for (int i = 0; i < maxReadLoops; i++) {
@@ -38,6 +53,9 @@ public class NioReader<T> implements NioChannelHandler {
                 return false;
             }
             if (read > 0) {
+                if (readMetrics != null) {
+                    readMetrics.bytes.add(read);
+                }
                 bb.flip();
                 State result = current;
                 while (result != null) {
@@ -48,9 +66,13 @@ public class NioReader<T> implements NioChannelHandler {
                 }
                 bb.compact();
                 if (bb.remaining() == 0 || bb.remaining() < current.minRequiredBytes()) {
-                    ByteBuffer resize = bufferAllocate(bb.capacity() + Math.max(1024, current.minRequiredBytes()));
+                    ByteBuffer resize = bufferFactory.beginRead(bb.capacity() + Math.max(1024, current.minRequiredBytes()));
                     bb.flip();
-                    bb = resize.put(bb);
+                    resize.put(bb);
+                    bb.clear();
+                    //the old buffer may be borrowed from a pool
+                    bufferFactory.returnBufferAfterRead(bb);
+                    bb = resize;
                 }
             } else {
                 break;
@@ -72,6 +94,9 @@ public class NioReader<T> implements NioChannelHandler {
 
 
     public void onClosed() {
+        if (connections != null) {
+            connections.dec();
+        }
         this.headerReader.onClose();
         current.onClosed();
         if (bb != null) {
@@ -135,6 +160,9 @@ public class NioReader<T> implements NioChannelHandler {
         } catch (IOException failed) {
             return Result.CloseSocket;
         } catch (Throwable processingException) {
+            if (readMetrics != null) {
+                readMetrics.parseFailures.inc();
+            }
             headerReader.onException(processingException, channel);
             return Result.CloseSocket;
         }
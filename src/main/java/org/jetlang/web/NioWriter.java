@@ -1,8 +1,10 @@
 package org.jetlang.web;
 
+import org.jetlang.core.Callback;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.remote.metrics.WriteMetrics;
 
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -14,7 +16,7 @@ import java.nio.channels.WritableByteChannel;
 
 import static org.jetlang.web.WebSocketConnectionImpl.findSize;
 
-public class NioWriter {
+public class NioWriter implements SocketWriter {
 
     private final SocketChannel channel;
     private final NioFiber fiber;
@@ -23,6 +25,11 @@ public class NioWriter {
     private NioFiberImpl.BufferedWrite<SocketChannel> bufferedWrite;
     private boolean closed = false;
     private final SocketAddress remoteAddress;
+    private WriteWatermarks watermarks = WriteWatermarks.NONE;
+    private volatile boolean writable = true;
+    private Callback<WritabilityEvent> writabilityListener;
+    WriteMetrics metrics;
+    private int reportedBuffered;
 
     public NioWriter(Object lock, SocketChannel channel, NioFiber fiber, IoBufferPool buffer) {
         this.channel = channel;
@@ -34,7 +41,7 @@ public class NioWriter {
         this.ioBufferPool = buffer;
     }
 
-    private static SocketAddress getRemote(SocketChannel channel) {
+    static SocketAddress getRemote(SocketChannel channel) {
         try {
             return channel.getRemoteAddress();
         } catch (IOException e) {
@@ -42,12 +49,180 @@ public class NioWriter {
         }
     }
 
+    @Override
+    public void setWatermarks(WriteWatermarks watermarks) {
+        synchronized (writeLock) {
+            this.watermarks = watermarks;
+        }
+    }
+
+    /**
+     * Called with the write lock held whenever the writer becomes unwritable or writable again.
+     */
+    @Override
+    public void setWritabilityListener(Callback<WritabilityEvent> listener) {
+        synchronized (writeLock) {
+            this.writabilityListener = listener;
+        }
+    }
+
+    @Override
+    public void setMetrics(WriteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private SendResult count(SendResult result, int bytes) {
+        return count(metrics, result, bytes);
+    }
+
+    static SendResult count(WriteMetrics metrics, SendResult result, int bytes) {
+        if (metrics != null) {
+            switch (result.getType()) {
+                case Success:
+                case Buffered:
+                    metrics.bytes.add(bytes);
+                    break;
+                case Dropped:
+                    metrics.dropped.inc();
+                    break;
+                case FailedOnError:
+                    metrics.failures.inc();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private void reportBuffered(int totalBuffered) {
+        if (metrics != null) {
+            metrics.bufferedBytes.add(totalBuffered - reportedBuffered);
+            reportedBuffered = totalBuffered;
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
     public SendResult send(ByteBuffer bb) {
         synchronized (writeLock) {
-            return doSend(bb);
+            final int bytes = bb.remaining();
+            SendResult rejected = checkHighWatermark(bytes);
+            if (rejected != null) {
+                bb.position(bb.limit());
+                return count(rejected, bytes);
+            }
+            return count(doSend(bb), bytes);
+        }
+    }
+
+    /**
+     * Applies the policy to a send that would go past the high watermark. A send is accepted or rejected as a
+     * whole, so a partially written message is always completed.
+     *
+     * @return null if the bytes may be sent
+     */
+    private SendResult checkHighWatermark(int bytesToSend) {
+        if (bufferedWrite == null || closed || !watermarks.isEnabled()) {
+            return null;
+        }
+        final int buffered = bufferedWrite.getBuffer().remaining();
+        if (buffered + bytesToSend <= watermarks.getHigh()) {
+            return null;
+        }
+        if (writable) {
+            setWritable(false, buffered);
+        }
+        switch (watermarks.getPolicy().onHighWatermark(this, buffered, bytesToSend)) {
+            case Drop:
+                return SendResult.Dropped;
+            case Disconnect:
+                attemptCloseOnNioFiber();
+                return SendResult.Closed;
+            default:
+                return null;
+        }
+    }
+
+    private void onBuffered(int totalBuffered) {
+        reportBuffered(totalBuffered);
+        if (writable && watermarks.isEnabled() && totalBuffered >= watermarks.getHigh()) {
+            setWritable(false, totalBuffered);
+        }
+    }
+
+    private void onDrained(int remaining) {
+        reportBuffered(remaining);
+        if (!writable && remaining <= watermarks.getLow()) {
+            setWritable(true, remaining);
         }
     }
 
+    private void setWritable(boolean writable, int buffered) {
+        this.writable = writable;
+        if (writabilityListener != null) {
+            writabilityListener.onMessage(new WritabilityEvent(writable, buffered));
+        }
+    }
+
+    @Override
+    public SendResult send(ByteBuffer[] srcs, int offset, int length) {
+        synchronized (writeLock) {
+            int bytes = 0;
+            if (bufferedWrite != null || metrics != null) {
+                for (int i = offset; i < offset + length; i++) {
+                    bytes += srcs[i].remaining();
+                }
+            }
+            if (bufferedWrite != null) {
+                SendResult rejected = checkHighWatermark(bytes);
+                if (rejected != null) {
+                    for (int i = offset; i < offset + length; i++) {
+                        srcs[i].position(srcs[i].limit());
+                    }
+                    return count(rejected, bytes);
+                }
+            }
+            if (!closed && bufferedWrite == null) {
+                try {
+                    writeAll(srcs, offset, length);
+                } catch (IOException e) {
+                    attemptCloseOnNioFiber();
+                    for (int i = offset; i < offset + length; i++) {
+                        srcs[i].position(srcs[i].limit());
+                    }
+                    return count(new SendResult.FailedWithError(e), bytes);
+                }
+            }
+            SendResult result = SendResult.SUCCESS;
+            int buffered = 0;
+            for (int i = offset; i < offset + length; i++) {
+                if (srcs[i].hasRemaining()) {
+                    buffered += srcs[i].remaining();
+                    result = doSend(srcs[i]);
+                }
+            }
+            if (result instanceof SendResult.Buffered) {
+                return count(new SendResult.Buffered(buffered, ((SendResult.Buffered) result).getTotalBufferedInBytes()), bytes);
+            }
+            return count(result, bytes);
+        }
+    }
+
+    private void writeAll(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        final ByteBuffer last = srcs[offset + length - 1];
+        while (last.hasRemaining()) {
+            if (channel.write(srcs, offset, length) == 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
     public int getTotalBytesBuffered() {
         synchronized (writeLock) {
             if (bufferedWrite != null) {
@@ -66,6 +241,7 @@ public class NioWriter {
             if (channel.isOpen() && channel.isRegistered()) {
                 int toBuffer = bb.remaining();
                 int totalBuffered = bufferedWrite.buffer(bb);
+                onBuffered(totalBuffered);
                 return new SendResult.Buffered(toBuffer, totalBuffered);
             } else {
                 bb.position(bb.position() + bb.remaining());
@@ -85,6 +261,7 @@ public class NioWriter {
         bufferedWrite = new NioFiberImpl.BufferedWrite<SocketChannel>(channel, new NioFiberImpl.WriteFailure() {
             @Override
             public <T extends SelectableChannel & WritableByteChannel> void onFailure(IOException e, T t, ByteBuffer byteBuffer) {
+                reportBuffered(0);
                 attemptCloseOnNioFiber();
             }
         }, new NioFiberImpl.OnBuffer() {
@@ -100,18 +277,22 @@ public class NioWriter {
             @Override
             public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
                 synchronized (writeLock) {
-                    return super.onSelect(nioFiber, controls, key);
+                    Result result = super.onSelect(nioFiber, controls, key);
+                    onDrained(bufferedWrite == null ? 0 : getBuffer().remaining());
+                    return result;
                 }
             }
         };
         int remaining = bb.remaining();
         int totalBuffered = bufferedWrite.buffer(bb);
+        onBuffered(totalBuffered);
         fiber.execute((c) -> {
             if (c.isRegistered(channel)) {
                 c.addHandler(bufferedWrite);
             } else {
                 synchronized (writeLock) {
                     bufferedWrite = null;
+                    reportBuffered(0);
                 }
             }
         });
@@ -125,6 +306,7 @@ public class NioWriter {
         }
     }
 
+    @Override
     public void close() {
         try {
             channel.close();
@@ -133,51 +315,72 @@ public class NioWriter {
         }
     }
 
+    @Override
     public SocketChannel getChannel() {
         return channel;
     }
 
+    @Override
     public SocketAddress getRemoteAddress() {
         return remoteAddress;
     }
 
+    @Override
     public SendResult sendWsMsg(byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes) {
-        byte header = 0;
-        header |= 1 << 7;
-        header |= opCode % 128;
-        WebSocketConnectionImpl.SizeType sz = findSize(length);
+        final int frameSize = wsFrameSize(length, maskBytes);
         synchronized (writeLock) {
-            ByteBuffer bb = ioBufferPool.beginWrite(1 + length + sz.bytes + maskBytes.length);
-            bb.put(header);
-            sz.write(bb, length, maskBytes.length > 0);
-            if (maskBytes.length > 0) {
-                bb.put(maskBytes);
-            }
-            if (bytes.length > 0 && maskBytes.length == 0) {
-                bb.put(bytes, offset, length);
-            } else {
-                for (int i = 0; i < length; ++i) {
-                    bb.put((byte) (bytes[i + offset] ^ maskBytes[i % 4]));
-                }
+            SendResult rejected = checkHighWatermark(frameSize);
+            if (rejected != null) {
+                return count(rejected, frameSize);
             }
+            ByteBuffer bb = ioBufferPool.beginWrite(frameSize);
+            putWsFrame(bb, opCode, bytes, offset, length, maskBytes);
             bb.flip();
             SendResult sendResult = doSend(bb);
             ioBufferPool.returnBufferAfterWrite(bb);
-            return sendResult;
+            return count(sendResult, frameSize);
+        }
+    }
+
+    static int wsFrameSize(int length, byte[] maskBytes) {
+        return 1 + length + findSize(length).bytes + maskBytes.length;
+    }
+
+    static void putWsFrame(ByteBuffer bb, byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes) {
+        byte header = 0;
+        header |= 1 << 7;
+        header |= opCode % 128;
+        bb.put(header);
+        findSize(length).write(bb, length, maskBytes.length > 0);
+        if (maskBytes.length > 0) {
+            bb.put(maskBytes);
+        }
+        if (bytes.length > 0 && maskBytes.length == 0) {
+            bb.put(bytes, offset, length);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                bb.put((byte) (bytes[i + offset] ^ maskBytes[i % 4]));
+            }
         }
     }
 
+    @Override
     public SendResult send(byte[] toSend, int start, int length) {
         synchronized (writeLock){
+            SendResult rejected = checkHighWatermark(length);
+            if (rejected != null) {
+                return count(rejected, length);
+            }
             ByteBuffer bb = ioBufferPool.beginWrite(length);
             bb.put(toSend, start, length);
             bb.flip();
             SendResult sendResult = doSend(bb);
             ioBufferPool.returnBufferAfterWrite(bb);
-            return sendResult;
+            return count(sendResult, length);
         }
     }
 
+    @Override
     public SendResult send(byte[] bytes) {
         return send(bytes, 0, bytes.length);
     }
@@ -4,6 +4,10 @@ public class SendResult {
 
     public static final SendResult SUCCESS = new SendResult(Type.Success);
     public static final SendResult Closed = new SendResult(Type.Closed);
+    /**
+     * Not sent because the socket is above its high watermark.
+     */
+    public static final SendResult Dropped = new SendResult(Type.Dropped);
 
     private final Type type;
 
@@ -22,8 +26,15 @@ public class SendResult {
         return type;
     }
 
+    /**
+     * @return true if the bytes were written or buffered to be written, false if they were dropped or failed.
+     */
+    public boolean isAccepted() {
+        return type == Type.Success || type == Type.Buffered;
+    }
+
     public enum Type {
-        Success, FailedOnError, Buffered, Closed;
+        Success, FailedOnError, Buffered, Closed, Dropped;
     }
 
     public static class FailedWithError extends SendResult {
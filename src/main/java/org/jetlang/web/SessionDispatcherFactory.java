@@ -3,6 +3,8 @@ package org.jetlang.web;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.PoolFiberFactory;
 import org.jetlang.remote.core.StringDecoder;
+import org.jetlang.remote.metrics.DispatchLatencyFiber;
+import org.jetlang.remote.metrics.Histogram;
 
 import java.nio.channels.SocketChannel;
 import java.util.Arrays;
@@ -50,6 +52,7 @@ public interface SessionDispatcherFactory<S> {
         private final Supplier<Fiber> fiberFactory;
         private final boolean useForWebsocket;
         private final boolean useForHttp;
+        private Histogram dispatchLatency;
 
         public FiberSessionFactory(Supplier<Fiber> fiberFactory, boolean useForWebsockets, boolean useForHttp) {
             this.fiberFactory = fiberFactory;
@@ -61,9 +64,19 @@ public interface SessionDispatcherFactory<S> {
             this(poolFiberFactory::create, useForWebsockets, useForHttp);
         }
 
+        /**
+         * Records the time from each request or websocket event being read until it runs on the session's fiber.
+         */
+        public void setDispatchLatency(Histogram dispatchLatency) {
+            this.dispatchLatency = dispatchLatency;
+        }
+
         @Override
         public SessionDispatcher<S> createOnNewSession(S session, HttpRequest headers) {
             Fiber fiber = fiberFactory.get();
+            if (dispatchLatency != null) {
+                fiber = new DispatchLatencyFiber(fiber, dispatchLatency);
+            }
             fiber.start();
             return new FiberSession<S>(fiber, useForHttp, useForWebsocket);
         }
@@ -0,0 +1,255 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioFiber;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read buffers shared by all connections. A connection borrows a buffer when bytes arrive and returns it once every
+ * byte has been processed, so idle connections hold no read buffer.
+ * <p>
+ * Buffers come in power of two size classes carved from slabs. Returned buffers are kept for reuse up to a cap on
+ * pooled memory. The pool never frees a slab itself. Its memory is reclaimed by the garbage collector once no buffer
+ * sliced from it is referenced, pooled or lent. When {@link NioReader} grows a buffer for a
+ * large message, it borrows the larger buffer and gives the old one back. Buffers larger than the biggest class
+ * are not pooled and are released to the garbage collector when returned. Write buffers are shared per thread, as
+ * with {@link IoBufferPool.Default}.
+ */
+public class SizeClassBufferPool implements IoBufferPool.Factory {
+
+    private final int minClassSize;
+    private final int maxClassSize;
+    private final int slabSize;
+    private final long maxPooledBytes;
+    private final boolean direct;
+    private final List<ConcurrentLinkedDeque<ByteBuffer>> free;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder lent = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder writeBufferBytes = new LongAdder();
+    private final ThreadLocal<ByteBuffer> threadLocalWriteBuffer = new ThreadLocal<>();
+
+    public SizeClassBufferPool() {
+        this(1024, 64 * 1024, 1024 * 1024, 64 * 1024 * 1024);
+    }
+
+    /**
+     * @param minClassSize   smallest buffer lent. Rounded up to a power of two.
+     * @param maxClassSize   largest pooled buffer. Rounded up to a power of two.
+     * @param slabSize       bytes allocated at once when a class has no free buffers
+     * @param maxPooledBytes returned buffers past this are released rather than kept
+     */
+    public SizeClassBufferPool(int minClassSize, int maxClassSize, int slabSize, long maxPooledBytes) {
+        this(minClassSize, maxClassSize, slabSize, maxPooledBytes, false);
+    }
+
+    /**
+     * @param direct lend direct buffers. Only for buffers used directly by socket reads, such as
+     *               {@link org.jetlang.remote.core.ReadBufferPolicy}, since http parsing needs heap buffers.
+     */
+    public SizeClassBufferPool(int minClassSize, int maxClassSize, int slabSize, long maxPooledBytes, boolean direct) {
+        if (minClassSize < 1 || maxClassSize < minClassSize) {
+            throw new IllegalArgumentException("Invalid size classes min: " + minClassSize + " max: " + maxClassSize);
+        }
+        this.minClassSize = roundUp(minClassSize);
+        this.maxClassSize = roundUp(maxClassSize);
+        this.slabSize = slabSize;
+        this.maxPooledBytes = maxPooledBytes;
+        this.direct = direct;
+        int classes = Integer.numberOfTrailingZeros(this.maxClassSize) - Integer.numberOfTrailingZeros(this.minClassSize) + 1;
+        this.free = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            free.add(new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    private static int roundUp(int size) {
+        int highest = Integer.highestOneBit(size);
+        return highest == size ? size : highest << 1;
+    }
+
+    private int classOf(int size) {
+        int rounded = roundUp(Math.max(size, minClassSize));
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(minClassSize);
+    }
+
+    private int sizeOf(int sizeClass) {
+        return minClassSize << sizeClass;
+    }
+
+    public ByteBuffer borrow(int minSize) {
+        lent.increment();
+        if (minSize > maxClassSize) {
+            misses.increment();
+            allocatedBytes.add(minSize);
+            return allocateBuffer(minSize);
+        }
+        int sizeClass = classOf(minSize);
+        ByteBuffer bb = free.get(sizeClass).pollFirst();
+        if (bb != null) {
+            hits.increment();
+            pooledBytes.addAndGet(-bb.capacity());
+            return bb;
+        }
+        misses.increment();
+        return allocate(sizeClass);
+    }
+
+    /**
+     * Carves a slab into buffers of the class, keeping the rest for later borrows while under the cap.
+     */
+    private ByteBuffer allocate(int sizeClass) {
+        int size = sizeOf(sizeClass);
+        int count = Math.max(1, slabSize / size);
+        while (count > 1 && pooledBytes.get() + (long) (count - 1) * size > maxPooledBytes) {
+            count /= 2;
+        }
+        ByteBuffer slab = allocateBuffer(count * size);
+        allocatedBytes.add(slab.capacity());
+        ByteBuffer first = null;
+        for (int i = 0; i < count; i++) {
+            slab.limit((i + 1) * size).position(i * size);
+            ByteBuffer bb = slab.slice();
+            if (first == null) {
+                first = bb;
+            } else {
+                pooledBytes.addAndGet(size);
+                free.get(sizeClass).offerFirst(bb);
+            }
+        }
+        return first;
+    }
+
+    private ByteBuffer allocateBuffer(int size) {
+        return direct ? NioReader.bufferAllocateDirect(size) : NioReader.bufferAllocate(size);
+    }
+
+    public void giveBack(ByteBuffer bb) {
+        lent.decrement();
+        int capacity = bb.capacity();
+        if (bb.isDirect() == direct && capacity >= minClassSize && capacity <= maxClassSize && Integer.bitCount(capacity) == 1) {
+            if (pooledBytes.addAndGet(capacity) <= maxPooledBytes) {
+                bb.clear();
+                free.get(classOf(capacity)).offerFirst(bb);
+                return;
+            }
+            pooledBytes.addAndGet(-capacity);
+        }
+        released.increment();
+    }
+
+    /**
+     * Releases every pooled buffer, e.g. after a burst of connections has gone idle.
+     */
+    public void releaseIdle() {
+        for (ConcurrentLinkedDeque<ByteBuffer> buffers : free) {
+            ByteBuffer bb;
+            while ((bb = buffers.pollFirst()) != null) {
+                pooledBytes.addAndGet(-bb.capacity());
+                released.increment();
+            }
+        }
+    }
+
+    /**
+     * @return bytes held for reuse
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @return read buffer bytes allocated since the pool was created
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return read buffers currently lent to connections
+     */
+    public long getBuffersLent() {
+        return lent.sum();
+    }
+
+    /**
+     * @return bytes held by the per thread write buffers
+     */
+    public long getWriteBufferBytes() {
+        return writeBufferBytes.sum();
+    }
+
+    public long getPoolHits() {
+        return hits.sum();
+    }
+
+    public long getPoolMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return returned buffers not kept because they were unpooled sizes or the pool was full
+     */
+    public long getBuffersReleased() {
+        return released.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SizeClassBufferPool{pooledBytes=" + getPooledBytes() + ", allocatedBytes=" + getAllocatedBytes()
+                + ", lent=" + getBuffersLent() + ", hits=" + getPoolHits() + ", misses=" + getPoolMisses()
+                + ", released=" + getBuffersReleased() + ", writeBufferBytes=" + getWriteBufferBytes() + '}';
+    }
+
+    @Override
+    public IoBufferPool createFor(SocketChannel channel, NioFiber fiber) {
+        return new IoBufferPool() {
+            @Override
+            public ByteBuffer beginRead(int readBufferSizeInBytes) {
+                return borrow(readBufferSizeInBytes);
+            }
+
+            @Override
+            public ByteBuffer returnBufferAfterRead(ByteBuffer bb) {
+                giveBack(bb);
+                //borrow again when more bytes arrive
+                return null;
+            }
+
+            @Override
+            public void returnReadBufferOnClose(ByteBuffer bb) {
+                giveBack(bb);
+            }
+
+            @Override
+            public ByteBuffer beginWrite(int minSize) {
+                ByteBuffer writeBuffer = threadLocalWriteBuffer.get();
+                if (writeBuffer == null || writeBuffer.capacity() < minSize) {
+                    if (writeBuffer != null) {
+                        writeBufferBytes.add(-writeBuffer.capacity());
+                    }
+                    writeBuffer = NioReader.bufferAllocateDirect(roundUp(minSize));
+                    writeBufferBytes.add(writeBuffer.capacity());
+                    threadLocalWriteBuffer.set(writeBuffer);
+                } else {
+                    writeBuffer.clear();
+                }
+                return writeBuffer;
+            }
+
+            @Override
+            public void returnBufferAfterWrite(ByteBuffer bb) {
+
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package org.jetlang.web;
+
+/**
+ * Decides what a {@link SocketWriter} does with a send that would take the bytes buffered for a slow socket past the
+ * high watermark. Called with the write lock held, so implementations must not block.
+ * <p>
+ * To pause publishing, keep buffering and have publishers skip unwritable sessions. To conflate, drop and resend
+ * the latest values once the writer is writable again.
+ */
+public interface SlowConsumerPolicy {
+
+    enum Action {
+        Buffer, Drop, Disconnect
+    }
+
+    Action onHighWatermark(SocketWriter writer, int bufferedBytes, int bytesToSend);
+
+    SlowConsumerPolicy BUFFER = (writer, buffered, toSend) -> Action.Buffer;
+    SlowConsumerPolicy DROP = (writer, buffered, toSend) -> Action.Drop;
+    SlowConsumerPolicy DISCONNECT = (writer, buffered, toSend) -> Action.Disconnect;
+}
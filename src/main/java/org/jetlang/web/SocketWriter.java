@@ -0,0 +1,55 @@
+package org.jetlang.web;
+
+import org.jetlang.core.Callback;
+import org.jetlang.remote.metrics.WriteMetrics;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Writes to a non blocking socket, buffering whatever the socket doesn't accept until it drains.
+ *
+ * @see NioWriter
+ * @see MpscNioWriter
+ */
+public interface SocketWriter {
+
+    void setWatermarks(WriteWatermarks watermarks);
+
+    /**
+     * Called whenever the writer becomes unwritable or writable again.
+     */
+    void setWritabilityListener(Callback<WritabilityEvent> listener);
+
+    /**
+     * Counts the bytes sent and buffered into the metrics, which are usually shared by many writers.
+     */
+    void setMetrics(WriteMetrics metrics);
+
+    /**
+     * @return false from when the buffered bytes reach the high watermark until drained to the low watermark
+     */
+    boolean isWritable();
+
+    int getTotalBytesBuffered();
+
+    SendResult send(ByteBuffer bb);
+
+    /**
+     * Writes the buffers with one gathering write. Anything the socket doesn't accept is buffered in order.
+     */
+    SendResult send(ByteBuffer[] srcs, int offset, int length);
+
+    SendResult send(byte[] toSend, int start, int length);
+
+    SendResult send(byte[] bytes);
+
+    SendResult sendWsMsg(byte opCode, byte[] bytes, int offset, int length, byte[] maskBytes);
+
+    void close();
+
+    SocketChannel getChannel();
+
+    SocketAddress getRemoteAddress();
+}
@@ -4,6 +4,10 @@ import org.jetlang.fibers.NioChannelHandler;
 import org.jetlang.fibers.NioControls;
 import org.jetlang.fibers.NioFiber;
 import org.jetlang.remote.acceptor.NioAcceptorHandler;
+import org.jetlang.remote.metrics.Counter;
+import org.jetlang.remote.metrics.MetricsRegistry;
+import org.jetlang.remote.metrics.ReadMetrics;
+import org.jetlang.remote.metrics.WriteMetrics;
 
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -17,8 +21,16 @@ public class WebDispatcher<S> implements NioAcceptorHandler.ClientFactory {
     private final SessionFactory<S> factory;
     private final SessionDispatcherFactory<S> dispatcherFact;
     private final IoBufferPool.Factory bufferFactory;
+    private final WriteWatermarks writeWatermarks;
+    private ReadMetrics readMetrics;
+    private WriteMetrics writeMetrics;
+    private Counter connections;
 
     public WebDispatcher(NioFiber readFiber, HttpRequestHandler<S> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<S> factory, SessionDispatcherFactory<S> dispatcherFact, IoBufferPool.Factory bufferFactory) {
+        this(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory, WriteWatermarks.NONE);
+    }
+
+    public WebDispatcher(NioFiber readFiber, HttpRequestHandler<S> handler, int readBufferSizeInBytes, int maxReadLoops, SessionFactory<S> factory, SessionDispatcherFactory<S> dispatcherFact, IoBufferPool.Factory bufferFactory, WriteWatermarks writeWatermarks) {
         this.readFiber = readFiber;
         this.handler = handler;
         this.readBufferSizeInBytes = readBufferSizeInBytes;
@@ -26,6 +38,16 @@ public class WebDispatcher<S> implements NioAcceptorHandler.ClientFactory {
         this.factory = factory;
         this.dispatcherFact = dispatcherFact;
         this.bufferFactory = bufferFactory;
+        this.writeWatermarks = writeWatermarks;
+    }
+
+    /**
+     * Reports bytes read and written, requests and open connections of connections accepted afterwards.
+     */
+    public void setMetrics(MetricsRegistry registry) {
+        this.readMetrics = new ReadMetrics(registry, "jetlang_web");
+        this.writeMetrics = new WriteMetrics(registry, "jetlang_web");
+        this.connections = registry.upDownCounter("jetlang_web_connections");
     }
 
     @Override
@@ -36,6 +58,10 @@ public class WebDispatcher<S> implements NioAcceptorHandler.ClientFactory {
     }
 
     protected NioChannelHandler createHandler(SelectionKey key, SocketChannel channel, NioFiber fiber, NioControls controls) {
-        return new NioReader<S>(channel, fiber, controls, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory.createFor(channel, fiber));
+        NioReader<S> reader = new NioReader<S>(channel, fiber, controls, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcherFact, bufferFactory.createFor(channel, fiber), writeWatermarks);
+        if (readMetrics != null) {
+            reader.setMetrics(readMetrics, writeMetrics, connections);
+        }
+        return reader;
     }
 }
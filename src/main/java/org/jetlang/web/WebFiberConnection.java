@@ -1,5 +1,6 @@
 package org.jetlang.web;
 
+import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
 import org.jetlang.fibers.Fiber;
 
@@ -51,6 +52,16 @@ public class WebFiberConnection implements WebSocketConnection {
         return connection.sendBinary(buffer, offset, length);
     }
 
+    @Override
+    public boolean isWritable() {
+        return connection.isWritable();
+    }
+
+    @Override
+    public void setWritabilityListener(Callback<WritabilityEvent> listener) {
+        connection.setWritabilityListener(listener);
+    }
+
     @Override
     public void close() {
         connection.close();
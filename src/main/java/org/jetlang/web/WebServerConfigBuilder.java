@@ -2,6 +2,8 @@ package org.jetlang.web;
 
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.NioFiber;
+import org.jetlang.remote.metrics.MetricsHttpHandler;
+import org.jetlang.remote.metrics.MetricsRegistry;
 
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
@@ -37,15 +39,60 @@ public class WebServerConfigBuilder<S> {
         }
     };
     private IoBufferPool.Factory bufferPool = new IoBufferPool.Default();
+    private WriteWatermarks writeWatermarks = WriteWatermarks.NONE;
+    private int chunkedContentThreshold = Integer.MAX_VALUE;
+    private ChunkedContentHandler<S> chunkedContentHandler;
+    private MetricsRegistry metrics;
 
     public IoBufferPool.Factory getBufferPool() {
         return bufferPool;
     }
 
+    /**
+     * Use a {@link SizeClassBufferPool} to share read buffers when most connections are idle.
+     */
     public void setBufferPool(IoBufferPool.Factory bufferPool) {
         this.bufferPool = bufferPool;
     }
 
+    /**
+     * Request bodies larger than the threshold are passed to the handler as they are read instead of being
+     * buffered whole.
+     */
+    public void setChunkedContent(int thresholdBytes, ChunkedContentHandler<S> handler) {
+        this.chunkedContentThreshold = thresholdBytes;
+        this.chunkedContentHandler = handler;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Connections report bytes read and written, requests and open connections to the registry.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Serves the registry in the prometheus text format at the path.
+     */
+    public WebServerConfigBuilder<S> addMetrics(String path, MetricsRegistry registry) {
+        return add(PathMatcher.pathEq(path), new MetricsHttpHandler<>(registry));
+    }
+
+    public WriteWatermarks getWriteWatermarks() {
+        return writeWatermarks;
+    }
+
+    /**
+     * Limits the bytes buffered for each connection whose socket isn't draining. Unlimited by default.
+     */
+    public void setWriteWatermarks(WriteWatermarks writeWatermarks) {
+        this.writeWatermarks = writeWatermarks;
+    }
+
     public WebServerConfigBuilder(SessionFactory<S> factory) {
         this.factory = factory;
     }
@@ -149,10 +196,14 @@ public class WebServerConfigBuilder<S> {
             event.accept(all);
         }
         HttpRequestHandler<S> handler = decorator.decorate(createHandler(all));
-        return new WebDispatcher<>(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcher, bufferPool);
+        WebDispatcher<S> webDispatcher = new WebDispatcher<>(readFiber, handler, readBufferSizeInBytes, maxReadLoops, factory, dispatcher, bufferPool, writeWatermarks);
+        if (metrics != null) {
+            webDispatcher.setMetrics(metrics);
+        }
+        return webDispatcher;
     }
 
     protected HttpRequestHandler<S> createHandler(final HandlerLocator.List<S> handlerMap) {
-        return new HttpRequestHandler.Default<>(handlerMap, defaultHandler, exceptionHandler);
+        return new HttpRequestHandler.Default<>(handlerMap, defaultHandler, exceptionHandler, chunkedContentThreshold, chunkedContentHandler);
     }
 }
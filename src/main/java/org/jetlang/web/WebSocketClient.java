@@ -219,7 +219,7 @@ public class WebSocketClient<S, T> {
             SessionDispatcherFactory.OnReadThreadDispatcher<S> sOnReadThreadDispatcher = new SessionDispatcherFactory.OnReadThreadDispatcher<>();
             nioControls.addHandler(new NioReader<>(newChannel, readFiber, nioControls, webSocketClientReader,
                     config.getReadBufferSizeInBytes(),
-                    config.getMaxReadLoops(), sessionFactory, sOnReadThreadDispatcher, pool));
+                    config.getMaxReadLoops(), sessionFactory, sOnReadThreadDispatcher, pool, WriteWatermarks.NONE));
         }
 
         @Override
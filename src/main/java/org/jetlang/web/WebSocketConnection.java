@@ -1,5 +1,6 @@
 package org.jetlang.web;
 
+import org.jetlang.core.Callback;
 import org.jetlang.core.DisposingExecutor;
 import org.jetlang.core.Scheduler;
 
@@ -40,6 +41,16 @@ public interface WebSocketConnection extends Scheduler, DisposingExecutor {
      */
     SendResult sendBinary(byte[] buffer, int offset, int length);
 
+    /**
+     * @return false while the bytes buffered for the socket are above the {@link WriteWatermarks}
+     */
+    boolean isWritable();
+
+    /**
+     * Called on the sending or read thread whenever writability changes. Must not block.
+     */
+    void setWritabilityListener(Callback<WritabilityEvent> listener);
+
     /**
      * Attempts to close the underlying socket.
      */
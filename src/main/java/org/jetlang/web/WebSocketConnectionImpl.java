@@ -1,5 +1,6 @@
 package org.jetlang.web;
 
+import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
 import org.jetlang.fibers.NioFiber;
 
@@ -66,6 +67,16 @@ public class WebSocketConnectionImpl implements WebSocketConnection {
         return send(OPCODE_PING, bytes, offset, length);
     }
 
+    @Override
+    public boolean isWritable() {
+        return writer.isWritable();
+    }
+
+    @Override
+    public void setWritabilityListener(Callback<WritabilityEvent> listener) {
+        writer.setWritabilityListener(listener);
+    }
+
     void onClose() {
         synchronized (disposables) {
             closed = true;
@@ -19,7 +19,7 @@ public class WebSocketReader<S, T> {
 
     public WebSocketReader(WebSocketConnectionImpl connection, HttpRequest headers, Charset charset, WebSocketHandler<S, T> handler, Runnable onClose, S state) {
         this.connection = connection;
-        this.charset = StringDecoder.create(charset);
+        this.charset = StringDecoder.createNoCopy(charset);
         this.handler = handler;
         this.onClose = onClose;
         this.state = handler.onOpen(connection, headers, state);
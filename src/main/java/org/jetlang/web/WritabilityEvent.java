@@ -0,0 +1,24 @@
+package org.jetlang.web;
+
+public class WritabilityEvent {
+    private final boolean writable;
+    private final int bufferedBytes;
+
+    public WritabilityEvent(boolean writable, int bufferedBytes) {
+        this.writable = writable;
+        this.bufferedBytes = bufferedBytes;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public int getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "WritabilityEvent{writable=" + writable + ", bufferedBytes=" + bufferedBytes + '}';
+    }
+}
@@ -0,0 +1,51 @@
+package org.jetlang.web;
+
+/**
+ * Bounds the bytes a {@link NioWriter} buffers for a socket that isn't draining. The writer becomes unwritable once
+ * the buffered bytes reach the high watermark and writable again once drained to the low watermark. Sends that
+ * would go past the high watermark are handled by the {@link SlowConsumerPolicy}.
+ */
+public class WriteWatermarks {
+
+    /**
+     * Buffers without limit and is always writable.
+     */
+    public static final WriteWatermarks NONE = new WriteWatermarks(0, 0, SlowConsumerPolicy.BUFFER);
+
+    private final int low;
+    private final int high;
+    private final SlowConsumerPolicy policy;
+
+    /**
+     * @param high not positive for no limit
+     */
+    public WriteWatermarks(int low, int high, SlowConsumerPolicy policy) {
+        if (high > 0 && (low < 0 || low > high)) {
+            throw new IllegalArgumentException("Invalid watermarks low: " + low + " high: " + high);
+        }
+        this.low = low;
+        this.high = high;
+        this.policy = policy;
+    }
+
+    public int getLow() {
+        return low;
+    }
+
+    public int getHigh() {
+        return high;
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isEnabled() {
+        return high > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteWatermarks{low=" + low + ", high=" + high + '}';
+    }
+}
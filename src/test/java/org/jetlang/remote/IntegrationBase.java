@@ -9,13 +9,21 @@ import org.jetlang.remote.client.*;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.HeartbeatEvent;
 import org.jetlang.remote.core.JavaSerializer;
+import org.jetlang.remote.core.ProtocolFeatures;
 import org.jetlang.remote.core.ReadTimeoutEvent;
 import org.junit.After;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,7 +41,7 @@ public abstract class IntegrationBase {
     SerializerAdapter serAdapter = new SerializerAdapter(serializerFactory);
 
 
-    SocketConnector conn = new SocketConnector("localhost", 8081);
+    SocketConnector conn;
     JetlangClientHandler handler;
 
     @After
@@ -331,6 +339,84 @@ public abstract class IntegrationBase {
         acceptor.stop();
     }
 
+    @Test
+    public void handshakeEnablesTopicAliases() throws IOException, InterruptedException {
+        final EventAssert<SessionTopic> subscriptionReceived = new EventAssert<SessionTopic>(1);
+        subscriptionReceived.onMessage(topic -> topic.publish("mymsg"));
+        final EventAssert<SessionMessage<?>> serverMessageReceive = new EventAssert<SessionMessage<?>>(2);
+        NewSessionHandler sessionCallback = wrap(new NewFiberSessionHandler() {
+            public void onNewSession(ClientPublisher pub, JetlangFiberSession session) {
+                subscriptionReceived.subscribe(session.getSubscriptionRequestChannel(), session.getFiber());
+                serverMessageReceive.subscribe(session.getSessionMessageChannel(), session.getFiber());
+            }
+        });
+
+        ByteArrayOutputStream fromClient = new ByteArrayOutputStream();
+        Acceptor acceptor = createAcceptor(sessionCallback, new RecordingServerSocket(fromClient));
+
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        clientConfig.setHandshakeFeatures(ProtocolFeatures.All);
+        EventAssert<Object> msgReceived = new EventAssert<Object>(1);
+        JetlangClient client = createClient();
+        client.subscribe("topic", msgReceived.asSubscribable());
+        client.start();
+        //the handshake reply is sent before any published message
+        msgReceived.assertEvent();
+        client.publish("toServer", "first");
+        client.publish("toServer", "second");
+        serverMessageReceive.assertEvent();
+        assertEquals("toServer", serverMessageReceive.takeFromReceived().getTopic());
+        assertEquals("second", serverMessageReceive.takeFromReceived().getMessage());
+        //with aliases the topic is only sent in the binding
+        assertEquals(1, count(fromClient.toByteArray(), "toServer".getBytes(StandardCharsets.US_ASCII)));
+        close(client);
+        acceptor.stop();
+    }
+
+    private static int count(byte[] bytes, byte[] sub) {
+        int found = 0;
+        for (int i = 0; i + sub.length <= bytes.length; i++) {
+            if (Arrays.equals(sub, Arrays.copyOfRange(bytes, i, i + sub.length))) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Records the bytes the acceptor reads from its clients.
+     */
+    private static class RecordingServerSocket extends ServerSocket {
+        private final ByteArrayOutputStream read;
+
+        RecordingServerSocket(ByteArrayOutputStream read) throws IOException {
+            this.read = read;
+        }
+
+        @Override
+        public Socket accept() throws IOException {
+            Socket socket = new Socket() {
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return new FilterInputStream(super.getInputStream()) {
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            int bytes = super.read(b, off, len);
+                            if (bytes > 0) {
+                                read.write(b, off, bytes);
+                            }
+                            return bytes;
+                        }
+                    };
+                }
+            };
+            implAccept(socket);
+            return socket;
+        }
+    }
+
     private void close(JetlangClient client) {
         try {
             assertTrue(client.close(true).await(1, TimeUnit.SECONDS));
@@ -479,11 +565,19 @@ public abstract class IntegrationBase {
     }
 
     private Acceptor createAcceptor(NewSessionHandler newSession) throws IOException {
+        return createAcceptor(newSession, new ServerSocket());
+    }
+
+    private Acceptor createAcceptor(NewSessionHandler newSession, ServerSocket serverSocket) throws IOException {
+        //any free port so a test never waits on the previous test's socket
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("localhost", 0));
+        conn = new SocketConnector("localhost", serverSocket.getLocalPort());
         handler = new JetlangClientHandler(serializerFactory, newSession,
                 service, sessionConfig, new JetlangClientHandler.FiberFactory.ThreadFiberFactory(),
                 new ErrorHandler.SysOut());
         return new Acceptor(
-                new ServerSocket(8081),
+                serverSocket,
                 new Acceptor.ErrorHandler.SysOut(),
                 handler);
     }
@@ -2,29 +2,41 @@ package org.jetlang.remote;
 
 import org.jetlang.core.Callback;
 import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.NioFiberImpl;
 import org.jetlang.fibers.ThreadFiber;
 import org.jetlang.remote.acceptor.*;
 import org.jetlang.remote.client.*;
 import org.jetlang.remote.core.ErrorHandler;
 import org.jetlang.remote.core.JavaSerializer;
+import org.jetlang.remote.core.TcpClientNioFiber;
+import org.jetlang.remote.core.TopicReader;
+import org.jetlang.web.SendResult;
 import org.junit.After;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RequestReplyTest {
     ExecutorService service = Executors.newCachedThreadPool();
     JetlangSessionConfig sessionConfig = new JetlangSessionConfig();
     JetlangClientConfig clientConfig = new JetlangClientConfig();
 
-    SocketConnector conn = new SocketConnector("localhost", 8081);
+    SocketConnector conn;
     JetlangClientHandler handler;
 
     @After
@@ -85,6 +97,157 @@ public class RequestReplyTest {
         acceptor.stop();
     }
 
+    @Test
+    public void nioPipelinedRequests() throws Exception {
+        NewSessionHandler<Object, Object> sessionCallback = (pub, jetlangSession) ->
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(),
+                        req -> req.reply("reply:" + req.getRequest()));
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        NioFiberImpl nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        JetlangTcpNioClient<Object, Object> client = new JetlangTcpNioClient<>(conn, clientConfig, new JavaSerializer(),
+                new ErrorHandler.SysOut(), new TcpClientNioFiber(nioFiber), new TopicReader.Cached(StandardCharsets.UTF_8));
+        CountDownLatch connected = new CountDownLatch(1);
+        client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), (c) -> connected.countDown());
+        client.start();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<Object>> replies = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            replies.add(client.request("reqTopic", i, 5, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            assertEquals("reply:" + i, replies.get(i).get(5, TimeUnit.SECONDS));
+        }
+        client.stop(1, TimeUnit.SECONDS);
+        nioFiber.dispose();
+        acceptor.stop();
+    }
+
+    @Test
+    public void nioCoalescedWritesAreReportedAsBuffered() throws Exception {
+        NewSessionHandler<Object, Object> sessionCallback = (pub, jetlangSession) ->
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(),
+                        req -> req.reply("reply:" + req.getRequest()));
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        clientConfig.setWriteCoalescingThreshold(64 * 1024);
+        NioFiberImpl nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        JetlangTcpNioClient<Object, Object> client = new JetlangTcpNioClient<>(conn, clientConfig, new JavaSerializer(),
+                new ErrorHandler.SysOut(), new TcpClientNioFiber(nioFiber), new TopicReader.Cached(StandardCharsets.UTF_8));
+        CountDownLatch connected = new CountDownLatch(1);
+        client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), (c) -> connected.countDown());
+        client.start();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        SendResult published = client.publish("topic", "msg");
+        assertTrue(published.toString(), published instanceof SendResult.Buffered);
+        assertTrue(((SendResult.Buffered) published).getBufferedBytes() > 0);
+        assertEquals("reply:1", client.request("reqTopic", 1, 5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        client.stop(1, TimeUnit.SECONDS);
+        assertEquals(SendResult.Closed, client.publish("topic", "msg"));
+        nioFiber.dispose();
+        acceptor.stop();
+    }
+
+    @Test
+    public void nioRequestFailsOnDisconnect() throws Exception {
+        NewSessionHandler<Object, Object> sessionCallback = (pub, jetlangSession) ->
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(),
+                        req -> jetlangSession.disconnect());
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        NioFiberImpl nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        JetlangTcpNioClient<Object, Object> client = new JetlangTcpNioClient<>(conn, clientConfig, new JavaSerializer(),
+                new ErrorHandler.SysOut(), new TcpClientNioFiber(nioFiber), new TopicReader.Cached(StandardCharsets.UTF_8));
+        CountDownLatch connected = new CountDownLatch(1);
+        client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), (c) -> connected.countDown());
+        client.start();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Object> noTimeout = client.request("reqTopic", "requestObject", 0, TimeUnit.SECONDS);
+        try {
+            noTimeout.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException failed) {
+            assertTrue(failed.getCause() instanceof IOException);
+        }
+        client.stop(1, TimeUnit.SECONDS);
+        nioFiber.dispose();
+        acceptor.stop();
+    }
+
+    @Test
+    public void nioReplyStream() throws Exception {
+        final int total = 1000;
+        final int window = 16;
+        NewSessionHandler<Object, Object> sessionCallback = (pub, jetlangSession) ->
+                jetlangSession.getSessionRequestChannel().subscribe(new SynchronousDisposingExecutor(), req -> {
+                    ReplyStream<Object> stream = req.openStream();
+                    Runnable pump = new Runnable() {
+                        int next;
+
+                        @Override
+                        public synchronized void run() {
+                            while (next < total && stream.send(next)) {
+                                next++;
+                            }
+                            if (next == total) {
+                                stream.end();
+                            }
+                        }
+                    };
+                    stream.setCreditListener(pump);
+                    pump.run();
+                });
+        Acceptor acceptor = createAcceptor(sessionCallback);
+        Thread runner = new Thread(acceptor);
+        runner.start();
+
+        NioFiberImpl nioFiber = new NioFiberImpl();
+        nioFiber.start();
+        JetlangTcpNioClient<Object, Object> client = new JetlangTcpNioClient<>(conn, clientConfig, new JavaSerializer(),
+                new ErrorHandler.SysOut(), new TcpClientNioFiber(nioFiber), new TopicReader.Cached(StandardCharsets.UTF_8));
+        CountDownLatch connected = new CountDownLatch(1);
+        client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), (c) -> connected.countDown());
+        client.start();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        List<Object> parts = new ArrayList<>();
+        CountDownLatch ended = new CountDownLatch(1);
+        ReplyStreamRequest<?>[] request = new ReplyStreamRequest<?>[1];
+        request[0] = client.requestStream("rows", "query", new SynchronousDisposingExecutor(), new ReplyStreamHandler<Object>() {
+            @Override
+            public void onPart(Object part) {
+                parts.add(part);
+                if (parts.size() % window == 0) {
+                    request[0].request(window);
+                }
+            }
+
+            @Override
+            public void onEnd() {
+                ended.countDown();
+            }
+        }, window);
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(total, parts.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(i, parts.get(i));
+        }
+        client.stop(1, TimeUnit.SECONDS);
+        nioFiber.dispose();
+        acceptor.stop();
+    }
 
     private JetlangClient createClient() {
         return new JetlangTcpClient(conn, new ThreadFiber(), clientConfig, new JavaSerializer(), new ErrorHandler.SysOut());
@@ -94,8 +257,12 @@ public class RequestReplyTest {
         handler = new JetlangClientHandler(new JavaSerializer.Factory(), newSession,
                 service, sessionConfig, new JetlangClientHandler.FiberFactory.ThreadFiberFactory(),
                 new ErrorHandler.SysOut());
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("localhost", 0));
+        conn = new SocketConnector("localhost", serverSocket.getLocalPort());
         return new Acceptor(
-                new ServerSocket(8081),
+                serverSocket,
                 new Acceptor.ErrorHandler.SysOut(),
                 handler);
     }
@@ -0,0 +1,85 @@
+package org.jetlang.remote.acceptor;
+
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.remote.core.ByteArraySerializer;
+import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.NioWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class JetlangNioSessionTest {
+
+    @Test
+    public void creditOnlyCreatesStreamsForOutstandingRequests() throws IOException {
+        NioJetlangSendFiber<byte[]> sendFiber = new NioJetlangSendFiber<>(new FiberStub(), new ByteArraySerializer().getWriter(), StandardCharsets.US_ASCII);
+        try (SocketChannel channel = SocketChannel.open()) {
+            NioWriter writer = new NioWriter(new Object(), channel, null, new IoBufferPool.Default().createFor(channel, null));
+            JetlangNioSession<byte[], byte[]> session = new JetlangNioSession<>(null, sendFiber, new NioJetlangRemotingClientFactory.Id(channel), new Errors(), writer);
+
+            //never requested
+            session.onReplyCredit(7, 10);
+            assertEquals(0, session.openReplyStream(7, "t").getCredits());
+
+            //initial credit read right after the request, before the stream is opened
+            session.onRequest(1, "t", new byte[0]);
+            session.onReplyCredit(1, 5);
+            ReplyStream<byte[]> stream = session.openReplyStream(1, "t");
+            assertEquals(5, stream.getCredits());
+            stream.end();
+
+            //after the end
+            session.onReplyCredit(1, 5);
+            assertEquals(0, session.openReplyStream(1, "t").getCredits());
+        }
+    }
+
+    @Test
+    public void streamCancelledBeforeOpenIsRemovedWhenOpened() throws IOException {
+        NioJetlangSendFiber<byte[]> sendFiber = new NioJetlangSendFiber<>(new FiberStub(), new ByteArraySerializer().getWriter(), StandardCharsets.US_ASCII);
+        try (SocketChannel channel = SocketChannel.open()) {
+            NioWriter writer = new NioWriter(new Object(), channel, null, new IoBufferPool.Default().createFor(channel, null));
+            JetlangNioSession<byte[], byte[]> session = new JetlangNioSession<>(null, sendFiber, new NioJetlangRemotingClientFactory.Id(channel), new Errors(), writer);
+
+            session.onRequest(1, "t", new byte[0]);
+            session.onReplyCredit(1, 5);
+            session.onReplyCredit(1, 0);
+            ReplyStream<byte[]> cancelled = session.openReplyStream(1, "t");
+            assertTrue(cancelled.isClosed());
+            assertFalse(cancelled.send(new byte[0]));
+            //no longer held by the session
+            assertNotSame(cancelled, session.openReplyStream(1, "t"));
+        }
+    }
+
+    private static class Errors implements JetlangNioSession.ErrorHandler<byte[]> {
+        @Override
+        public void onUnhandledReplyMsg(int reqId, String dataTopicVal, byte[] readObject) {
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            throw new RuntimeException(failed);
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.jetlang.remote.acceptor;
+
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.remote.core.ByteArraySerializer;
+import org.jetlang.remote.core.ByteMessageWriter;
+import org.jetlang.remote.core.JetlangBuffer;
+import org.jetlang.remote.core.ObjectByteWriter;
+import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.NioWriter;
+import org.jetlang.web.SendResult;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ShardedNioJetlangSendFiberTest {
+
+    private final List<FiberStub> fibers = Arrays.asList(new FiberStub(), new FiberStub());
+    private final List<Counting> writers = new ArrayList<>();
+    private final ShardedNioJetlangSendFiber<byte[]> sharded = new ShardedNioJetlangSendFiber<>(fibers, () -> {
+        Counting writer = new Counting();
+        writers.add(writer);
+        return writer;
+    }, StandardCharsets.US_ASCII);
+    private final List<SocketChannel> channels = new ArrayList<>();
+
+    @After
+    public void close() throws IOException {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void sessionsAreAssignedShardsInTurn() {
+        List<NioJetlangSendFiber<byte[]>> shards = sharded.getShards();
+        assertEquals(2, shards.size());
+        assertSame(shards.get(0), sharded.nextShard());
+        assertSame(shards.get(1), sharded.nextShard());
+        assertSame(shards.get(0), sharded.nextShard());
+    }
+
+    @Test
+    public void publishIsSerializedOncePerShardAndKeepsEachSessionsOrder() throws IOException {
+        Recording a = new Recording();
+        Recording b = new Recording();
+        Recording c = new Recording();
+        //a and c share the first shard
+        for (Recording session : Arrays.asList(a, b, c)) {
+            session(session).onSubscriptionRequest("t");
+        }
+        for (int i = 0; i < 3; i++) {
+            sharded.publishToAllSubscribedClients("t", new byte[]{(byte) i});
+        }
+        sharded.publishBatchToAllSubscribedClients("t", Arrays.asList(new byte[]{3}, new byte[]{4}));
+        executeAllPending();
+
+        byte[] expected = msgs("t", 0, 1, 2, 3, 4);
+        for (Recording session : Arrays.asList(a, b, c)) {
+            assertArrayEquals(expected, session.sent.toByteArray());
+        }
+        assertEquals(2, writers.size());
+        for (Counting writer : writers) {
+            assertEquals(5, writer.count);
+        }
+    }
+
+    @Test
+    public void subscriptionsAreRoutedToTheSessionsShard() throws IOException {
+        Recording a = new Recording();
+        Recording b = new Recording();
+        JetlangNioSession<byte[], byte[]> first = session(a);
+        JetlangNioSession<byte[], byte[]> second = session(b);
+        first.onSubscriptionRequest("t");
+        second.onSubscriptionRequest("t");
+        second.onSubscriptionRequest("other");
+        sharded.publishToAllSubscribedClients("t", new byte[]{1});
+        executeAllPending();
+
+        second.onUnsubscribeRequest("t");
+        sharded.publishToAllSubscribedClients("t", new byte[]{2});
+        sharded.publishToAllSubscribedClients("other", new byte[]{3});
+        executeAllPending();
+
+        assertArrayEquals(msgs("t", 1, 2), a.sent.toByteArray());
+        byte[] toSecond = concat(msgs("t", 1), msgs("other", 3));
+        assertArrayEquals(toSecond, b.sent.toByteArray());
+    }
+
+    private JetlangNioSession<byte[], byte[]> session(Recording writer) {
+        return new JetlangNioSession<>(null, sharded.nextShard(), new NioJetlangRemotingClientFactory.Id(writer.getChannel()), new NoErrors(), writer);
+    }
+
+    private void executeAllPending() {
+        for (FiberStub fiber : fibers) {
+            fiber.executeAllPending();
+        }
+    }
+
+    private static byte[] msgs(String topic, int... values) {
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        for (int value : values) {
+            buffer.appendMsg(topic, new byte[]{(byte) value}, new ByteArraySerializer().getWriter(), StandardCharsets.US_ASCII);
+        }
+        ByteBuffer bb = buffer.getBuffer();
+        bb.flip();
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private static class Counting implements ObjectByteWriter<byte[]> {
+        private final ObjectByteWriter<byte[]> target = new ByteArraySerializer().getWriter();
+        int count;
+
+        @Override
+        public void write(String topic, byte[] obj, ByteMessageWriter writer) {
+            count++;
+            target.write(topic, obj, writer);
+        }
+    }
+
+    private class Recording extends NioWriter {
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+        Recording() throws IOException {
+            this(SocketChannel.open());
+        }
+
+        private Recording(SocketChannel channel) {
+            super(new Object(), channel, null, new IoBufferPool.Default().createFor(channel, null));
+            channels.add(channel);
+        }
+
+        @Override
+        public SendResult send(ByteBuffer[] srcs, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                while (srcs[i].hasRemaining()) {
+                    sent.write(srcs[i].get());
+                }
+            }
+            return SendResult.SUCCESS;
+        }
+    }
+
+    private static class NoErrors implements JetlangNioSession.ErrorHandler<byte[]> {
+        @Override
+        public void onUnhandledReplyMsg(int reqId, String dataTopicVal, byte[] readObject) {
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            throw new RuntimeException(failed);
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package org.jetlang.remote.bench;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.fibers.ThreadFiber;
+import org.jetlang.remote.acceptor.JetlangNioSession;
+import org.jetlang.remote.acceptor.JetlangSessionConfig;
+import org.jetlang.remote.acceptor.NioAcceptorHandler;
+import org.jetlang.remote.acceptor.NioJetlangRemotingClientFactory;
+import org.jetlang.remote.acceptor.SessionMessage;
+import org.jetlang.remote.acceptor.SessionRequest;
+import org.jetlang.remote.acceptor.ShardedNioJetlangSendFiber;
+import org.jetlang.remote.client.JetlangClientConfig;
+import org.jetlang.remote.client.JetlangTcpClient;
+import org.jetlang.remote.client.JetlangTcpNioClient;
+import org.jetlang.remote.client.SocketConnector;
+import org.jetlang.remote.client.TimeoutControls;
+import org.jetlang.remote.core.ByteArraySerializer;
+import org.jetlang.remote.core.ErrorHandler;
+import org.jetlang.remote.core.TcpClientNioFiber;
+import org.jetlang.remote.core.TopicReader;
+import org.jetlang.remote.metrics.Histogram;
+import org.jetlang.remote.metrics.MetricsRegistry;
+import org.jetlang.web.SendResult;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nio acceptor and a mix of nio and blocking clients over loopback. Each client publishes to its own topic, which
+ * the acceptor fans out to subscribers, with every 64th publish also sent to a topic all clients subscribe to, while
+ * it sends echo requests. Publishes and requests each have a window in flight per client. Reports message and wire
+ * throughput with publish and request round trip percentiles for each round.
+ * <p>
+ * Exits with 1 if any request timed out or any publish wasn't received, so it can run unattended:
+ * mvn -Ploopback test -Dloopback.args="nioClients blockingClients seconds payloadBytes window"
+ */
+public class LoopbackBench {
+
+    private static final String ALL = "loop.all";
+
+    public static void main(String[] args) throws Exception {
+        int nioClients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int blockingClients = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int payloadBytes = args.length > 3 ? Math.max(Long.BYTES, Integer.parseInt(args[3])) : 256;
+        int window = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+
+        MetricsRegistry serverMetrics = new MetricsRegistry();
+        NioFiberImpl serverFiber = new NioFiberImpl();
+        List<Fiber> sendFibers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            sendFibers.add(new ThreadFiber());
+        }
+        ByteArraySerializer.Factory serializers = new ByteArraySerializer.Factory();
+        ShardedNioJetlangSendFiber<byte[]> sender = new ShardedNioJetlangSendFiber<>(sendFibers, () -> serializers.create().getWriter(), StandardCharsets.US_ASCII);
+        JetlangSessionConfig sessionConfig = new JetlangSessionConfig();
+        sessionConfig.setMetrics(serverMetrics);
+        ServerSocketChannel serverSocket = ServerSocketChannel.open();
+        serverSocket.bind(new InetSocketAddress("localhost", 0));
+        serverSocket.configureBlocking(false);
+        NioJetlangRemotingClientFactory<byte[], byte[]> acceptor = new NioJetlangRemotingClientFactory<>(serializers.create(), sessionConfig,
+                new Sessions(sender), sender, new TopicReader.Cached(StandardCharsets.US_ASCII));
+        serverFiber.addHandler(new NioAcceptorHandler(serverSocket, acceptor, () -> {
+        }));
+        serverFiber.start();
+        sendFibers.forEach(Fiber::start);
+
+        int port = serverSocket.socket().getLocalPort();
+        NioFiberImpl clientFiber = new NioFiberImpl();
+        clientFiber.start();
+        TcpClientNioFiber tcpNio = new TcpClientNioFiber(clientFiber);
+        Stats stats = new Stats();
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < nioClients + blockingClients; i++) {
+            Client client = i < nioClients ? new NioClient(port, tcpNio) : new BlockingClient(port);
+            drivers.add(new Driver("loop." + i, client, stats, payloadBytes, window));
+        }
+        for (Driver driver : drivers) {
+            driver.start();
+        }
+
+        System.out.printf("nioClients=%d blockingClients=%d seconds=%d payloadBytes=%d window=%d%n",
+                nioClients, blockingClients, seconds, payloadBytes, window);
+        ExecutorService service = Executors.newCachedThreadPool();
+        boolean failed = false;
+        for (int round = 0; round < 3; round++) {
+            failed |= run(service, drivers, stats, serverMetrics, seconds);
+        }
+
+        for (Driver driver : drivers) {
+            driver.client.close();
+        }
+        service.shutdownNow();
+        clientFiber.dispose();
+        serverFiber.dispose();
+        sendFibers.forEach(Fiber::dispose);
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static boolean run(ExecutorService service, List<Driver> drivers, Stats stats, MetricsRegistry serverMetrics, int seconds) throws Exception {
+        stats.reset();
+        Map<String, Long> before = serverMetrics.snapshot();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<?>> running = new ArrayList<>();
+        for (Driver driver : drivers) {
+            running.add(service.submit(() -> driver.publish(end)));
+            running.add(service.submit(() -> driver.request(end)));
+        }
+        for (Future<?> f : running) {
+            f.get();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Map<String, Long> after = serverMetrics.snapshot();
+        long wireBytes = delta(before, after, "jetlang_acceptor_read_bytes") + delta(before, after, "jetlang_acceptor_write_bytes");
+        Histogram.Snapshot pub = stats.publishLatency.snapshotAndReset();
+        Histogram.Snapshot req = stats.requestLatency.snapshotAndReset();
+        long messages = stats.received.sum() + stats.replies.sum();
+        System.out.printf("msgs/sec=%,.0f payload MB/sec=%.1f wire MB/sec=%.1f%n",
+                messages / elapsed, stats.payloadBytes.sum() / elapsed / (1024 * 1024), wireBytes / elapsed / (1024 * 1024));
+        System.out.printf("  publish received=%,d %s%n", stats.received.sum(), micros(pub));
+        System.out.printf("  request replies=%,d %s timeouts=%d%n", stats.replies.sum(), micros(req), stats.timeouts.sum());
+        long lost = stats.lost.sum();
+        if (lost > 0 || stats.timeouts.sum() > 0) {
+            System.out.println("  FAILED lost=" + lost + " timeouts=" + stats.timeouts.sum());
+            return true;
+        }
+        return false;
+    }
+
+    private static long delta(Map<String, Long> before, Map<String, Long> after, String name) {
+        return after.getOrDefault(name, 0L) - before.getOrDefault(name, 0L);
+    }
+
+    private static String micros(Histogram.Snapshot s) {
+        return String.format("p50=%dus p99=%dus p99.9=%dus max=%dus", s.getValueAtPercentile(50) / 1000,
+                s.getValueAtPercentile(99) / 1000, s.getValueAtPercentile(99.9) / 1000, s.getMax() / 1000);
+    }
+
+    private static class Stats {
+        final Histogram publishLatency = new Histogram();
+        final Histogram requestLatency = new Histogram();
+        final LongAdder received = new LongAdder();
+        final LongAdder replies = new LongAdder();
+        final LongAdder payloadBytes = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder lost = new LongAdder();
+
+        void reset() {
+            received.reset();
+            replies.reset();
+            payloadBytes.reset();
+            timeouts.reset();
+            lost.reset();
+        }
+    }
+
+    /**
+     * Publishes carry the send time in the first 8 bytes so the subscriber can record the round trip.
+     */
+    private static class Driver {
+        final String topic;
+        final Client client;
+        final Stats stats;
+        final int payloadBytes;
+        final int window;
+        final Semaphore publishes;
+        final Semaphore requests;
+        final SynchronousDisposingExecutor onReplyThread = new SynchronousDisposingExecutor();
+
+        Driver(String topic, Client client, Stats stats, int payloadBytes, int window) {
+            this.topic = topic;
+            this.client = client;
+            this.stats = stats;
+            this.payloadBytes = payloadBytes;
+            this.window = window;
+            this.publishes = new Semaphore(window);
+            this.requests = new Semaphore(window);
+        }
+
+        void start() throws InterruptedException {
+            client.subscribe(topic, msg -> {
+                onReceive(msg);
+                publishes.release();
+            });
+            client.subscribe(ALL, this::onReceive);
+            if (!client.start(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(topic + " failed to connect");
+            }
+        }
+
+        private void onReceive(byte[] msg) {
+            stats.publishLatency.recordNanosSince(ByteBuffer.wrap(msg).getLong());
+            stats.received.increment();
+            stats.payloadBytes.add(msg.length);
+        }
+
+        void publish(long end) {
+            long count = 0;
+            try {
+                while (System.nanoTime() < end) {
+                    publishes.acquire();
+                    if (!client.publish(topic, timestamped())) {
+                        publishes.release();
+                        stats.lost.increment();
+                    }
+                    if (++count % 64 == 0) {
+                        client.publish(ALL, timestamped());
+                    }
+                }
+                drain(publishes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void request(long end) {
+            Callback<TimeoutControls> onTimeout = controls -> {
+                stats.timeouts.increment();
+                controls.cancelRequest();
+                requests.release();
+            };
+            try {
+                while (System.nanoTime() < end) {
+                    requests.acquire();
+                    long sent = System.nanoTime();
+                    Callback<byte[]> onReply = reply -> {
+                        stats.requestLatency.recordNanosSince(sent);
+                        stats.replies.increment();
+                        stats.payloadBytes.add(reply.length);
+                        requests.release();
+                    };
+                    client.request("echo", timestamped(), onReplyThread, onReply, onTimeout);
+                }
+                drain(requests);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void drain(Semaphore inFlight) throws InterruptedException {
+            if (inFlight.tryAcquire(window, 10, TimeUnit.SECONDS)) {
+                inFlight.release(window);
+            } else {
+                stats.lost.add(window - inFlight.availablePermits());
+            }
+        }
+
+        private byte[] timestamped() {
+            byte[] msg = new byte[payloadBytes];
+            ByteBuffer.wrap(msg).putLong(System.nanoTime());
+            return msg;
+        }
+    }
+
+    private interface Client {
+        void subscribe(String topic, Callback<byte[]> onMsg);
+
+        boolean start(long timeout, TimeUnit unit) throws InterruptedException;
+
+        boolean publish(String topic, byte[] msg);
+
+        void request(String topic, byte[] msg, SynchronousDisposingExecutor executor, Callback<byte[]> onReply, Callback<TimeoutControls> onTimeout);
+
+        void close() throws InterruptedException;
+    }
+
+    private static class NioClient implements Client {
+        final JetlangTcpNioClient<byte[], byte[]> client;
+
+        NioClient(int port, TcpClientNioFiber tcpNio) {
+            client = new JetlangTcpNioClient<>(new SocketConnector("localhost", port), new JetlangClientConfig(),
+                    new ByteArraySerializer(), new ErrorHandler.SysOut(), tcpNio, new TopicReader.Cached(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void subscribe(String topic, Callback<byte[]> onMsg) {
+            client.subscribeOnReadThread(topic, onMsg);
+        }
+
+        @Override
+        public boolean start(long timeout, TimeUnit unit) throws InterruptedException {
+            CountDownLatch connected = new CountDownLatch(1);
+            client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), c -> connected.countDown());
+            client.start();
+            return connected.await(timeout, unit);
+        }
+
+        @Override
+        public boolean publish(String topic, byte[] msg) {
+            SendResult result = client.publish(topic, msg);
+            return result != SendResult.Closed && result != SendResult.Dropped && !(result instanceof SendResult.FailedWithError);
+        }
+
+        @Override
+        public void request(String topic, byte[] msg, SynchronousDisposingExecutor executor, Callback<byte[]> onReply, Callback<TimeoutControls> onTimeout) {
+            client.request(topic, msg, executor, onReply, onTimeout, 5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            client.stop(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class BlockingClient implements Client {
+        final JetlangTcpClient<byte[], byte[]> client;
+
+        BlockingClient(int port) {
+            client = new JetlangTcpClient<>(new SocketConnector("localhost", port), new ThreadFiber(), new JetlangClientConfig(),
+                    new ByteArraySerializer(), new ErrorHandler.SysOut());
+        }
+
+        @Override
+        public void subscribe(String topic, Callback<byte[]> onMsg) {
+            client.subscribeOnReadThread(topic, onMsg);
+        }
+
+        @Override
+        public boolean start(long timeout, TimeUnit unit) throws InterruptedException {
+            CountDownLatch connected = new CountDownLatch(1);
+            client.getConnectChannel().subscribe(new SynchronousDisposingExecutor(), c -> connected.countDown());
+            client.start();
+            return connected.await(timeout, unit);
+        }
+
+        @Override
+        public boolean publish(String topic, byte[] msg) {
+            client.publish(topic, msg);
+            return true;
+        }
+
+        @Override
+        public void request(String topic, byte[] msg, SynchronousDisposingExecutor executor, Callback<byte[]> onReply, Callback<TimeoutControls> onTimeout) {
+            client.request(topic, msg, executor, onReply, onTimeout, 5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            client.close(true).await(1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Fans publishes out to subscribers on the send fibers and echoes requests, both from the read thread.
+     */
+    private static class Sessions implements NioJetlangRemotingClientFactory.Handler<byte[], byte[]> {
+        private final ShardedNioJetlangSendFiber<byte[]> sender;
+
+        Sessions(ShardedNioJetlangSendFiber<byte[]> sender) {
+            this.sender = sender;
+        }
+
+        @Override
+        public void onNewSession(JetlangNioSession<byte[], byte[]> session) {
+            SynchronousDisposingExecutor onReadThread = new SynchronousDisposingExecutor();
+            Callback<SessionMessage<byte[]>> onMsg = msg -> sender.publishToAllSubscribedClients(msg.getTopic(), msg.getMessage());
+            session.getSessionMessageChannel().subscribe(onReadThread, onMsg);
+            Callback<SessionRequest<byte[], byte[]>> onRequest = req -> req.reply(req.getRequest());
+            session.getSessionRequestChannel().subscribe(onReadThread, onRequest);
+        }
+
+        @Override
+        public void onUnhandledReplyMsg(SelectionKey key, SocketChannel channel, String dataTopicVal, byte[] readObject) {
+            System.err.println("onUnhandledReplyMsg " + dataTopicVal);
+        }
+
+        @Override
+        public void onUnknownMessage(SelectionKey key, SocketChannel channel, int read) {
+            System.err.println("onUnknownMessage " + read);
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            failed.printStackTrace();
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+            failed.printStackTrace();
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.jetlang.remote.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestTableTest {
+
+    @Test
+    public void overflow() {
+        RequestTable<int[]> table = new RequestTable<>(4, v -> v[0]);
+        int[] first = {1};
+        int[] collides = {5};
+        table.put(1, first);
+        table.put(5, collides);
+        assertEquals(2, table.size());
+        assertNull(table.remove(9));
+        assertSame(collides, table.remove(5));
+        assertSame(first, table.remove(1));
+        assertNull(table.remove(1));
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,47 @@
+package org.jetlang.remote.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutWheelTest {
+
+    private final List<Integer> expired = new ArrayList<>();
+
+    private class Timeout extends TimeoutWheel.Entry {
+        final int id;
+
+        Timeout(int id) {
+            this.id = id;
+        }
+
+        @Override
+        protected void onTimeout() {
+            expired.add(id);
+        }
+    }
+
+    @Test
+    public void expiresInDeadlineOrderAcrossTurns() {
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        TimeoutWheel wheel = new TimeoutWheel(1, TimeUnit.MILLISECONDS, 8, 0);
+        wheel.add(new Timeout(1), 3 * ms);
+        //same bucket, two turns later
+        wheel.add(new Timeout(2), 19 * ms);
+        wheel.add(new Timeout(3), 5 * ms);
+        assertEquals(0, wheel.advance(2 * ms));
+        assertEquals(1, wheel.advance(3 * ms));
+        assertEquals(1, wheel.advance(10 * ms));
+        assertEquals(1, wheel.size());
+        wheel.add(new Timeout(4), ms);
+        //fell behind by more than a turn
+        assertEquals(2, wheel.advance(100 * ms));
+        assertTrue(wheel.isEmpty());
+        assertEquals("[1, 3, 4, 2]", expired.toString());
+    }
+}
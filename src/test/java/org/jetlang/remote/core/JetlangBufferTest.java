@@ -3,11 +3,16 @@ package org.jetlang.remote.core;
 import org.jetlang.remote.acceptor.CloseableByteArrayStream;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class JetlangBufferTest {
 
@@ -31,6 +36,114 @@ public class JetlangBufferTest {
         }
     }
 
+    @Test
+    public void sameWithVarInts() throws IOException {
+        ByteArraySerializer serializer = new ByteArraySerializer();
+        Charset usAscii = StandardCharsets.US_ASCII;
+        CloseableByteArrayStream b = new CloseableByteArrayStream();
+        SocketMessageStreamWriter<byte[]> stream = new SocketMessageStreamWriter<byte[]>(createOut(b), usAscii, serializer.getWriter());
+        stream.enableVarInts();
+        byte[] contents = new byte[200];
+        JetlangBuffer direct = new JetlangBuffer(128);
+        direct.setVarInts(true);
+        direct.appendReply(500, "reply", contents, serializer.getWriter(), usAscii);
+        stream.writeReply(500, "reply", contents);
+        byte[] expected = b.data.toByteArray();
+        //type + 2 byte id + topic + 2 byte size + contents
+        assertEquals(1 + 2 + 6 + 2 + 200, expected.length);
+        assertEquals(expected.length, direct.position());
+        direct.flip();
+        byte[] bytes = new byte[direct.position()];
+        direct.getBuffer().get(bytes);
+        for(int i = 0; i < bytes.length; i++){
+            assertEquals(bytes[i], expected[i]);
+        }
+    }
+
+    @Test
+    public void sameWithTopicAliases() throws IOException {
+        ByteArraySerializer serializer = new ByteArraySerializer();
+        Charset usAscii = StandardCharsets.US_ASCII;
+        CloseableByteArrayStream b = new CloseableByteArrayStream();
+        SocketMessageStreamWriter<byte[]> stream = new SocketMessageStreamWriter<byte[]>(createOut(b), usAscii, serializer.getWriter());
+        stream.enableVarInts();
+        stream.enableTopicAliases();
+        JetlangBuffer direct = new JetlangBuffer(128);
+        direct.setVarInts(true);
+        TopicAliases aliases = new TopicAliases(usAscii);
+        TopicAliases.Bindings bindings = new TopicAliases.Bindings();
+        for (int i = 0; i < 2; i++) {
+            byte[] contents = {(byte) i};
+            direct.appendMsg("prices", contents, serializer.getWriter(), usAscii, aliases, bindings);
+            stream.write("prices", contents);
+        }
+        byte[] expected = b.data.toByteArray();
+        //binding + two aliased messages
+        assertEquals((1 + 1 + 7) + 2 * (1 + 1 + 1 + 1), expected.length);
+        assertArrayEquals(expected, written(direct, 0, direct.position()));
+    }
+
+    @Test
+    public void segmentedMatchesContiguous() {
+        BufferChunkPool pool = new BufferChunkPool(64, 64);
+        JetlangBuffer segmented = new JetlangBuffer(pool);
+        JetlangBuffer contiguous = new JetlangBuffer(16);
+        for (JetlangBuffer buffer : new JetlangBuffer[]{segmented, contiguous}) {
+            encode(buffer);
+        }
+        assertTrue(segmented.getChunkCount() > 1);
+        assertEquals(1, contiguous.getChunkCount());
+        byte[] expected = written(contiguous, 0, contiguous.position());
+        assertArrayEquals(expected, written(segmented, 0, segmented.position()));
+        assertArrayEquals(Arrays.copyOfRange(expected, 100, 300), written(segmented, 100, 300));
+
+        //rewind into the first chunk and append again
+        segmented.position(10);
+        contiguous.position(10);
+        segmented.appendIntAsByte(MsgTypes.Heartbeat);
+        contiguous.appendIntAsByte(MsgTypes.Heartbeat);
+        assertArrayEquals(written(contiguous, 0, 11), written(segmented, 0, 11));
+        assertEquals(1, segmented.getChunkCount());
+
+        encode(segmented);
+        segmented.clear();
+        assertEquals(0, segmented.position());
+        assertEquals(1, segmented.getChunkCount());
+        assertEquals(pool.getAllocatedCount() - 1, pool.getPooledCount());
+    }
+
+    private static void encode(JetlangBuffer buffer) {
+        ByteArraySerializer serializer = new ByteArraySerializer();
+        Charset ascii = StandardCharsets.US_ASCII;
+        buffer.appendMsg("small", new byte[]{1, 2}, serializer.getWriter(), ascii);
+        byte[] large = new byte[500];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        buffer.appendMsg("large", large, serializer.getWriter(), ascii);
+        buffer.appendRequest(7, "req".getBytes(ascii), ByteBuffer.wrap(large));
+        buffer.setVarInts(true);
+        int start = buffer.beginBatch();
+        for (int i = 0; i < 20; i++) {
+            buffer.appendBatchMsg("b", "b".getBytes(ascii), new byte[]{(byte) i, 2, 3, 4, 5, 6, 7, 8}, serializer.getWriter());
+        }
+        buffer.endBatch(start);
+        buffer.setVarInts(false);
+    }
+
+    private static byte[] written(JetlangBuffer buffer, int start, int end) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(start, end, (srcs, offset, length) -> {
+            for (int i = offset; i < offset + length; i++) {
+                while (srcs[i].hasRemaining()) {
+                    out.write(srcs[i].get());
+                }
+            }
+            return null;
+        });
+        return out.toByteArray();
+    }
+
     private SocketMessageStreamWriter.Out createOut(CloseableByteArrayStream b) throws IOException {
         return new SocketMessageStreamWriter.BufferedStream(new ByteArrayBuffer(), b);
     }
@@ -0,0 +1,442 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.remote.acceptor.NioJetlangRemotingClientFactory;
+import org.jetlang.remote.acceptor.NioJetlangSendFiber;
+import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.NioWriter;
+import org.jetlang.web.SendResult;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JetlangRemotingProtocolTest {
+
+    private final Charset ascii = StandardCharsets.US_ASCII;
+    private final ByteArraySerializer serializer = new ByteArraySerializer();
+    private final Received<byte[]> received = new Received<>(msg -> msg);
+    private final JetlangRemotingProtocol<byte[]> protocol = new JetlangRemotingProtocol<>(received, serializer.getReader(), new TopicReader.Default(ascii));
+
+    @Test
+    public void aliasedData() {
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        TopicAliases aliases = new TopicAliases(ascii);
+        TopicAliases.Bindings bindings = new TopicAliases.Bindings();
+        buffer.appendMsg("prices.NYSE.IBM", new byte[]{1}, serializer.getWriter(), ascii, aliases, bindings);
+        buffer.appendMsg("prices.NYSE.MSFT", new byte[]{2}, serializer.getWriter(), ascii, aliases, bindings);
+        buffer.appendMsg("prices.NYSE.IBM", new byte[]{3, 4}, serializer.getWriter(), ascii, aliases, bindings);
+        buffer.appendMsg("plain", new byte[]{5}, serializer.getWriter(), ascii);
+        read(buffer);
+
+        assertEquals(2, aliases.size());
+        assertEquals(4, received.topics.size());
+        assertEquals("prices.NYSE.IBM", received.topics.get(0));
+        assertEquals("prices.NYSE.MSFT", received.topics.get(1));
+        assertEquals("prices.NYSE.IBM", received.topics.get(2));
+        assertEquals("plain", received.topics.get(3));
+        assertArrayEquals(new byte[]{3, 4}, received.msgs.get(2));
+        assertEquals(0, received.failures.size());
+    }
+
+    @Test
+    public void droppedAliasBindingIsSentAgain() throws IOException {
+        FiberStub fiber = new FiberStub();
+        NioJetlangSendFiber<byte[]> sendFiber = new NioJetlangSendFiber<>(fiber, serializer.getWriter(), ascii);
+        try (SocketChannel channel = SocketChannel.open()) {
+            //the first frame to each session is dropped
+            DropFirst publishTo = new DropFirst(channel);
+            DropFirst subscriber = new DropFirst(channel);
+            NioJetlangSendFiber.ChannelState publishState = new NioJetlangSendFiber.ChannelState(publishTo, new NioJetlangRemotingClientFactory.Id(channel), null);
+            NioJetlangSendFiber.ChannelState subscriberState = new NioJetlangSendFiber.ChannelState(subscriber, new NioJetlangRemotingClientFactory.Id(channel), null);
+            for (NioJetlangSendFiber.ChannelState state : Arrays.asList(publishState, subscriberState)) {
+                sendFiber.onNewSession(state);
+                sendFiber.enableTopicAliases(state);
+            }
+            sendFiber.onSubscriptionRequest("prices.MSFT", publishState);
+            sendFiber.onSubscriptionRequest("prices.IBM", subscriberState);
+            for (int i = 1; i <= 2; i++) {
+                sendFiber.publish(publishState, "prices.MSFT", new byte[]{(byte) i});
+                sendFiber.publishToAllSubscribedClients("prices.IBM", new byte[]{(byte) i});
+            }
+            fiber.executeAllPending();
+
+            assertReceivedOnlySecond(publishTo, "prices.MSFT");
+            assertReceivedOnlySecond(subscriber, "prices.IBM");
+        }
+    }
+
+    private void assertReceivedOnlySecond(DropFirst writer, String topic) {
+        Received<byte[]> client = new Received<>(msg -> msg);
+        JetlangBuffer sent = new JetlangBuffer(16);
+        sent.appendBytes(writer.sent.toByteArray());
+        read(sent, new JetlangRemotingProtocol<>(client, serializer.getReader(), new TopicReader.Default(ascii)));
+        assertEquals(0, client.failures.size());
+        assertEquals(Arrays.asList(topic), client.topics);
+        assertArrayEquals(new byte[]{2}, client.msgs.get(0));
+    }
+
+    private static class DropFirst extends NioWriter {
+        final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        boolean dropped;
+
+        DropFirst(SocketChannel channel) {
+            super(new Object(), channel, null, new IoBufferPool.Default().createFor(channel, null));
+        }
+
+        @Override
+        public SendResult send(ByteBuffer[] srcs, int offset, int length) {
+            if (!dropped) {
+                dropped = true;
+                return SendResult.Dropped;
+            }
+            for (int i = offset; i < offset + length; i++) {
+                while (srcs[i].hasRemaining()) {
+                    sent.write(srcs[i].get());
+                }
+            }
+            return SendResult.SUCCESS;
+        }
+    }
+
+    @Test
+    public void unknownAliasIsSkipped() {
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        buffer.appendAliasedMsg(7, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        buffer.appendMsg("after", new byte[]{4}, serializer.getWriter(), ascii);
+        read(buffer);
+
+        assertEquals(1, received.failures.size());
+        assertEquals(1, received.topics.size());
+        assertEquals("after", received.topics.get(0));
+    }
+
+    @Test
+    public void batch() {
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        byte[] a = "a".getBytes(ascii);
+        byte[] bb = "bb".getBytes(ascii);
+        int start = buffer.beginBatch();
+        for (int i = 0; i < 100; i++) {
+            buffer.appendBatchMsg("a", a, new byte[]{(byte) i}, serializer.getWriter());
+        }
+        buffer.appendBatchMsg(bb, ByteBuffer.wrap(new byte[]{1, 2}));
+        buffer.endBatch(start);
+        buffer.appendMsg("after", new byte[]{4}, serializer.getWriter(), ascii);
+        read(buffer);
+
+        assertEquals(102, received.topics.size());
+        assertEquals("a", received.topics.get(99));
+        assertArrayEquals(new byte[]{99}, received.msgs.get(99));
+        assertEquals("bb", received.topics.get(100));
+        assertArrayEquals(new byte[]{1, 2}, received.msgs.get(100));
+        assertEquals("after", received.topics.get(101));
+        assertEquals(0, received.failures.size());
+    }
+
+    @Test
+    public void batchesOnlyToSessionsThatAgreed() throws IOException {
+        FiberStub fiber = new FiberStub();
+        NioJetlangSendFiber<byte[]> sendFiber = new NioJetlangSendFiber<>(fiber, serializer.getWriter(), ascii);
+        try (SocketChannel channel = SocketChannel.open()) {
+            DropFirst batching = new DropFirst(channel);
+            DropFirst plain = new DropFirst(channel);
+            //nothing dropped
+            batching.dropped = plain.dropped = true;
+            NioJetlangSendFiber.ChannelState batchingState = new NioJetlangSendFiber.ChannelState(batching, new NioJetlangRemotingClientFactory.Id(channel), null);
+            NioJetlangSendFiber.ChannelState plainState = new NioJetlangSendFiber.ChannelState(plain, new NioJetlangRemotingClientFactory.Id(channel), null);
+            for (NioJetlangSendFiber.ChannelState state : Arrays.asList(batchingState, plainState)) {
+                sendFiber.onNewSession(state);
+                sendFiber.onSubscriptionRequest("t", state);
+            }
+            sendFiber.handshake(batchingState, ProtocolFeatures.Batch);
+            sendFiber.publishBatchToAllSubscribedClients("t", Arrays.asList(new byte[]{1}, new byte[]{2}));
+            fiber.executeAllPending();
+
+            JetlangBuffer batch = new JetlangBuffer(16);
+            batch.appendHandshake(ProtocolFeatures.VERSION, ProtocolFeatures.Batch);
+            int start = batch.beginBatch();
+            batch.appendBatchMsg("t", "t".getBytes(ascii), new byte[]{1}, serializer.getWriter());
+            batch.appendBatchMsg("t", "t".getBytes(ascii), new byte[]{2}, serializer.getWriter());
+            batch.endBatch(start);
+            assertArrayEquals(toBytes(batch), batching.sent.toByteArray());
+
+            JetlangBuffer data = new JetlangBuffer(16);
+            data.appendMsg("t", new byte[]{1}, serializer.getWriter(), ascii);
+            data.appendMsg("t", new byte[]{2}, serializer.getWriter(), ascii);
+            assertArrayEquals(toBytes(data), plain.sent.toByteArray());
+        }
+    }
+
+    @Test
+    public void unwritableSessionsOnlyHoldBackConflatedTopics() throws IOException {
+        FiberStub fiber = new FiberStub();
+        NioJetlangSendFiber<byte[]> sendFiber = new NioJetlangSendFiber<>(fiber, serializer.getWriter(), ascii);
+        try (SocketChannel channel = SocketChannel.open()) {
+            DropFirst unwritable = new DropFirst(channel) {
+                @Override
+                public boolean isWritable() {
+                    return false;
+                }
+            };
+            unwritable.dropped = true;
+            NioJetlangSendFiber.ChannelState state = new NioJetlangSendFiber.ChannelState(unwritable, new NioJetlangRemotingClientFactory.Id(channel), null);
+            sendFiber.onNewSession(state);
+            sendFiber.setConflatedTopics("last"::equals);
+            sendFiber.onSubscriptionRequest("last", state);
+            sendFiber.onSubscriptionRequest("all", state);
+            sendFiber.publishToAllSubscribedClients("last", new byte[]{1});
+            sendFiber.publishToAllSubscribedClients("all", new byte[]{2});
+            sendFiber.publish(state, "last", new byte[]{3});
+            sendFiber.publish(state, "all", new byte[]{4});
+            fiber.executeAllPending();
+
+            //the writer's slow consumer policy decides what happens to the rest
+            JetlangBuffer expected = new JetlangBuffer(16);
+            expected.appendMsg("all", new byte[]{2}, serializer.getWriter(), ascii);
+            expected.appendMsg("all", new byte[]{4}, serializer.getWriter(), ascii);
+            assertArrayEquals(toBytes(expected), unwritable.sent.toByteArray());
+        }
+    }
+
+    private static byte[] toBytes(JetlangBuffer buffer) {
+        ByteBuffer bb = buffer.getBuffer();
+        bb.flip();
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void varInts() {
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        buffer.setVarInts(true);
+        buffer.appendMsg("small", new byte[]{1}, serializer.getWriter(), ascii);
+        buffer.appendMsg("large", new byte[300], serializer.getWriter(), ascii);
+        buffer.appendRequest(Integer.MAX_VALUE, "req", new byte[]{2}, serializer.getWriter(), ascii);
+        buffer.appendRequest(-1, "req".getBytes(ascii), ByteBuffer.wrap(new byte[]{3}));
+        int start = buffer.beginBatch();
+        buffer.appendBatchMsg("batch", "batch".getBytes(ascii), new byte[200], serializer.getWriter());
+        buffer.endBatch(start);
+        buffer.setVarInts(false);
+        buffer.appendMsg("fixed", new byte[]{4}, serializer.getWriter(), ascii);
+        read(buffer);
+
+        assertEquals(0, received.failures.size());
+        assertEquals(6, received.topics.size());
+        assertEquals(300, received.msgs.get(1).length);
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), received.reqIds.get(0));
+        assertEquals(Integer.valueOf(-1), received.reqIds.get(1));
+        assertEquals("batch", received.topics.get(4));
+        assertEquals(200, received.msgs.get(4).length);
+        assertEquals("fixed", received.topics.get(5));
+    }
+
+    @Test
+    public void bufferViews() {
+        Received<ByteBuffer> views = new Received<>(view -> {
+            assertTrue(view.isReadOnly());
+            byte[] copy = new byte[view.remaining()];
+            view.get(copy);
+            return copy;
+        });
+        JetlangRemotingProtocol<ByteBuffer> viewProtocol = new JetlangRemotingProtocol<>(views, new ByteBufferSerializer().getReader(), new TopicReader.Default(ascii));
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        buffer.appendMsg("a", ByteBuffer.wrap(new byte[]{1, 2, 3}), new ByteBufferSerializer.Writer(), ascii);
+        //larger than the initial protocol buffer to force a resize
+        buffer.appendMsg("b", ByteBuffer.wrap(new byte[500]), new ByteBufferSerializer.Writer(), ascii);
+        buffer.appendMsg("c".getBytes(ascii), ByteBuffer.wrap(new byte[]{4}));
+        read(buffer, viewProtocol);
+
+        assertEquals(3, views.msgs.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, views.msgs.get(0));
+        assertEquals(500, views.msgs.get(1).length);
+        assertArrayEquals(new byte[]{4}, views.msgs.get(2));
+        assertEquals(0, views.failures.size());
+
+        //one view is moved from message to message
+        ByteBuffer bb = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+        ObjectByteReader<ByteBuffer> reader = new ByteBufferSerializer().getReader();
+        ByteBuffer first = reader.readObject("a", bb, 2);
+        assertEquals(1, first.get());
+        assertEquals(2, first.get());
+        bb.position(1);
+        ByteBuffer second = reader.readObject("b", bb, 3);
+        assertSame(first, second);
+        assertEquals(1, second.position());
+        assertEquals(4, second.limit());
+        assertEquals(2, second.get());
+    }
+
+    @Test
+    public void copiedBuffersOutliveTheRead() {
+        FiberStub subscriberFiber = new FiberStub();
+        List<byte[]> delivered = new ArrayList<>();
+        Received<ByteBuffer> received = new Received<>(msg -> {
+            subscriberFiber.execute(() -> {
+                byte[] copy = new byte[msg.remaining()];
+                msg.get(copy);
+                delivered.add(copy);
+            });
+            return null;
+        });
+        JetlangRemotingProtocol<ByteBuffer> copyProtocol = new JetlangRemotingProtocol<>(received, new ByteBufferSerializer(true).getReader(), new TopicReader.Default(ascii));
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        for (byte i = 0; i < 20; i++) {
+            buffer.appendMsg("t", ByteBuffer.wrap(new byte[]{i, i, i}), new ByteBufferSerializer.Writer(), ascii);
+        }
+        read(buffer, copyProtocol);
+        //runs after the protocol buffer was compacted and refilled
+        subscriberFiber.executeAllPending();
+
+        assertEquals(0, received.failures.size());
+        assertEquals(20, delivered.size());
+        for (byte i = 0; i < 20; i++) {
+            assertArrayEquals(new byte[]{i, i, i}, delivered.get(i));
+        }
+    }
+
+    @Test
+    public void chunkedLargeMessages() {
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        protocol.setChunkedMessages(100, new ChunkedMessageHandler() {
+            @Override
+            public void onStart(String topic, int totalBytes) {
+                events.add("start " + topic + " " + totalBytes);
+            }
+
+            @Override
+            public void onChunk(String topic, ByteBuffer chunk) {
+                while (chunk.hasRemaining()) {
+                    chunks.write(chunk.get());
+                }
+            }
+
+            @Override
+            public void onEnd(String topic) {
+                events.add("end " + topic);
+            }
+        });
+        byte[] large = new byte[10_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        JetlangBuffer buffer = new JetlangBuffer(16);
+        buffer.appendMsg("small", new byte[]{1}, serializer.getWriter(), ascii);
+        buffer.appendMsg("large", large, serializer.getWriter(), ascii);
+        //requests are always buffered
+        buffer.appendRequest(1, "req", new byte[200], serializer.getWriter(), ascii);
+        buffer.appendMsg("after", new byte[]{2}, serializer.getWriter(), ascii);
+        read(buffer);
+
+        assertEquals(0, received.failures.size());
+        assertEquals(Arrays.asList("start large 10000", "end large"), events);
+        assertArrayEquals(large, chunks.toByteArray());
+        assertEquals(Arrays.asList("small", "req", "after"), received.topics);
+        assertEquals(200, received.msgs.get(1).length);
+        assertTrue(protocol.buffer.capacity() < 1000);
+    }
+
+    private void read(JetlangBuffer toRead) {
+        read(toRead, protocol);
+    }
+
+    private static void read(JetlangBuffer toRead, JetlangRemotingProtocol<?> protocol) {
+        JetlangRemotingProtocol.State state = protocol.root;
+        ByteBuffer src = toRead.getBuffer();
+        src.flip();
+        while (src.hasRemaining()) {
+            //small chunks to exercise partial reads
+            ByteBuffer dest = protocol.buffer;
+            int chunk = Math.min(Math.min(dest.remaining(), src.remaining()), 7);
+            for (int i = 0; i < chunk; i++) {
+                dest.put(src.get());
+            }
+            dest.flip();
+            while (dest.remaining() >= state.getRequiredBytes()) {
+                state = state.run();
+            }
+            dest.compact();
+            if (state.getRequiredBytes() > dest.capacity()) {
+                protocol.resizeBuffer(state.getRequiredBytes());
+            }
+        }
+    }
+
+    private static class Received<T> implements JetlangRemotingProtocol.Handler<T> {
+        final Function<T, byte[]> toBytes;
+        final List<String> topics = new ArrayList<>();
+        final List<byte[]> msgs = new ArrayList<>();
+        final List<Exception> failures = new ArrayList<>();
+        final List<Integer> reqIds = new ArrayList<>();
+
+        Received(Function<T, byte[]> toBytes) {
+            this.toBytes = toBytes;
+        }
+
+        @Override
+        public void onMessage(String dataTopicVal, T readObject) {
+            topics.add(dataTopicVal);
+            msgs.add(toBytes.apply(readObject));
+        }
+
+        @Override
+        public void onSubscriptionRequest(String val) {
+        }
+
+        @Override
+        public void onRequest(int reqId, String dataTopicVal, T readObject) {
+            reqIds.add(reqId);
+            onMessage(dataTopicVal, readObject);
+        }
+
+        @Override
+        public void onUnsubscribeRequest(String val) {
+        }
+
+        @Override
+        public void onHb() {
+        }
+
+        @Override
+        public void onLogout() {
+        }
+
+        @Override
+        public void onUnknownMessage(int read) {
+            failures.add(new IOException("Unknown " + read));
+        }
+
+        @Override
+        public void onRequestReply(int reqId, String dataTopicVal, T readObject) {
+        }
+
+        @Override
+        public void onHandlerException(Exception failed) {
+            failures.add(failed);
+        }
+
+        @Override
+        public void onParseFailure(String topic, ByteBuffer buffer, int startingPosition, int dataSizeVal, Throwable failed) {
+            failures.add(new RuntimeException(failed));
+        }
+
+        @Override
+        public void onClientDisconnect(IOException ioException) {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.web.SizeClassBufferPool;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReadBufferPolicyTest {
+
+    @Test
+    public void growsGeometricallyAndShrinksAfterLargeMessages() {
+        ReadBufferPolicy policy = new ReadBufferPolicy(128, 4096, null);
+        ByteBuffer bb = policy.allocate();
+        assertTrue(bb.isDirect());
+        bb.put((byte) 7);
+
+        bb = policy.grow(bb, 130);
+        assertEquals(256, bb.capacity());
+        bb = policy.grow(bb, 10_000);
+        assertEquals(10_000, bb.capacity());
+        assertEquals(1, bb.position());
+        assertEquals(7, bb.get(0));
+
+        //still reading the large message
+        assertSame(bb, policy.afterRead(bb, 10_000));
+
+        ByteBuffer shrunk = policy.afterRead(bb, 1);
+        assertEquals(128, shrunk.capacity());
+        assertEquals(1, shrunk.position());
+        assertEquals(7, shrunk.get(0));
+        assertSame(shrunk, policy.afterRead(shrunk, 1));
+    }
+
+    @Test
+    public void drawsFromSharedPool() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(128, 64 * 1024, 128, 1024 * 1024, true);
+        ReadBufferPolicy policy = new ReadBufferPolicy(128, 1024, pool);
+        ByteBuffer bb = policy.allocate();
+        assertTrue(bb.isDirect());
+        ByteBuffer grown = policy.grow(bb, 8 * 1024);
+        assertEquals(8 * 1024, grown.capacity());
+        assertEquals(128, pool.getPooledBytes());
+
+        ByteBuffer shrunk = policy.afterRead(grown, 1);
+        assertSame(bb, shrunk);
+        assertEquals(8 * 1024, pool.getPooledBytes());
+        policy.release(shrunk);
+        assertEquals(0, pool.getBuffersLent());
+    }
+}
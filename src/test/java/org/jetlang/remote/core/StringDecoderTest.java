@@ -0,0 +1,62 @@
+package org.jetlang.remote.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StringDecoderTest {
+
+    @Test
+    public void fastPathMatchesCharset() {
+        String[] inputs = {"", "prices.NYSE.IBM", "caf\u00e9", "\u6771\u4eac", repeat('x', 5000), repeat('\u00e9', 3000)};
+        for (Charset cs : new Charset[]{StandardCharsets.US_ASCII, StandardCharsets.UTF_8}) {
+            StringDecoder decoder = StringDecoder.createNoCopy(cs);
+            assertTrue(decoder instanceof StringDecoder.NoCopy);
+            for (String input : inputs) {
+                byte[] bytes = input.getBytes(cs);
+                String expected = new String(bytes, cs);
+                assertEquals(expected, decoder.decode(bytes, 0, bytes.length));
+                assertEquals(expected, decode(decoder, ByteBuffer.allocate(bytes.length + 4), bytes));
+                assertEquals(expected, decode(decoder, ByteBuffer.allocateDirect(bytes.length + 4), bytes));
+            }
+        }
+    }
+
+    @Test
+    public void createIsStateless() {
+        for (Charset cs : new Charset[]{StandardCharsets.US_ASCII, StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1}) {
+            assertFalse(StringDecoder.create(cs) instanceof StringDecoder.NoCopy);
+        }
+        assertFalse(StringDecoder.createNoCopy(StandardCharsets.ISO_8859_1) instanceof StringDecoder.NoCopy);
+    }
+
+    @Test
+    public void invalidBytesAreReplaced() {
+        byte[] bytes = {'a', (byte) 0xff, 'b'};
+        for (Charset cs : new Charset[]{StandardCharsets.US_ASCII, StandardCharsets.UTF_8}) {
+            assertEquals(new String(bytes, cs), StringDecoder.createNoCopy(cs).decode(bytes, 0, bytes.length));
+        }
+    }
+
+    private static String decode(StringDecoder decoder, ByteBuffer bb, byte[] bytes) {
+        bb.put((byte) 1).put((byte) 2).put(bytes).put((byte) 3).flip();
+        bb.position(2);
+        String result = decoder.decode(bb, bytes.length);
+        assertEquals(2 + bytes.length, bb.position());
+        return result;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            b.append(c);
+        }
+        return b.toString();
+    }
+}
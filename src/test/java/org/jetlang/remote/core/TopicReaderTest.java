@@ -7,6 +7,7 @@ import java.nio.charset.Charset;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TopicReaderTest {
     Charset ascii = Charset.forName("ASCII");
@@ -20,7 +21,30 @@ public class TopicReaderTest {
         assertSame(other1, other);
     }
 
-    private String create(String input, TopicReader.Cached cache) {
+    @Test
+    public void bounded() {
+        TopicReader.Bounded cache = new TopicReader.Bounded(ascii, 16);
+        String first = create("test", cache);
+        assertSame(first, create("test", cache));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        //topic sitting mid-buffer in direct memory
+        ByteBuffer direct = ByteBuffer.allocateDirect(16);
+        direct.put(ascii.encode("xxtestyy"));
+        direct.position(2);
+        assertSame(first, cache.read(direct, 4));
+        assertEquals(6, direct.position());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("topic" + i, create("topic" + i, cache));
+        }
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(cache.getMisses() - cache.size(), cache.getEvictions());
+    }
+
+    private String create(String input, TopicReader cache) {
         ByteBuffer encode = ascii.encode(input);
         return cache.read(encode, encode.limit());
     }
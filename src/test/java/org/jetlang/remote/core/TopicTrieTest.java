@@ -0,0 +1,98 @@
+package org.jetlang.remote.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopicTrieTest {
+
+    @Test
+    public void wildcards() {
+        TopicTrie<String> trie = new TopicTrie<>();
+        trie.add("prices.NYSE.IBM", "exact");
+        trie.add("prices.NYSE.*", "single");
+        trie.add("prices.>", "rest");
+        trie.add("*.NYSE.>", "both");
+        trie.add(">", "all");
+
+        assertEquals(list("all", "rest", "exact", "single", "both"), match(trie, "prices.NYSE.IBM"));
+        assertEquals(list("all", "rest"), match(trie, "prices.LSE.VOD"));
+        assertEquals(list("all", "rest", "both"), match(trie, "prices.NYSE.IBM.bid"));
+        assertEquals(list("all"), match(trie, "prices"));
+
+        assertTrue(trie.remove("prices.NYSE.*", "single"));
+        assertFalse(trie.remove("prices.NYSE.*", "single"));
+        assertTrue(trie.remove("prices.>", "rest"));
+        assertEquals(list("all", "exact", "both"), match(trie, "prices.NYSE.IBM"));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    public void matchesSinglePattern() {
+        assertTrue(TopicTrie.matches("prices.NYSE.*", "prices.NYSE.IBM"));
+        assertFalse(TopicTrie.matches("prices.NYSE.*", "prices.NYSE.IBM.bid"));
+        assertFalse(TopicTrie.matches("prices.NYSE.*", "prices.NYSE"));
+        assertTrue(TopicTrie.matches("prices.>", "prices.NYSE.IBM"));
+        assertFalse(TopicTrie.matches("prices.>", "prices"));
+        assertTrue(TopicTrie.matches("prices", "prices"));
+        assertFalse(TopicTrie.matches("prices", "prices2"));
+    }
+
+    @Test
+    public void anyMatch() {
+        TopicTrie<String> trie = new TopicTrie<>();
+        assertFalse(trie.anyMatch("prices.NYSE.IBM"));
+        trie.add("prices.NYSE.*", "prices.NYSE.*");
+        trie.add("orders.>", "orders.>");
+        assertTrue(trie.anyMatch("prices.NYSE.IBM"));
+        assertFalse(trie.anyMatch("prices.NYSE.IBM.bid"));
+        assertFalse(trie.anyMatch("prices.NYSE"));
+        assertTrue(trie.anyMatch("orders.1"));
+        assertFalse(trie.anyMatch("orders"));
+
+        trie.remove("orders.>", "orders.>");
+        assertFalse(trie.anyMatch("orders.1"));
+    }
+
+    @Test
+    public void manyTokensAtOneLevel() {
+        TopicTrie<String> trie = new TopicTrie<>();
+        for (int i = 0; i < 100; i++) {
+            trie.add("idle." + i, "v" + i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertTrue(trie.remove("idle." + i, "v" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 0 ? list() : list("v" + i), match(trie, "idle." + i));
+        }
+        List<String> all = new ArrayList<>();
+        trie.forEach(all::add);
+        assertEquals(50, all.size());
+        assertEquals(50, trie.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restMustBeLast() {
+        new TopicTrie<String>().add("prices.>.IBM", "invalid");
+    }
+
+    private static List<String> match(TopicTrie<String> trie, String topic) {
+        List<String> matched = new ArrayList<>();
+        trie.forEachMatch(topic, matched::add);
+        return matched;
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
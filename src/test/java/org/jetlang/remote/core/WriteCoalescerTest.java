@@ -0,0 +1,82 @@
+package org.jetlang.remote.core;
+
+import org.jetlang.fibers.NioFiberImpl;
+import org.jetlang.web.IoBufferPool;
+import org.jetlang.web.NioWriter;
+import org.jetlang.web.SendResult;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteCoalescerTest {
+
+    @Test
+    public void flushesOncePerDrain() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        accepted.configureBlocking(false);
+        NioFiberImpl fiber = new NioFiberImpl();
+        try {
+            NioWriter writer = new NioWriter(new Object(), client, fiber, new IoBufferPool.Default().createFor(client, fiber));
+            List<Runnable> queue = new ArrayList<>();
+            WriteCoalescer coalescer = new WriteCoalescer(queue::add, 64);
+
+            write(coalescer, writer, 1, 2);
+            SendResult deferred = write(coalescer, writer, 3);
+            assertTrue(deferred instanceof SendResult.Buffered);
+            assertEquals(1, ((SendResult.Buffered) deferred).getBufferedBytes());
+            assertEquals(3, ((SendResult.Buffered) deferred).getTotalBufferedInBytes());
+            write(coalescer, writer, 4, 5, 6);
+            assertEquals(1, queue.size());
+            assertEquals(0, accepted.read(ByteBuffer.allocate(16)));
+
+            queue.remove(0).run();
+            assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, read(accepted, 6));
+
+            //a write past the threshold sends what is pending then the write itself
+            write(coalescer, writer, 7);
+            write(coalescer, writer, new byte[100]);
+            byte[] received = read(accepted, 101);
+            assertEquals(7, received[0]);
+            queue.remove(0).run();
+            assertEquals(0, queue.size());
+        } finally {
+            fiber.dispose();
+            client.close();
+            accepted.close();
+            server.close();
+        }
+    }
+
+    private static SendResult write(WriteCoalescer coalescer, NioWriter writer, int... bytes) {
+        byte[] b = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            b[i] = (byte) bytes[i];
+        }
+        return write(coalescer, writer, b);
+    }
+
+    private static SendResult write(WriteCoalescer coalescer, NioWriter writer, byte[] bytes) {
+        return coalescer.to(writer).write(new ByteBuffer[]{ByteBuffer.wrap(bytes)}, 0, 1);
+    }
+
+    private static byte[] read(SocketChannel channel, int count) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (buffer.hasRemaining() && System.currentTimeMillis() < deadline) {
+            channel.read(buffer);
+        }
+        return buffer.array();
+    }
+}
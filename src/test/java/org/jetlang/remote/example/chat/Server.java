@@ -11,8 +11,8 @@ import org.jetlang.remote.acceptor.JetlangNioSession;
 import org.jetlang.remote.acceptor.JetlangSessionConfig;
 import org.jetlang.remote.acceptor.NioAcceptorHandler;
 import org.jetlang.remote.acceptor.NioJetlangRemotingClientFactory;
-import org.jetlang.remote.acceptor.NioJetlangSendFiber;
 import org.jetlang.remote.acceptor.SessionMessage;
+import org.jetlang.remote.acceptor.ShardedNioJetlangSendFiber;
 import org.jetlang.remote.core.ByteArraySerializer;
 import org.jetlang.remote.core.Serializer;
 import org.jetlang.remote.core.TopicReader;
@@ -24,6 +24,8 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Server {
 
@@ -34,12 +36,15 @@ public class Server {
 
         final NioFiber nioFiber = new NioFiberImpl();
 
-        //create send fiber as non-daemon thread to prevent main from exiting
-        final Fiber sendFiber = new ThreadFiber(new RunnableExecutorImpl(), "sendFiber", false);
+        //create send fibers as non-daemon threads to prevent main from exiting
+        final List<Fiber> sendFibers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            sendFibers.add(new ThreadFiber(new RunnableExecutorImpl(), "sendFiber-" + i, false));
+        }
         ByteArraySerializer.Factory factory = new ByteArraySerializer.Factory();
         final Serializer<byte[], byte[]> serializer = factory.create();
         final Charset charset = Charset.forName("ASCII");
-        NioJetlangSendFiber<byte[]> sender = new NioJetlangSendFiber<>(sendFiber, serializer.getWriter(), charset);
+        ShardedNioJetlangSendFiber<byte[]> sender = new ShardedNioJetlangSendFiber<>(sendFibers, () -> factory.create().getWriter(), charset);
 
         NioJetlangRemotingClientFactory.Handler<byte[], byte[]> sessions = new NioJetlangRemotingClientFactory.Handler<byte[], byte[]>() {
             @Override
@@ -93,13 +98,13 @@ public class Server {
         final NioJetlangRemotingClientFactory<byte[], byte[]> acceptor = new NioJetlangRemotingClientFactory<byte[], byte[]>(serializer, new JetlangSessionConfig(), sessions, sender, new TopicReader.Cached(charset));
         nioFiber.addHandler(new NioAcceptorHandler(socketChannel, acceptor, () -> System.out.println("AcceptorEnd")));
         nioFiber.start();
-        sendFiber.start();
+        sendFibers.forEach(Fiber::start);
 
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
                 nioFiber.dispose();
-                sendFiber.dispose();
+                sendFibers.forEach(Fiber::dispose);
             }
         });
     }
@@ -0,0 +1,58 @@
+package org.jetlang.remote.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void percentilesWithinPrecision() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1000000; i++) {
+            histogram.record(i * 1000);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000000, snapshot.getCount());
+        assertEquals(1000000000L, snapshot.getMax());
+        assertWithin(500000000L, snapshot.getValueAtPercentile(50));
+        assertWithin(990000000L, snapshot.getValueAtPercentile(99));
+        assertWithin(999000000L, snapshot.getValueAtPercentile(99.9));
+        assertEquals(1000000000L, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(49, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void snapshotAndReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.record(20);
+        Histogram.Snapshot first = histogram.snapshotAndReset();
+        assertEquals(2, first.getCount());
+        assertEquals(30, first.getSum());
+        assertEquals(20, first.getMax());
+
+        histogram.record(5);
+        Histogram.Snapshot second = histogram.snapshot();
+        assertEquals(1, second.getCount());
+        assertEquals(5, second.getMax());
+        assertEquals(5, second.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(expected + " vs " + actual, error < 1.0 / 64);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jetlang.remote.metrics;
+
+import org.junit.Test;
+
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void snapshotAndText() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter bytes = registry.counter("read_bytes");
+        assertSame(bytes, registry.counter("read_bytes"));
+        bytes.add(10);
+        bytes.inc();
+        Counter depth = registry.upDownCounter("queue_depth");
+        depth.inc();
+        depth.inc();
+        depth.dec();
+        registry.gauge("sessions", () -> 3);
+        Histogram latency = registry.histogram("latency");
+        for (int i = 1; i <= 100; i++) {
+            latency.record(i);
+        }
+
+        SortedMap<String, Long> snapshot = registry.snapshot();
+        assertEquals(11L, (long) snapshot.get("read_bytes"));
+        assertEquals(1L, (long) snapshot.get("queue_depth"));
+        assertEquals(3L, (long) snapshot.get("sessions"));
+        assertEquals(100L, (long) snapshot.get("latency_count"));
+        assertEquals(5050L, (long) snapshot.get("latency_sum"));
+        assertEquals(100L, (long) snapshot.get("latency_max"));
+        long p50 = snapshot.get("latency{quantile=\"0.5\"}");
+        assertTrue(String.valueOf(p50), p50 >= 50 && p50 <= 100);
+
+        String text = registry.toText();
+        assertTrue(text, text.contains("# TYPE read_bytes counter\nread_bytes 11\n"));
+        assertTrue(text, text.contains("# TYPE queue_depth gauge\nqueue_depth 1\n"));
+        assertTrue(text, text.contains("# TYPE latency summary\n"));
+        assertTrue(text, text.contains("latency_count 100\n"));
+    }
+
+    @Test
+    public void rejectsConflictingTypesAndInvalidNames() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("messages");
+        try {
+            registry.histogram("messages");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            registry.counter("bad-name");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeaderReaderTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final List<HttpRequest> dispatched = new ArrayList<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Test
+    public void bodyAboveThresholdIsPassedInChunksAcrossReads() throws IOException {
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.write(("POST /upload HTTP/1.1\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        requests.write(content);
+        requests.write("GET /next HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        try (SocketChannel channel = SocketChannel.open()) {
+            HeaderReader<Void> reader = new HeaderReader<>(channel, null, null, new Recording(), SessionFactory.none(),
+                    new SessionDispatcherFactory.OnReadThreadDispatcher<>(), new IoBufferPool.Default().createFor(channel, null), WriteWatermarks.NONE);
+            read(reader.start(), requests.toByteArray(), 7);
+        }
+
+        assertArrayEquals(content, body.toByteArray());
+        assertEquals("start", events.get(0));
+        assertEquals("end", events.get(events.size() - 1));
+        assertTrue(events.toString(), events.size() > 3);
+
+        assertEquals(2, dispatched.size());
+        HttpRequest upload = dispatched.get(0);
+        assertEquals("POST", upload.getMethod());
+        assertTrue(upload.isContentChunked());
+        assertEquals(0, upload.getContent().length);
+        HttpRequest next = dispatched.get(1);
+        assertEquals("GET", next.getMethod());
+        assertEquals("/next", next.getRequestUri().getPath());
+        assertEquals("localhost", next.get("Host"));
+        assertFalse(next.isContentChunked());
+    }
+
+    /**
+     * Feeds the bytes a few at a time, processing each read the way {@link NioReader} does.
+     */
+    private static void read(NioReader.State current, byte[] bytes, int bytesPerRead) {
+        ByteBuffer bb = ByteBuffer.allocate(1024);
+        for (int offset = 0; offset < bytes.length; offset += bytesPerRead) {
+            bb.put(bytes, offset, Math.min(bytesPerRead, bytes.length - offset));
+            bb.flip();
+            NioReader.State result = current;
+            while (result != null) {
+                result = current.process(bb);
+                if (result != null) {
+                    current = result;
+                }
+            }
+            bb.compact();
+        }
+        assertEquals(0, bb.position());
+    }
+
+    private class Recording implements HttpRequestHandler<Void>, ChunkedContentHandler<Void> {
+
+        @Override
+        public NioReader.State dispatch(SessionDispatcherFactory.SessionDispatcher<Void> dispatcher, HttpRequest headers, HttpResponse response, HeaderReader<Void> reader, NioWriter writer, Void sessionState) {
+            dispatched.add(headers);
+            return reader.start();
+        }
+
+        @Override
+        public void onException(Throwable processingException, SocketChannel channel) {
+            throw new RuntimeException(processingException);
+        }
+
+        @Override
+        public ChunkedContentHandler<Void> getChunkedContentHandler() {
+            return this;
+        }
+
+        @Override
+        public int getChunkedContentThreshold() {
+            return 16;
+        }
+
+        @Override
+        public void onStart(HttpRequest headers, Void sessionState) {
+            events.add("start");
+        }
+
+        @Override
+        public void onChunk(HttpRequest headers, ByteBuffer chunk, Void sessionState) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            body.write(bytes, 0, bytes.length);
+            events.add("chunk");
+        }
+
+        @Override
+        public void onEnd(HttpRequest headers, Void sessionState) {
+            events.add("end");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioFiberImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MpscNioWriterTest {
+
+    @Test
+    public void keepsEachSendersOrder() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        client.configureBlocking(false);
+        //small buffers so senders queue behind a full socket
+        client.socket().setSendBufferSize(8 * 1024);
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try {
+            CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((controls) -> {
+                controls.addHandler(new NioWriterTest.Idle(client));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            SizeClassBufferPool pool = new SizeClassBufferPool(8, 1024, 64 * 1024, 1024 * 1024);
+            MpscNioWriter writer = new MpscNioWriter(client, fiber, pool.createFor(client, fiber));
+            int senders = 4;
+            int perSender = 20_000;
+            List<Thread> threads = new ArrayList<>();
+            for (int s = 0; s < senders; s++) {
+                final int sender = s;
+                Thread t = new Thread(() -> {
+                    ByteBuffer msg = ByteBuffer.allocate(8);
+                    for (int i = 0; i < perSender; i++) {
+                        msg.clear();
+                        msg.putInt(sender).putInt(i).flip();
+                        SendResult result = writer.send(msg);
+                        assertTrue(result.toString(), result == SendResult.SUCCESS || result instanceof SendResult.Buffered);
+                    }
+                });
+                threads.add(t);
+                t.start();
+            }
+
+            int[] next = new int[senders];
+            ByteBuffer read = ByteBuffer.allocate(senders * perSender * 8);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (read.hasRemaining() && System.currentTimeMillis() < deadline) {
+                accepted.read(read);
+            }
+            read.flip();
+            assertEquals(senders * perSender * 8, read.remaining());
+            while (read.hasRemaining()) {
+                int sender = read.getInt();
+                assertEquals(next[sender]++, read.getInt());
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertEquals(0, writer.getTotalBytesBuffered());
+            //queued copies go back to the pool once written
+            while (pool.getBuffersLent() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, pool.getBuffersLent());
+            assertTrue(pool.getPoolHits() > 0);
+        } finally {
+            fiber.dispose();
+            client.close();
+            accepted.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void writableAfterSenderRacesTheDrain() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        client.configureBlocking(false);
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            ByteBuffer read = ByteBuffer.allocate(64 * 1024);
+            try {
+                while (reading.get()) {
+                    read.clear();
+                    accepted.read(read);
+                }
+            } catch (IOException closed) {
+            }
+        });
+        try {
+            CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((controls) -> {
+                controls.addHandler(new NioWriterTest.Idle(client));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            MpscNioWriter writer = new MpscNioWriter(client, fiber, new IoBufferPool.Default().createFor(client, fiber));
+            int high = 64 * 1024;
+            writer.setWatermarks(new WriteWatermarks(0, high, SlowConsumerPolicy.BUFFER));
+            CountDownLatch ownerFlipping = new CountDownLatch(1);
+            CountDownLatch releaseOwner = new CountDownLatch(1);
+            writer.setWritabilityListener(e -> {
+                if (e.isWritable() && ownerFlipping.getCount() > 0) {
+                    //the owner holds the writability lock while it delivers the event
+                    ownerFlipping.countDown();
+                    try {
+                        releaseOwner.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            while (writer.isWritable()) {
+                writer.send(new byte[16 * 1024]);
+            }
+            reader.start();
+            assertTrue(ownerFlipping.await(5, TimeUnit.SECONDS));
+
+            //queued behind the owner, then blocks on the lock with a total at the high watermark
+            Thread sender = new Thread(() -> writer.send(new byte[high]));
+            sender.start();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (sender.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(Thread.State.BLOCKED, sender.getState());
+            //the owner drains the sender's bytes before the sender gets the lock
+            releaseOwner.countDown();
+            sender.join();
+
+            deadline = System.currentTimeMillis() + 5_000;
+            while ((writer.getTotalBytesBuffered() > 0 || !writer.isWritable()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, writer.getTotalBytesBuffered());
+            assertTrue(writer.isWritable());
+        } finally {
+            reading.set(false);
+            fiber.dispose();
+            client.close();
+            accepted.close();
+            server.close();
+            reader.join();
+        }
+    }
+
+    @Test
+    public void closedAfterSocketCloses() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        client.configureBlocking(false);
+        NioFiberImpl fiber = new NioFiberImpl();
+        try {
+            MpscNioWriter writer = new MpscNioWriter(client, fiber, new IoBufferPool.Default().createFor(client, fiber));
+            assertEquals(SendResult.SUCCESS, writer.send(new byte[]{1, 2, 3}));
+            ByteBuffer read = ByteBuffer.allocate(3);
+            while (read.hasRemaining()) {
+                accepted.read(read);
+            }
+            assertArrayEquals(new byte[]{1, 2, 3}, read.array());
+            client.close();
+            assertEquals(SendResult.Closed, writer.send(new byte[]{4}));
+        } finally {
+            fiber.dispose();
+            accepted.close();
+            server.close();
+        }
+    }
+}
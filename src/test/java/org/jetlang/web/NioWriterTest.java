@@ -0,0 +1,120 @@
+package org.jetlang.web;
+
+import org.jetlang.fibers.NioChannelHandler;
+import org.jetlang.fibers.NioControls;
+import org.jetlang.fibers.NioFiber;
+import org.jetlang.fibers.NioFiberImpl;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NioWriterTest {
+
+    @Test
+    public void watermarks() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        client.configureBlocking(false);
+        NioFiberImpl fiber = new NioFiberImpl();
+        fiber.start();
+        try {
+            CountDownLatch registered = new CountDownLatch(1);
+            fiber.execute((controls) -> {
+                controls.addHandler(new Idle(client));
+                registered.countDown();
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            Object lock = new Object();
+            NioWriter writer = new NioWriter(lock, client, fiber, new IoBufferPool.Default().createFor(client, fiber));
+            int high = 256 * 1024;
+            writer.setWatermarks(new WriteWatermarks(16 * 1024, high, SlowConsumerPolicy.DROP));
+            List<WritabilityEvent> events = new CopyOnWriteArrayList<>();
+            CountDownLatch writableAgain = new CountDownLatch(1);
+            writer.setWritabilityListener(e -> {
+                events.add(e);
+                if (e.isWritable()) {
+                    writableAgain.countDown();
+                }
+            });
+
+            byte[] msg = new byte[8 * 1024];
+            long sent = 0;
+            SendResult result = SendResult.SUCCESS;
+            for (int i = 0; i < 10000 && result != SendResult.Dropped; i++) {
+                synchronized (lock) {
+                    result = writer.send(ByteBuffer.wrap(msg));
+                }
+                if (result != SendResult.Dropped) {
+                    sent += msg.length;
+                }
+            }
+            assertEquals(SendResult.Dropped, result);
+            assertFalse(writer.isWritable());
+            assertTrue(writer.getTotalBytesBuffered() <= high);
+            assertEquals(1, events.size());
+            assertFalse(events.get(0).isWritable());
+
+            ByteBuffer read = ByteBuffer.allocate(64 * 1024);
+            long received = 0;
+            while (received < sent) {
+                read.clear();
+                received += accepted.read(read);
+            }
+            assertTrue(writableAgain.await(5, TimeUnit.SECONDS));
+            assertTrue(writer.isWritable());
+            assertEquals(sent, received);
+        } finally {
+            fiber.dispose();
+            client.close();
+            accepted.close();
+            server.close();
+        }
+    }
+
+    static class Idle implements NioChannelHandler {
+        private final SocketChannel channel;
+
+        Idle(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Result onSelect(NioFiber nioFiber, NioControls controls, SelectionKey key) {
+            return Result.Continue;
+        }
+
+        @Override
+        public SelectableChannel getChannel() {
+            return channel;
+        }
+
+        @Override
+        public int getInterestSet() {
+            return 0;
+        }
+
+        @Override
+        public void onEnd() {
+        }
+
+        @Override
+        public void onSelectorEnd() {
+        }
+    }
+}
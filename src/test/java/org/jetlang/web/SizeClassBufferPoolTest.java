@@ -0,0 +1,88 @@
+package org.jetlang.web;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SizeClassBufferPoolTest {
+
+    @Test
+    public void lendsPerReadCycle() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(1024, 8 * 1024, 8 * 1024, 16 * 1024);
+        IoBufferPool connection = pool.createFor(null, null);
+
+        ByteBuffer bb = connection.beginRead(1500);
+        assertEquals(2048, bb.capacity());
+        assertEquals(0, bb.position());
+        //the rest of the slab is kept for later reads
+        assertEquals(3 * 2048, pool.getPooledBytes());
+        assertEquals(1, pool.getBuffersLent());
+
+        bb.put((byte) 1);
+        bb.clear();
+        assertNull(connection.returnBufferAfterRead(bb));
+        assertEquals(0, pool.getBuffersLent());
+        assertSame(bb, connection.beginRead(2048));
+        assertEquals(1, pool.getPoolHits());
+    }
+
+    @Test
+    public void releasesUnpooledAndOverCap() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(1024, 4 * 1024, 1024, 4 * 1024);
+        IoBufferPool connection = pool.createFor(null, null);
+
+        ByteBuffer large = connection.beginRead(10_000);
+        assertEquals(10_000, large.capacity());
+        connection.returnReadBufferOnClose(large);
+        assertEquals(1, pool.getBuffersReleased());
+
+        //not a class size
+        connection.returnBufferAfterRead(NioReader.bufferAllocate(1024 + 1500));
+        assertEquals(2, pool.getBuffersReleased());
+
+        ByteBuffer[] lent = new ByteBuffer[5];
+        for (int i = 0; i < lent.length; i++) {
+            lent[i] = connection.beginRead(1024);
+        }
+        for (ByteBuffer bb : lent) {
+            connection.returnBufferAfterRead(bb);
+        }
+        assertEquals(4 * 1024, pool.getPooledBytes());
+        assertEquals(3, pool.getBuffersReleased());
+
+        pool.releaseIdle();
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void readerGivesBackGrownBuffers() throws IOException {
+        SizeClassBufferPool pool = new SizeClassBufferPool(1024, 8 * 1024, 8 * 1024, 1024 * 1024);
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel accepted = server.accept()) {
+            accepted.configureBlocking(false);
+            NioReader<Object> reader = new NioReader<>(accepted, null, null, null, 1024, 10, null, null,
+                    pool.createFor(accepted, null), WriteWatermarks.NONE);
+            //a request line without an end grows the read buffer twice
+            byte[] line = new byte[2500];
+            Arrays.fill(line, (byte) 'a');
+            client.write(ByteBuffer.wrap(line));
+            for (int i = 0; i < 10; i++) {
+                assertTrue(reader.onRead());
+            }
+            reader.onClosed();
+        }
+        assertEquals(0, pool.getBuffersLent());
+        assertEquals(pool.getAllocatedBytes(), pool.getPooledBytes());
+    }
+}